@@ -0,0 +1,90 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.microbench;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Base class for DNS codec benchmarks. Each subclass can be run as a JUnit test (with
+ * <code>mvn -Pmicrobench -Dtest=SomeBenchmark test</code>), which launches JMH for just that class with the GC
+ * profiler attached, so results report both throughput in ops/s and allocation per operation
+ * (<code>gc.alloc.rate.norm</code>).
+ * <p>
+ * System properties <code>warmupIterations</code>, <code>measureIterations</code> and <code>forks</code> override
+ * the defaults; <code>perfReportDir</code> writes a JSON report per benchmark class into that directory.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = AbstractDnsMicrobenchmark.DEFAULT_WARMUP_ITERATIONS)
+@Measurement(iterations = AbstractDnsMicrobenchmark.DEFAULT_MEASURE_ITERATIONS)
+@Fork(AbstractDnsMicrobenchmark.DEFAULT_FORKS)
+public abstract class AbstractDnsMicrobenchmark {
+
+    static final int DEFAULT_WARMUP_ITERATIONS = 5;
+    static final int DEFAULT_MEASURE_ITERATIONS = 5;
+    static final int DEFAULT_FORKS = 1;
+
+    private static final String[] JVM_ARGS = {
+        "-server", "-Xms768m", "-Xmx768m", "-XX:+UseG1GC",
+        "-Dio.netty.leakDetection.level=disabled",
+        "-Dio.netty.buffer.checkAccessible=false",
+        "-Dio.netty.buffer.checkBounds=false"
+    };
+
+    @Test
+    public void run() throws Exception {
+        String className = getClass().getSimpleName();
+        ChainedOptionsBuilder runnerOptions = new OptionsBuilder()
+                .include(".*" + className + ".*")
+                .jvmArgs(JVM_ARGS)
+                .addProfiler(GCProfiler.class);
+
+        int warmupIterations = Integer.getInteger("warmupIterations", -1);
+        if (warmupIterations > 0) {
+            runnerOptions.warmupIterations(warmupIterations);
+        }
+        int measureIterations = Integer.getInteger("measureIterations", -1);
+        if (measureIterations > 0) {
+            runnerOptions.measurementIterations(measureIterations);
+        }
+        int forks = Integer.getInteger("forks", -1);
+        if (forks >= 0) {
+            runnerOptions.forks(forks);
+        }
+        String reportDir = System.getProperty("perfReportDir");
+        if (reportDir != null) {
+            String filePath = reportDir.endsWith("/") ? reportDir + className + ".json"
+                    : reportDir + '/' + className + ".json";
+            runnerOptions.resultFormat(ResultFormatType.JSON).result(filePath);
+        }
+        new Runner(runnerOptions.build()).run();
+    }
+}
@@ -0,0 +1,99 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.microbench;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.codec.dns.protocol.types.Ipv4Address;
+import io.netty.codec.dns.protocol.types.Ipv6Address;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Parses and formats {@link Ipv4Address} and {@link Ipv6Address} instances. Formatting reuses one StringBuilder and
+ * one buffer, so <code>gc.alloc.rate.norm</code> should be zero for the append benchmarks, and only the size of the
+ * resulting address object for the parse benchmarks.
+ */
+public class AddressBenchmark extends AbstractDnsMicrobenchmark {
+
+    @Param({"2001:db8:85a3::8a2e:370:7334", "fe80:0000:0000:0000:184d:1cbc:f0dd:e656", "::ffff:192.168.2.1"})
+    public String ipv6;
+
+    @Param({"192.168.2.1", "8.8.4.4"})
+    public String ipv4;
+
+    @Param({"UNPOOLED_HEAP", "POOLED_DIRECT"})
+    public BufferKind buffer;
+
+    private Ipv4Address ipv4Address;
+    private Ipv6Address ipv6Address;
+    private StringBuilder sb;
+    private ByteBuf buf;
+
+    @Setup
+    public void setup() {
+        ipv4Address = new Ipv4Address(ipv4);
+        ipv6Address = new Ipv6Address(ipv6);
+        sb = new StringBuilder(64);
+        buf = buffer.allocate(64);
+    }
+
+    @TearDown
+    public void tearDown() {
+        buf.release();
+    }
+
+    @Benchmark
+    public Ipv4Address parseIpv4() {
+        return new Ipv4Address(ipv4);
+    }
+
+    @Benchmark
+    public Ipv6Address parseIpv6() {
+        return new Ipv6Address(ipv6);
+    }
+
+    @Benchmark
+    public StringBuilder appendIpv4ToStringBuilder() {
+        sb.setLength(0);
+        return ipv4Address.appendTo(sb);
+    }
+
+    @Benchmark
+    public StringBuilder appendIpv6ShorthandToStringBuilder() {
+        sb.setLength(0);
+        return ipv6Address.appendShorthandTo(sb);
+    }
+
+    @Benchmark
+    public StringBuilder appendIpv6ToStringBuilder() {
+        sb.setLength(0);
+        return ipv6Address.appendTo(sb);
+    }
+
+    @Benchmark
+    public ByteBuf appendIpv4ToBuffer() {
+        buf.clear();
+        return ipv4Address.appendTo(buf);
+    }
+
+    @Benchmark
+    public ByteBuf appendIpv6ShorthandToBuffer() {
+        buf.clear();
+        return ipv6Address.appendShorthandTo(buf);
+    }
+}
@@ -0,0 +1,43 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.microbench;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.PooledByteBufAllocator;
+import io.netty.buffer.UnpooledByteBufAllocator;
+
+/**
+ * The kinds of ByteBuf a benchmark can be parameterized on.
+ */
+public enum BufferKind {
+    UNPOOLED_HEAP(UnpooledByteBufAllocator.DEFAULT, false),
+    UNPOOLED_DIRECT(UnpooledByteBufAllocator.DEFAULT, true),
+    POOLED_HEAP(PooledByteBufAllocator.DEFAULT, false),
+    POOLED_DIRECT(PooledByteBufAllocator.DEFAULT, true);
+
+    private final ByteBufAllocator allocator;
+    private final boolean direct;
+
+    BufferKind(ByteBufAllocator allocator, boolean direct) {
+        this.allocator = allocator;
+        this.direct = direct;
+    }
+
+    public ByteBuf allocate(int initialCapacity) {
+        return direct ? allocator.directBuffer(initialCapacity) : allocator.heapBuffer(initialCapacity);
+    }
+}
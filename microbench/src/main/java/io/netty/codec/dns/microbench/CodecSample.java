@@ -0,0 +1,53 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.microbench;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.codec.dns.protocol.DnsRecordCodec;
+import io.netty.handler.codec.dns.names.NameCodec;
+import java.io.IOException;
+
+/**
+ * Pairs a codec with a representative value, so benchmarks can drive codecs of different payload types without
+ * unchecked casts in the measured code.
+ */
+final class CodecSample<T> {
+
+    private final DnsRecordCodec<T> codec;
+    private final T value;
+
+    CodecSample(DnsRecordCodec<T> codec, T value) {
+        this.codec = codec;
+        this.value = value;
+    }
+
+    static <T> CodecSample<T> of(DnsRecordCodec<T> codec, T value) {
+        return new CodecSample<>(codec, value);
+    }
+
+    void write(NameCodec names, ByteBuf into) throws IOException {
+        codec.write(value, names, into);
+    }
+
+    T read(ByteBuf from, NameCodec names, int length) throws IOException {
+        return codec.read(from, names, length);
+    }
+
+    @Override
+    public String toString() {
+        return codec + " " + value;
+    }
+}
@@ -0,0 +1,183 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.microbench;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.codec.dns.protocol.DnsRecordCodecRegistry;
+import io.netty.codec.dns.protocol.TypedDnsRecordDecoder;
+import io.netty.codec.dns.protocol.TypedDnsRecordEncoder;
+import io.netty.handler.codec.dns.DefaultDnsRecordDecoder;
+import io.netty.handler.codec.dns.DefaultDnsRecordEncoder;
+import io.netty.handler.codec.dns.DnsRecordDecoder;
+import io.netty.handler.codec.dns.DnsRecordEncoder;
+import io.netty.handler.codec.dns.DnsResponse;
+import io.netty.handler.codec.dns.names.NameCodec;
+import io.netty.handler.codec.dns.names.NameCodecFeature;
+import io.netty.handler.codec.dns.wire.DnsMessageDecoder;
+import io.netty.handler.codec.dns.wire.DnsMessageEncoder;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import static io.netty.handler.codec.dns.DnsRecordDecoder.UnderflowPolicy.THROW_ON_UNDERFLOW;
+import static io.netty.handler.codec.dns.names.NameCodecFeature.COMPRESSION;
+import static io.netty.handler.codec.dns.names.NameCodecFeature.MDNS_UTF_8;
+import static io.netty.handler.codec.dns.wire.IllegalRecordPolicy.INCLUDE;
+
+/**
+ * Decodes and re-encodes whole messages from {@link DnsMessageCorpus} through
+ * DnsMessageDecoder and DnsMessageEncoder, either with the typed record codecs or with
+ * the default codecs which produce DnsRawRecords, with and without name compression.
+ */
+public class DnsMessageBenchmark extends AbstractDnsMicrobenchmark {
+
+    private static final InetSocketAddress SENDER = InetSocketAddress.createUnresolved("192.0.2.1", 53);
+    private static final InetSocketAddress RECIPIENT = InetSocketAddress.createUnresolved("192.0.2.2", 53);
+    private static final int MAX_PACKET_SIZE = 4096;
+
+    public enum RecordMode {
+        TYPED {
+            @Override
+            DnsRecordDecoder decoder(boolean mdns) {
+                return new TypedDnsRecordDecoder(mdns);
+            }
+
+            @Override
+            DnsRecordEncoder encoder(boolean mdns) {
+                return new TypedDnsRecordEncoder(mdns);
+            }
+        },
+        LAZY_TYPED {
+            @Override
+            DnsRecordDecoder decoder(boolean mdns) {
+                return new TypedDnsRecordDecoder(DnsRecordCodecRegistry.DEFAULT, mdns, true);
+            }
+
+            @Override
+            DnsRecordEncoder encoder(boolean mdns) {
+                return new TypedDnsRecordEncoder(mdns);
+            }
+        },
+        RAW {
+            @Override
+            DnsRecordDecoder decoder(boolean mdns) {
+                return new DefaultDnsRecordDecoder(THROW_ON_UNDERFLOW, mdns);
+            }
+
+            @Override
+            DnsRecordEncoder encoder(boolean mdns) {
+                return new DefaultDnsRecordEncoder(mdns);
+            }
+        };
+
+        abstract DnsRecordDecoder decoder(boolean mdns);
+
+        abstract DnsRecordEncoder encoder(boolean mdns);
+    }
+
+    @Param
+    public DnsMessageCorpus message;
+
+    @Param
+    public RecordMode records;
+
+    @Param({"true", "false"})
+    public boolean compression;
+
+    @Param({"POOLED_DIRECT", "UNPOOLED_HEAP"})
+    public BufferKind buffer;
+
+    private DnsMessageDecoder<? extends DnsResponse> decoder;
+    private DnsMessageEncoder encoder;
+    private NameCodecFeature[] nameFeatures;
+    private ByteBuf wire;
+    private ByteBuf writeTarget;
+    private DnsResponse<?> decoded;
+
+    @Setup
+    public void setup() throws Exception {
+        boolean mdns = message.isMdns();
+        List<NameCodecFeature> features = new ArrayList<>(2);
+        if (compression) {
+            features.add(COMPRESSION);
+        }
+        if (mdns) {
+            features.add(MDNS_UTF_8);
+        }
+        nameFeatures = features.toArray(new NameCodecFeature[features.size()]);
+
+        if (mdns) {
+            decoder = DnsMessageDecoder.builder().mDNS()
+                    .withRecordDecoder(records.decoder(true))
+                    .withIllegalRecordPolicy(INCLUDE)
+                    .withNameFeatures(nameFeatures)
+                    .buildResponseDecoder();
+            encoder = DnsMessageEncoder.builder().mDNS()
+                    .withRecordEncoder(records.encoder(true))
+                    .withIllegalRecordPolicy(INCLUDE)
+                    .withNameFeatures(nameFeatures)
+                    .build();
+        } else {
+            decoder = DnsMessageDecoder.builder()
+                    .withRecordDecoder(records.decoder(false))
+                    .withIllegalRecordPolicy(INCLUDE)
+                    .withNameFeatures(nameFeatures)
+                    .buildResponseDecoder();
+            encoder = DnsMessageEncoder.builder()
+                    .withRecordEncoder(records.encoder(false))
+                    .withIllegalRecordPolicy(INCLUDE)
+                    .withNameFeatures(nameFeatures)
+                    .build();
+        }
+
+        byte[] bytes = message.bytes();
+        wire = buffer.allocate(bytes.length).writeBytes(bytes);
+        writeTarget = buffer.allocate(MAX_PACKET_SIZE);
+        decoded = decoder.decode(wire.duplicate(), SENDER, RECIPIENT);
+    }
+
+    @TearDown
+    public void tearDown() {
+        decoded.release();
+        wire.release();
+        writeTarget.release();
+    }
+
+    @Benchmark
+    public Object decode() throws Exception {
+        DnsResponse<?> response = decoder.decode(wire.duplicate(), SENDER, RECIPIENT);
+        int count = response.count();
+        response.release();
+        return count;
+    }
+
+    @Benchmark
+    public ByteBuf encode() throws Exception {
+        writeTarget.clear();
+        // Compressing name codecs remember the names written so far, so each message gets a fresh one
+        NameCodec names = NameCodec.get(nameFeatures);
+        try {
+            encoder.encode(decoded, writeTarget, names, MAX_PACKET_SIZE);
+        } finally {
+            names.close();
+        }
+        return writeTarget;
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.microbench;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Representative wire-format DNS responses, checked in as hex dumps under
+ * <code>corpus/</code> next to this class.  Lines starting with <code>#</code> are
+ * comments;  everything else is whitespace-separated hex octets.
+ */
+public enum DnsMessageCorpus {
+    A_ANSWER("a-answer.hex", false),
+    AAAA_CNAME_ANSWER("aaaa-cname-answer.hex", false),
+    TXT_SPF_ANSWER("txt-spf-answer.hex", false),
+    NSEC_NXDOMAIN("nsec-nxdomain.hex", false),
+    EDNS_COOKIE_ECS("edns-cookie-ecs.hex", false),
+    MDNS_SERVICE_ANNOUNCEMENT("mdns-service-announcement.hex", true);
+
+    private final String resource;
+    private final boolean mdns;
+
+    DnsMessageCorpus(String resource, boolean mdns) {
+        this.resource = resource;
+        this.mdns = mdns;
+    }
+
+    /**
+     * Whether this message must be decoded and encoded in mDNS mode.
+     */
+    public boolean isMdns() {
+        return mdns;
+    }
+
+    /**
+     * Load the wire bytes of this message.
+     */
+    public byte[] bytes() throws IOException {
+        InputStream in = DnsMessageCorpus.class.getResourceAsStream("corpus/" + resource);
+        if (in == null) {
+            throw new IOException("Missing corpus file corpus/" + resource);
+        }
+        try {
+            return parseHex(readFully(in), resource);
+        } finally {
+            in.close();
+        }
+    }
+
+    private static String readFully(InputStream in) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] buf = new byte[1024];
+        for (int count = in.read(buf); count > 0; count = in.read(buf)) {
+            out.write(buf, 0, count);
+        }
+        return new String(out.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    static byte[] parseHex(String text, String name) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(text.length() / 3);
+        for (String line : text.split("\n")) {
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            for (String octet : line.trim().split("\\s+")) {
+                if (octet.isEmpty()) {
+                    continue;
+                }
+                if (octet.length() != 2) {
+                    throw new IOException("Bad octet '" + octet + "' in " + name);
+                }
+                try {
+                    out.write(Integer.parseInt(octet, 16));
+                } catch (NumberFormatException e) {
+                    throw new IOException("Bad octet '" + octet + "' in " + name, e);
+                }
+            }
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,181 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.microbench;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.codec.dns.protocol.recordcodecs.DnsRecordCodecs;
+import io.netty.codec.dns.protocol.types.ClientSubnet;
+import io.netty.codec.dns.protocol.types.Cookies;
+import io.netty.codec.dns.protocol.types.Ipv4Address;
+import io.netty.codec.dns.protocol.types.Ipv6Address;
+import io.netty.codec.dns.protocol.types.Location;
+import io.netty.codec.dns.protocol.types.MailExchanger;
+import io.netty.codec.dns.protocol.types.NextSecureRecord;
+import io.netty.codec.dns.protocol.types.OptRecords;
+import io.netty.codec.dns.protocol.types.OptSubrecord;
+import io.netty.codec.dns.protocol.types.ServiceDetails;
+import io.netty.codec.dns.protocol.types.StartOfAuthority;
+import io.netty.codec.dns.protocol.types.UriInfo;
+import io.netty.handler.codec.dns.DnsRecordType;
+import io.netty.handler.codec.dns.names.NameCodec;
+import java.io.IOException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.COOKIE;
+import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.ECS;
+import static io.netty.handler.codec.dns.DnsRecordType.A;
+import static io.netty.handler.codec.dns.DnsRecordType.MX;
+import static io.netty.handler.codec.dns.DnsRecordType.NSEC;
+import static io.netty.handler.codec.dns.DnsRecordType.RRSIG;
+
+/**
+ * Reads and writes the payload of each record type supported by {@link DnsRecordCodecs}.
+ */
+public class DnsRecordCodecBenchmark extends AbstractDnsMicrobenchmark {
+
+    public enum RecordKind {
+        IPV4_ADDRESS {
+            @Override
+            CodecSample<?> sample() {
+                return CodecSample.of(DnsRecordCodecs.ipv4Address(), new Ipv4Address("192.168.2.1"));
+            }
+        },
+        IPV6_ADDRESS {
+            @Override
+            CodecSample<?> sample() {
+                return CodecSample.of(DnsRecordCodecs.ipv6Address(),
+                        new Ipv6Address("2001:0db8:85a3:0000:0000:8a2e:0370:7334"));
+            }
+        },
+        NAME {
+            @Override
+            CodecSample<?> sample() {
+                return CodecSample.<CharSequence>of(DnsRecordCodecs.name(), "mail.example.com");
+            }
+        },
+        TEXT {
+            @Override
+            CodecSample<?> sample() {
+                return CodecSample.of(DnsRecordCodecs.text(),
+                        new CharSequence[]{"v=spf1", "include:_spf.example.com", "~all"});
+            }
+        },
+        CHARACTER_STRINGS {
+            @Override
+            CodecSample<?> sample() {
+                return CodecSample.of(DnsRecordCodecs.characterStrings(),
+                        new CharSequence[]{"v=spf1 ip4:192.0.2.0/24 include:_spf.example.com ~all",
+                            "google-site-verification=Xk3n9WQf8dLrTq2vZpA7sYb4mHc6eJ1uRoNtKgVwI5E"});
+            }
+        },
+        START_OF_AUTHORITY {
+            @Override
+            CodecSample<?> sample() {
+                return CodecSample.of(DnsRecordCodecs.startOfAuthority(), new StartOfAuthority("ns1.example.com",
+                        "hostmaster.example.com", 2017010101, 7200, 3600, 1209600, 3600));
+            }
+        },
+        LOCATION {
+            @Override
+            CodecSample<?> sample() {
+                return CodecSample.of(DnsRecordCodecs.location(),
+                        new Location((byte) 1, (byte) 0, (byte) 1, (byte) 2, 352, -80, 55));
+            }
+        },
+        OPT {
+            @Override
+            CodecSample<?> sample() {
+                OptRecords records = OptRecords.of(
+                        new OptSubrecord<>(ECS, ClientSubnet.ipv4(new Ipv4Address("192.168.2.0"), 24, 0)),
+                        new OptSubrecord<>(COOKIE, new Cookies(new byte[]{1, 2, 3, 4, 5, 6, 7, 8},
+                                new byte[]{9, 10, 11, 12, 13, 14, 15, 16})));
+                return CodecSample.of(DnsRecordCodecs.opt(), records);
+            }
+        },
+        SERVICE {
+            @Override
+            CodecSample<?> sample() {
+                return CodecSample.of(DnsRecordCodecs.service(),
+                        new ServiceDetails(10, 5, 22, "somelaptop.example.com"));
+            }
+        },
+        MAIL_EXCHANGER {
+            @Override
+            CodecSample<?> sample() {
+                return CodecSample.of(DnsRecordCodecs.mailExchanger(), new MailExchanger(10, "mail.example.com"));
+            }
+        },
+        NSEC_RECORD {
+            @Override
+            CodecSample<?> sample() {
+                return CodecSample.of(DnsRecordCodecs.nsec(), new NextSecureRecord("host.example.com",
+                        A, MX, RRSIG, NSEC, DnsRecordType.valueOf(1234)));
+            }
+        },
+        URI {
+            @Override
+            CodecSample<?> sample() {
+                return CodecSample.of(DnsRecordCodecs.uri(), new UriInfo(10, 1, "http://netty.io"));
+            }
+        };
+
+        abstract CodecSample<?> sample();
+    }
+
+    @Param
+    public RecordKind kind;
+
+    @Param
+    public BufferKind buffer;
+
+    private CodecSample<?> sample;
+    private NameCodec names;
+    private ByteBuf writeTarget;
+    private ByteBuf encoded;
+    private int encodedLength;
+
+    @Setup
+    public void setup() throws IOException {
+        sample = kind.sample();
+        names = NameCodec.nonCompressingNameCodec();
+        writeTarget = buffer.allocate(512);
+        encoded = buffer.allocate(512);
+        sample.write(names, encoded);
+        encodedLength = encoded.writerIndex();
+    }
+
+    @TearDown
+    public void tearDown() {
+        writeTarget.release();
+        encoded.release();
+    }
+
+    @Benchmark
+    public ByteBuf write() throws IOException {
+        writeTarget.clear();
+        sample.write(names, writeTarget);
+        return writeTarget;
+    }
+
+    @Benchmark
+    public Object read() throws IOException {
+        encoded.readerIndex(0);
+        return sample.read(encoded, names, encodedLength);
+    }
+}
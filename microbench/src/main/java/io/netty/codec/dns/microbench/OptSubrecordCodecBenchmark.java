@@ -0,0 +1,108 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.microbench;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.codec.dns.protocol.optrecords.OptSubrecordCodecs;
+import io.netty.codec.dns.protocol.types.ClientSubnet;
+import io.netty.codec.dns.protocol.types.Cookies;
+import io.netty.codec.dns.protocol.types.Ipv4Address;
+import io.netty.codec.dns.protocol.types.Ipv6Address;
+import io.netty.handler.codec.dns.names.NameCodec;
+import java.io.IOException;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Reads and writes the payload of each OPT sub-record type supported by {@link OptSubrecordCodecs}.
+ */
+public class OptSubrecordCodecBenchmark extends AbstractDnsMicrobenchmark {
+
+    public enum SubrecordKind {
+        ECS_IPV4 {
+            @Override
+            CodecSample<?> sample() {
+                return CodecSample.<ClientSubnet<?>>of(OptSubrecordCodecs.ecs(),
+                        ClientSubnet.ipv4(new Ipv4Address("192.168.2.0"), 24, 0));
+            }
+        },
+        ECS_IPV6 {
+            @Override
+            CodecSample<?> sample() {
+                return CodecSample.<ClientSubnet<?>>of(OptSubrecordCodecs.ecs(),
+                        ClientSubnet.ipv6(new Ipv6Address("2001:0db8:85a3::"), 56, 0));
+            }
+        },
+        CLIENT_COOKIE {
+            @Override
+            CodecSample<?> sample() {
+                return CodecSample.of(OptSubrecordCodecs.cookie(), new Cookies(new byte[]{1, 2, 3, 4, 5, 6, 7, 8}));
+            }
+        },
+        CLIENT_AND_SERVER_COOKIE {
+            @Override
+            CodecSample<?> sample() {
+                return CodecSample.of(OptSubrecordCodecs.cookie(), new Cookies(new byte[]{1, 2, 3, 4, 5, 6, 7, 8},
+                        new byte[]{9, 10, 11, 12, 13, 14, 15, 16}));
+            }
+        };
+
+        abstract CodecSample<?> sample();
+    }
+
+    @Param
+    public SubrecordKind kind;
+
+    @Param
+    public BufferKind buffer;
+
+    private CodecSample<?> sample;
+    private NameCodec names;
+    private ByteBuf writeTarget;
+    private ByteBuf encoded;
+    private int encodedLength;
+
+    @Setup
+    public void setup() throws IOException {
+        sample = kind.sample();
+        names = NameCodec.nonCompressingNameCodec();
+        writeTarget = buffer.allocate(64);
+        encoded = buffer.allocate(64);
+        sample.write(names, encoded);
+        encodedLength = encoded.writerIndex();
+    }
+
+    @TearDown
+    public void tearDown() {
+        writeTarget.release();
+        encoded.release();
+    }
+
+    @Benchmark
+    public ByteBuf write() throws IOException {
+        writeTarget.clear();
+        sample.write(names, writeTarget);
+        return writeTarget;
+    }
+
+    @Benchmark
+    public Object read() throws IOException {
+        encoded.readerIndex(0);
+        return sample.read(encoded, names, encodedLength);
+    }
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.microbench;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.codec.dns.protocol.cookies.ServerCookieEngine;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Generates and validates RFC 9018 server cookies with {@link ServerCookieEngine}, as a server would for every query
+ * carrying a COOKIE option. Both operations should report a <code>gc.alloc.rate.norm</code> of zero.
+ */
+public class ServerCookieBenchmark extends AbstractDnsMicrobenchmark {
+
+    private static final byte[] CLIENT_COOKIE = {0x24, 0x64, (byte) 0xc4, (byte) 0xab, (byte) 0xcf, 0x10,
+        (byte) 0xc9, 0x57};
+    private static final long IPV4_CLIENT = 0xC6336464L << 32;
+    private static final long IPV6_CLIENT_HIGH = 0x20010db802200001L;
+    private static final long IPV6_CLIENT_LOW = 0x59ded0f4876982b8L;
+
+    @Param({"true", "false"})
+    public boolean ipv4;
+
+    @Param({"UNPOOLED_HEAP", "POOLED_DIRECT"})
+    public BufferKind buffer;
+
+    private ServerCookieEngine engine;
+    private ByteBuf query;
+    private ByteBuf response;
+    private long high;
+    private long low;
+
+    @Setup
+    public void setup() {
+        engine = new ServerCookieEngine(ServerCookieEngine.newSecret());
+        high = ipv4 ? IPV4_CLIENT : IPV6_CLIENT_HIGH;
+        low = ipv4 ? 0 : IPV6_CLIENT_LOW;
+        query = buffer.allocate(ServerCookieEngine.CLIENT_COOKIE_LENGTH + ServerCookieEngine.SERVER_COOKIE_LENGTH);
+        query.writeBytes(CLIENT_COOKIE);
+        response = buffer.allocate(query.capacity());
+        // Give the query a valid server cookie, as a returning client would send
+        engine.writeCookies(query, 0, response, ipv4, high, low);
+        query.clear().writeBytes(response);
+        response.clear();
+    }
+
+    @TearDown
+    public void tearDown() {
+        query.release();
+        response.release();
+    }
+
+    @Benchmark
+    public ServerCookieEngine.Status validate() {
+        return engine.validate(query, 0, query.readableBytes(), ipv4, high, low);
+    }
+
+    @Benchmark
+    public ByteBuf writeCookies() {
+        response.clear();
+        engine.writeCookies(query, 0, response, ipv4, high, low);
+        return response;
+    }
+}
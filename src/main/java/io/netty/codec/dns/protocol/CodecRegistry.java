@@ -32,10 +32,21 @@ import static io.netty.util.internal.ObjectUtil.checkNotNull;
  */
 public final class CodecRegistry<T> {
 
+    private static final int PAGE_SHIFT = 8;
+    private static final int PAGE_MASK = 0xFF;
+    private static final int PAGE_COUNT = 256;
+
     private final IntObjectMap<DnsRecordCodec<?>> codecs;
 
     private final RegistryInternal<T> internal;
 
+    /**
+     * Dense lookup table over the 16-bit type space:  pages[type &gt;&gt; 8][type &amp; 0xFF]. Every slot is
+     * filled - unregistered types hold the fallback codec, and pages with no registered types all share one
+     * fallback-filled page, so the table costs a few KB.
+     */
+    private final DnsRecordCodec<?>[][] pages;
+
     CodecRegistry(IntObjectHashMap<DnsRecordCodec<?>> codecsMap, RegistryInternal<T> internal) {
         if (codecsMap == null) {
             throw new NullPointerException("codecsMap");
@@ -47,6 +58,28 @@ public final class CodecRegistry<T> {
         temp.putAll(codecsMap);
         this.codecs = unmodifiableMap(temp);
         this.internal = internal;
+        this.pages = buildPages(temp, internal.fallback());
+    }
+
+    private static DnsRecordCodec<?>[][] buildPages(IntObjectMap<DnsRecordCodec<?>> codecs,
+            DnsRecordCodec<?> fallback) {
+        checkNotNull(fallback, "fallback");
+        DnsRecordCodec<?>[] fallbackPage = new DnsRecordCodec<?>[PAGE_COUNT];
+        Arrays.fill(fallbackPage, fallback);
+        DnsRecordCodec<?>[][] result = new DnsRecordCodec<?>[PAGE_COUNT][];
+        Arrays.fill(result, fallbackPage);
+        for (IntObjectMap.PrimitiveEntry<DnsRecordCodec<?>> e : codecs.entries()) {
+            int key = e.key();
+            if ((key & ~0xFFFF) != 0) {
+                throw new IllegalArgumentException("Type code out of 16-bit range: " + key);
+            }
+            int page = key >>> PAGE_SHIFT;
+            if (result[page] == fallbackPage) {
+                result[page] = fallbackPage.clone();
+            }
+            result[page][key & PAGE_MASK] = e.value();
+        }
+        return result;
     }
 
     /**
@@ -97,11 +130,20 @@ public final class CodecRegistry<T> {
      */
     public DnsRecordCodec<?> get(T recordType) {
         checkNotNull(recordType, "recordType");
-        DnsRecordCodec<?> codec = codecs.get(intValueFor(recordType));
-        if (codec == null) {
-            codec = fallback();
+        return get(intValueFor(recordType));
+    }
+
+    /**
+     * Get the codec for a given numeric record type, without going through a type object.
+     *
+     * @param recordType The 16-bit type code
+     * @return The registered codec, or the fallback ByteBuf codec if none is available
+     */
+    public DnsRecordCodec<?> get(int recordType) {
+        if ((recordType & ~0xFFFF) != 0) {
+            return fallback();
         }
-        return codec;
+        return pages[recordType >>> PAGE_SHIFT][recordType & PAGE_MASK];
     }
 
     /**
@@ -22,6 +22,7 @@ import io.netty.codec.dns.protocol.types.OptSubrecord;
 import io.netty.handler.codec.dns.AbstractDnsRecord;
 import io.netty.handler.codec.dns.DnsClass;
 import io.netty.handler.codec.dns.DnsRawRecord;
+import io.netty.handler.codec.dns.DnsRecord;
 import io.netty.handler.codec.dns.DnsRecordType;
 import io.netty.handler.codec.dns.DnsResponseCode;
 import io.netty.util.internal.ObjectUtil;
@@ -107,7 +108,7 @@ public final class DefaultTypedDnsRecord<T> extends AbstractDnsRecord implements
     }
 
     @SuppressWarnings("StringConcatenationInsideStringBufferAppend")
-    private String toString(Object content) {
+    static String toString(Object content) {
         if (content.getClass().isArray()) {
             StringBuilder sb = new StringBuilder();
             int sz = Array.getLength(content);
@@ -125,30 +126,32 @@ public final class DefaultTypedDnsRecord<T> extends AbstractDnsRecord implements
 
     @Override
     public boolean equals(Object o) {
-        if (super.equals(o)) {
-            if (o instanceof TypedDnsRecord) {
-                TypedDnsRecord<?> other = (TypedDnsRecord<?>) o;
-                if (other.content() == content()) {
-                    return true;
-                }
-                if (content instanceof CharSequence && other.content() instanceof CharSequence) {
-                    return charSequencesEqual((CharSequence) content, (CharSequence) other.content(), true);
-                } else {
-                    return content.equals(other.content());
-                }
-            } else if (o instanceof DnsRawRecord && content instanceof ByteBuf) {
-                return content.equals(((ByteBufHolder) o).content());
-            }
-        }
-        return false;
+        return super.equals(o) && contentEquals(content, o);
     }
 
     @Override
     public int hashCode() {
-        return super.hashCode() + 3 * contentHashCode();
+        return super.hashCode() + 3 * contentHashCode(content);
+    }
+
+    static boolean contentEquals(Object content, Object o) {
+        if (o instanceof TypedDnsRecord) {
+            TypedDnsRecord<?> other = (TypedDnsRecord<?>) o;
+            if (other.content() == content) {
+                return true;
+            }
+            if (content instanceof CharSequence && other.content() instanceof CharSequence) {
+                return charSequencesEqual((CharSequence) content, (CharSequence) other.content(), true);
+            } else {
+                return content.equals(other.content());
+            }
+        } else if (o instanceof DnsRawRecord && content instanceof ByteBuf) {
+            return content.equals(((ByteBufHolder) o).content());
+        }
+        return false;
     }
 
-    private int contentHashCode() {
+    static int contentHashCode(Object content) {
         if (content instanceof CharSequence) {
             return charSequenceHashCode((CharSequence) content, true);
         } else {
@@ -157,11 +160,15 @@ public final class DefaultTypedDnsRecord<T> extends AbstractDnsRecord implements
     }
 
     @Override
-    public OptRecordHeaderFields optRecordHeaderFields(final DnsResponseCode code) {
+    public OptRecordHeaderFields optRecordHeaderFields(DnsResponseCode code) {
+        return readOnlyOptRecordHeaderFields(this, code);
+    }
+
+    static OptRecordHeaderFields readOnlyOptRecordHeaderFields(final DnsRecord record, final DnsResponseCode code) {
         return new OptRecordHeaderFields(true) {
             @Override
             public long getTtlValue() {
-                return DefaultTypedDnsRecord.this.timeToLive();
+                return record.timeToLive();
             }
 
             @Override
@@ -171,7 +178,7 @@ public final class DefaultTypedDnsRecord<T> extends AbstractDnsRecord implements
 
             @Override
             public int getDnsClassValue() {
-                return DefaultTypedDnsRecord.this.dnsClassValue();
+                return record.dnsClassValue();
             }
 
             @Override
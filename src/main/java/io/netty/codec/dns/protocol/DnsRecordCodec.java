@@ -16,6 +16,7 @@
 package io.netty.codec.dns.protocol;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.codec.dns.protocol.types.WireName;
 import io.netty.handler.codec.dns.DnsDecoderException;
 import io.netty.handler.codec.dns.names.NameCodec;
 import io.netty.util.internal.ObjectUtil;
@@ -30,6 +31,11 @@ import static io.netty.util.internal.ObjectUtil.checkNotNull;
  */
 public abstract class DnsRecordCodec<T> {
 
+    /**
+     * The maximum length of a DNS name on the wire.
+     */
+    protected static final int MAX_NAME_LENGTH = 255;
+
     private final Class<? super T> type;
 
     /**
@@ -66,6 +72,66 @@ public abstract class DnsRecordCodec<T> {
      */
     public abstract void write(T value, NameCodec names, ByteBuf into) throws IOException;
 
+    /**
+     * Get the exact number of bytes {@link #write(Object, NameCodec, ByteBuf)} will produce for a value, whatever
+     * NameCodec is used. If it returns a value, the encoder writes the record length before the payload instead of
+     * patching it in afterwards. Codecs whose output depends on the NameCodec (because it contains names) should
+     * return -1 and implement {@link #maxEncodedSize(Object)} instead.
+     *
+     * @param value A value
+     * @return The encoded length, or -1 if it cannot be known in advance
+     */
+    public int encodedSize(T value) {
+        return -1;
+    }
+
+    /**
+     * Get an upper bound on the number of bytes {@link #write(Object, NameCodec, ByteBuf)} will produce for a value,
+     * assuming names are not compressed, so space can be reserved in the target buffer up front.
+     *
+     * @param value A value
+     * @return The maximum encoded length, or -1 if no bound is known
+     */
+    public int maxEncodedSize(T value) {
+        return encodedSize(value);
+    }
+
+    /**
+     * Get an upper bound on the wire length of a name written without compression.
+     *
+     * @param name A name
+     * @return A length no greater than 255
+     */
+    protected static int maxNameLength(CharSequence name) {
+        if (name instanceof WireName && ((WireName) name).isAscii()) {
+            return ((WireName) name).wireLength();
+        }
+        int length = name.length();
+        if (length + 2 >= MAX_NAME_LENGTH) {
+            return MAX_NAME_LENGTH;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) > 0x7F) {
+                // Punycode or UTF-8 - don't bother computing it exactly
+                return MAX_NAME_LENGTH;
+            }
+        }
+        // One length byte per label plus the root label
+        return length + 2;
+    }
+
+    /**
+     * Split the encoded form of a value into fixed-size fields and names, so it can be written repeatedly without
+     * running this codec while names still go through the message's NameCodec. Codecs whose payload contains names
+     * which should take part in name compression should override this.
+     *
+     * @param value A value
+     * @return A template, or null if this codec does not support them
+     */
+    public RdataTemplate template(T value) {
+        return null;
+    }
+
     /**
      * Get the type this codec handles.
      *
@@ -17,6 +17,7 @@ package io.netty.codec.dns.protocol;
 
 import io.netty.codec.dns.protocol.CodecRegistry.CodecRegistryBuilder;
 import io.netty.codec.dns.protocol.recordcodecs.DnsRecordCodecs;
+import io.netty.codec.dns.protocol.types.WireName;
 import io.netty.handler.codec.dns.DnsRecordType;
 
 import static io.netty.handler.codec.dns.DnsRecordType.*;
@@ -100,4 +101,19 @@ public final class DnsRecordCodecRegistry {
                 .add(DnsRecordCodecs.uri(), URI);
         return result;
     }
+
+    /**
+     * Create a builder with the default codecs, except that the names inside CNAME, DNAME, PTR, NS, SOA, SRV and MX
+     * records are decoded as {@link WireName}s - suitable for forwarders and caches which mostly pass names through
+     * rather than reading them.
+     *
+     * @return A builder
+     */
+    public static CodecRegistryBuilder<DnsRecordType> builderWithWireNameCodecs() {
+        return builderWithDefaultCodecs()
+                .add(DnsRecordCodecs.nameWithWireNames(), CNAME, DNAME, PTR, NS)
+                .add(DnsRecordCodecs.startOfAuthorityWithWireNames(), SOA)
+                .add(DnsRecordCodecs.serviceWithWireNames(), SRV)
+                .add(DnsRecordCodecs.mailExchangerWithWireNames(), MX);
+    }
 }
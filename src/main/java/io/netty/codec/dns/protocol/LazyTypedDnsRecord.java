@@ -0,0 +1,168 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.DecoderException;
+import io.netty.handler.codec.dns.AbstractDnsRecord;
+import io.netty.handler.codec.dns.DnsRecordType;
+import io.netty.handler.codec.dns.DnsResponseCode;
+import io.netty.handler.codec.dns.names.NameCodec;
+import io.netty.handler.codec.dns.names.NameCodecFeature;
+import io.netty.util.ReferenceCounted;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * A TypedDnsRecord whose payload is decoded by its codec the first time content() is called. Until then it
+ * holds a retained duplicate of the whole message buffer - not just a slice of the record data - because names
+ * in the record data may be compression pointers to anywhere earlier in the message. The retained buffer is
+ * released when this record is released, normally along with the message containing it.
+ */
+final class LazyTypedDnsRecord<T> extends AbstractDnsRecord implements TypedDnsRecord<T>, ReferenceCounted {
+
+    private static final NameCodecFeature[] FEATURES = NameCodecFeature.values();
+
+    private final DnsRecordCodec<T> codec;
+    private final ByteBuf message;
+    private final int offset;
+    private final int length;
+    private final int nameFeatures;
+    private volatile T content;
+
+    LazyTypedDnsRecord(DnsRecordCodec<T> codec, ByteBuf message, int offset, int length, NameCodec names,
+            CharSequence name, DnsRecordType type, int dnsClass, long ttl, boolean unicast) {
+        super(name, type, dnsClass, ttl, unicast);
+        this.codec = checkNotNull(codec, "codec");
+        this.message = checkNotNull(message, "message");
+        this.offset = offset;
+        this.length = length;
+        this.nameFeatures = featuresOf(names);
+    }
+
+    private static int featuresOf(NameCodec names) {
+        int result = 0;
+        for (int i = 0; i < FEATURES.length; i++) {
+            if (FEATURES[i].isImplementedBy(names)) {
+                result |= 1 << i;
+            }
+        }
+        return result;
+    }
+
+    private NameCodec nameCodec() {
+        int count = Integer.bitCount(nameFeatures);
+        NameCodecFeature[] features = new NameCodecFeature[count];
+        for (int i = 0, j = 0; i < FEATURES.length; i++) {
+            if ((nameFeatures & (1 << i)) != 0) {
+                features[j++] = FEATURES[i];
+            }
+        }
+        return NameCodec.get(features);
+    }
+
+    /**
+     * Whether the payload has been decoded yet.
+     */
+    boolean isDecoded() {
+        return content != null;
+    }
+
+    @Override
+    public T content() {
+        T result = content;
+        if (result == null) {
+            // Racing threads may each decode;  codecs are stateless, so they get equal results
+            content = result = decode();
+        }
+        return result;
+    }
+
+    private T decode() {
+        ByteBuf from = message.duplicate();
+        from.readerIndex(offset);
+        NameCodec names = nameCodec();
+        try {
+            return checkNotNull(codec.read(from, names, length), "payload");
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new DecoderException("Failed decoding " + type() + " record " + name(), e);
+        } finally {
+            names.close();
+        }
+    }
+
+    @Override
+    public OptRecordHeaderFields optRecordHeaderFields(DnsResponseCode code) {
+        return DefaultTypedDnsRecord.readOnlyOptRecordHeaderFields(this, code);
+    }
+
+    @Override
+    public int refCnt() {
+        return message.refCnt();
+    }
+
+    @Override
+    public LazyTypedDnsRecord<T> retain() {
+        message.retain();
+        return this;
+    }
+
+    @Override
+    public LazyTypedDnsRecord<T> retain(int increment) {
+        message.retain(increment);
+        return this;
+    }
+
+    @Override
+    public LazyTypedDnsRecord<T> touch() {
+        message.touch();
+        return this;
+    }
+
+    @Override
+    public LazyTypedDnsRecord<T> touch(Object hint) {
+        message.touch(hint);
+        return this;
+    }
+
+    @Override
+    public boolean release() {
+        return message.release();
+    }
+
+    @Override
+    public boolean release(int decrement) {
+        return message.release(decrement);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return super.equals(o) && DefaultTypedDnsRecord.contentEquals(content(), o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode() + 3 * DefaultTypedDnsRecord.contentHashCode(content());
+    }
+
+    @Override
+    public String toString() {
+        return name() + "\t" + dnsClass().name() + '\t' + timeToLive() + '\t' + type().name() + '\t'
+                + DefaultTypedDnsRecord.toString(content());
+    }
+}
@@ -20,6 +20,10 @@ import io.netty.codec.dns.protocol.optrecords.OptSubrecordType;
 
 import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.COOKIE;
 import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.ECS;
+import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.EDE;
+import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.NSID;
+import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.PADDING;
+import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.TCP_KEEPALIVE;
 
 /**
  * Registry of codecs for reading the contents of well-known OPT subrecords.
@@ -54,7 +58,11 @@ public final class OptSubrecordCodecRegistry {
     public static CodecRegistry.CodecRegistryBuilder<OptSubrecordType> builderWithDefaultCodecs() {
         CodecRegistry.CodecRegistryBuilder<OptSubrecordType> result = builder();
         result.add(OptSubrecordCodecs.ecs(), ECS)
-                .add(OptSubrecordCodecs.cookie(), COOKIE);
+                .add(OptSubrecordCodecs.cookie(), COOKIE)
+                .add(OptSubrecordCodecs.padding(), PADDING)
+                .add(OptSubrecordCodecs.tcpKeepalive(), TCP_KEEPALIVE)
+                .add(OptSubrecordCodecs.nsid(), NSID)
+                .add(OptSubrecordCodecs.extendedDnsError(), EDE);
         return result;
     }
 
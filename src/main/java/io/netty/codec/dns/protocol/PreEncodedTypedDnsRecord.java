@@ -0,0 +1,203 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.dns.AbstractDnsRecord;
+import io.netty.handler.codec.dns.DnsRecordType;
+import io.netty.handler.codec.dns.DnsResponseCode;
+import io.netty.handler.codec.dns.names.NameCodec;
+import io.netty.handler.codec.dns.names.NameCodecFeature;
+import java.io.IOException;
+
+import static io.netty.handler.codec.dns.DnsRecordType.OPT;
+import static io.netty.handler.codec.dns.names.NameCodecFeature.COMPRESSION;
+import static io.netty.handler.codec.dns.names.NameCodecFeature.MDNS_UTF_8;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * An immutable TypedDnsRecord whose payload has been encoded once, up front, into a shared read-only buffer, for
+ * records which are served over and over, such as authoritative answers. TypedDnsRecordEncoder copies the encoded
+ * bytes instead of running the codec, unless the payload contains names and the message is being written with
+ * name compression, or names are written in a different unicode mode than the one the bytes were encoded with. In
+ * those cases, if the codec supplies an {@link RdataTemplate}, its fixed fields are copied and only its names are
+ * written by the NameCodec;  otherwise the codec is used as usual.
+ */
+public final class PreEncodedTypedDnsRecord<T> extends AbstractDnsRecord implements TypedDnsRecord<T> {
+
+    private final T content;
+    private final ByteBuf rdata;
+    private final boolean hasCompressibleNames;
+    private final boolean mdnsUtf8;
+    private final RdataTemplate template;
+
+    private PreEncodedTypedDnsRecord(TypedDnsRecord<T> record, ByteBuf rdata,
+            boolean hasCompressibleNames, boolean mdnsUtf8, RdataTemplate template) {
+        super(record.name(), record.type(), record.dnsClassValue(), record.timeToLive(),
+                record.isUnicastOrCacheFlushRequested());
+        this.content = record.content();
+        this.rdata = rdata;
+        this.hasCompressibleNames = hasCompressibleNames;
+        this.mdnsUtf8 = mdnsUtf8;
+        this.template = template;
+    }
+
+    /**
+     * Pre-encode a record using the default codec registry and plain (non-mDNS) names.
+     *
+     * @param <T> The payload type
+     * @param record A record
+     * @return A pre-encoded copy of the record
+     * @throws IOException if the codec cannot encode the payload
+     */
+    public static <T> PreEncodedTypedDnsRecord<T> of(TypedDnsRecord<T> record) throws IOException {
+        return of(record, DnsRecordCodecRegistry.DEFAULT);
+    }
+
+    /**
+     * Pre-encode a record using the codec registered for its type.
+     *
+     * @param <T> The payload type
+     * @param record A record
+     * @param registry The registry to find the codec in - should be the one the encoder uses
+     * @param nameFeatures Features of the NameCodec messages will be written with; only MDNS_UTF_8 matters here,
+     * since the payload is always encoded without compression
+     * @return A pre-encoded copy of the record
+     * @throws IOException if the codec cannot encode the payload
+     * @throws IllegalArgumentException if the record is an OPT record
+     */
+    public static <T> PreEncodedTypedDnsRecord<T> of(TypedDnsRecord<T> record, CodecRegistry<DnsRecordType> registry,
+            NameCodecFeature... nameFeatures) throws IOException {
+        checkNotNull(record, "record");
+        checkNotNull(registry, "registry");
+        if (OPT.equals(record.type())) {
+            throw new IllegalArgumentException("OPT records are rewritten per-message and cannot be pre-encoded");
+        }
+        if (record instanceof PreEncodedTypedDnsRecord<?>) {
+            return (PreEncodedTypedDnsRecord<T>) record;
+        }
+        DnsRecordCodec<T> codec = registry.get(record.type(), record.content());
+        boolean mdnsUtf8 = false;
+        for (NameCodecFeature f : nameFeatures) {
+            mdnsUtf8 |= f == MDNS_UTF_8;
+        }
+        ByteBuf plain = Unpooled.buffer();
+        NameCodec names = mdnsUtf8 ? NameCodec.get(MDNS_UTF_8) : NameCodec.nonCompressingNameCodec();
+        try {
+            codec.write(record.content(), names, plain);
+        } finally {
+            names.close();
+        }
+        boolean compressible = hasCompressibleNames(codec, record.content(), mdnsUtf8, plain.readableBytes());
+        ByteBuf rdata = Unpooled.unreleasableBuffer(Unpooled.wrappedBuffer(
+                plain.array(), plain.arrayOffset() + plain.readerIndex(), plain.readableBytes()).asReadOnly());
+        RdataTemplate template = compressible ? codec.template(record.content()) : null;
+        return new PreEncodedTypedDnsRecord<>(record, rdata, compressible, mdnsUtf8, template);
+    }
+
+    /**
+     * Find out whether the codec writes any names it would let a compressing NameCodec compress, without knowing
+     * anything about the codec: write the payload twice with one compressing NameCodec - if the second copy comes
+     * out shorter, its names were replaced by pointers into the first.
+     */
+    private static <T> boolean hasCompressibleNames(DnsRecordCodec<T> codec, T content, boolean mdnsUtf8,
+            int plainLength) throws IOException {
+        ByteBuf scratch = Unpooled.buffer(plainLength * 2);
+        NameCodec names = mdnsUtf8 ? NameCodec.get(MDNS_UTF_8, COMPRESSION) : NameCodec.compressingNameCodec();
+        try {
+            codec.write(content, names, scratch);
+            int first = scratch.writerIndex();
+            codec.write(content, names, scratch);
+            return scratch.writerIndex() - first < first;
+        } finally {
+            names.close();
+        }
+    }
+
+    /**
+     * Determine if the pre-encoded bytes are exactly what the codec would write with the passed NameCodec.
+     *
+     * @param names The NameCodec the message is being written with
+     * @return true if the bytes can be copied as-is
+     */
+    public boolean canCopyRdata(NameCodec names) {
+        // Codecs may pick how to write names based on the unicode mode even when they never compress them (NSEC does)
+        if (MDNS_UTF_8.isImplementedBy(names) != mdnsUtf8) {
+            return false;
+        }
+        return !hasCompressibleNames || !COMPRESSION.isImplementedBy(names);
+    }
+
+    /**
+     * Get the pre-encoded record data, without the length prefix.
+     *
+     * @return A read-only buffer which does not need to be released
+     */
+    public ByteBuf encodedRdata() {
+        return rdata.duplicate();
+    }
+
+    /**
+     * Whether the record data contains names which a compressing NameCodec would compress.
+     */
+    public boolean hasCompressibleNames() {
+        return hasCompressibleNames;
+    }
+
+    void writeRdata(ByteBuf into) {
+        into.writeBytes(rdata, rdata.readerIndex(), rdata.readableBytes());
+    }
+
+    /**
+     * The template for writing this record's data into compressed messages, if the codec provides one.
+     *
+     * @return A template or null
+     */
+    public RdataTemplate template() {
+        return template;
+    }
+
+    int rdataLength() {
+        return rdata.readableBytes();
+    }
+
+    @Override
+    public T content() {
+        return content;
+    }
+
+    @Override
+    public OptRecordHeaderFields optRecordHeaderFields(DnsResponseCode code) {
+        return DefaultTypedDnsRecord.readOnlyOptRecordHeaderFields(this, code);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return super.equals(o) && DefaultTypedDnsRecord.contentEquals(content, o);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode() + 3 * DefaultTypedDnsRecord.contentHashCode(content);
+    }
+
+    @Override
+    public String toString() {
+        return name() + "\t" + dnsClass().name() + '\t' + timeToLive() + '\t' + type().name() + '\t'
+                + DefaultTypedDnsRecord.toString(content);
+    }
+}
@@ -0,0 +1,144 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.dns.names.NameCodec;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * The record data of a record as a series of pre-serialized fixed-size fields interleaved with names, so that the
+ * fixed parts can be copied as bytes while names are still handed to the message's NameCodec and can take part in
+ * name compression. Returned by {@link DnsRecordCodec#template(Object)} and used by TypedDnsRecordEncoder for
+ * {@link PreEncodedTypedDnsRecord}s written into compressed messages.
+ */
+public final class RdataTemplate {
+
+    private final byte[] fixed;
+    // fixedEnds[i] is where the fixed bytes preceding names[i] end; the trailing segment runs to fixed.length
+    private final int[] fixedEnds;
+    private final CharSequence[] names;
+
+    private RdataTemplate(byte[] fixed, int[] fixedEnds, CharSequence[] names) {
+        this.fixed = fixed;
+        this.fixedEnds = fixedEnds;
+        this.names = names;
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Write the record data, passing each name to the NameCodec.
+     *
+     * @param nameCodec Writes names, possibly compressing them
+     * @param into The buffer
+     * @throws IOException If a name cannot be written
+     */
+    public void write(NameCodec nameCodec, ByteBuf into) throws IOException {
+        int start = 0;
+        for (int i = 0; i < names.length; i++) {
+            into.writeBytes(fixed, start, fixedEnds[i] - start);
+            nameCodec.writeName(names[i], into);
+            start = fixedEnds[i];
+        }
+        into.writeBytes(fixed, start, fixed.length - start);
+    }
+
+    /**
+     * The number of names in this template.
+     */
+    public int nameCount() {
+        return names.length;
+    }
+
+    /**
+     * The number of bytes of fixed-size fields.
+     */
+    public int fixedLength() {
+        return fixed.length;
+    }
+
+    /**
+     * Builds a template field by field, in wire order.
+     */
+    public static final class Builder {
+
+        private byte[] bytes = new byte[16];
+        private int length;
+        private final List<CharSequence> names = new ArrayList<>(2);
+        private final List<Integer> nameOffsets = new ArrayList<>(2);
+
+        private Builder() {
+        }
+
+        private void ensure(int count) {
+            if (length + count > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + count));
+            }
+        }
+
+        public Builder writeByte(int value) {
+            ensure(1);
+            bytes[length++] = (byte) value;
+            return this;
+        }
+
+        public Builder writeShort(int value) {
+            ensure(2);
+            bytes[length++] = (byte) (value >>> 8);
+            bytes[length++] = (byte) value;
+            return this;
+        }
+
+        public Builder writeInt(long value) {
+            ensure(4);
+            bytes[length++] = (byte) (value >>> 24);
+            bytes[length++] = (byte) (value >>> 16);
+            bytes[length++] = (byte) (value >>> 8);
+            bytes[length++] = (byte) value;
+            return this;
+        }
+
+        public Builder writeBytes(byte[] value) {
+            ensure(value.length);
+            System.arraycopy(value, 0, bytes, length, value.length);
+            length += value.length;
+            return this;
+        }
+
+        public Builder writeName(CharSequence name) {
+            names.add(checkNotNull(name, "name"));
+            nameOffsets.add(length);
+            return this;
+        }
+
+        public RdataTemplate build() {
+            int[] ends = new int[nameOffsets.size()];
+            for (int i = 0; i < ends.length; i++) {
+                ends[i] = nameOffsets.get(i);
+            }
+            return new RdataTemplate(Arrays.copyOf(bytes, length), ends,
+                    names.toArray(new CharSequence[names.size()]));
+        }
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol;
+
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.dns.DnsRecord;
+
+/**
+ * Thrown by TypedDnsRecordEncoder.encodeMessage when a record will not fit in the remaining space of a packet whose
+ * maximum size was specified, and the message cannot be truncated instead - because the record is a question or the
+ * OPT record, or the message is a query. Nothing is left written to the target buffer.
+ */
+public class TruncatedRecordException extends TooLongFrameException {
+
+    private static final long serialVersionUID = 1;
+    private final transient DnsRecord record;
+    private final int remaining;
+
+    public TruncatedRecordException(DnsRecord record, int remaining) {
+        super("No room for " + record.name() + " " + record.type() + " in the " + remaining
+                + " bytes left in the packet");
+        this.record = record;
+        this.remaining = remaining;
+    }
+
+    /**
+     * The record which did not fit.
+     *
+     * @return The record
+     */
+    public DnsRecord record() {
+        return record;
+    }
+
+    /**
+     * The number of bytes which were left in the packet when the record was encountered.
+     *
+     * @return A byte count
+     */
+    public int remaining() {
+        return remaining;
+    }
+}
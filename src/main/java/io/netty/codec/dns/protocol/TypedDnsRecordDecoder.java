@@ -16,6 +16,7 @@
 package io.netty.codec.dns.protocol;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.CorruptedFrameException;
 import io.netty.handler.codec.dns.DefaultDnsRecordDecoder;
 import io.netty.handler.codec.dns.DnsRecord;
 import io.netty.handler.codec.dns.DnsRecordType;
@@ -25,6 +26,7 @@ import java.nio.charset.UnmappableCharacterException;
 
 import static io.netty.handler.codec.dns.DnsRecordDecoder.UnderflowPolicy.THROW_ON_UNDERFLOW;
 import static io.netty.handler.codec.dns.DnsRecordType.OPT;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
 
 /**
  * Decodes DNS records, using a DnsRecordCodecRegistry to look up parsers for the record types, and returning
@@ -38,6 +40,7 @@ import static io.netty.handler.codec.dns.DnsRecordType.OPT;
 public final class TypedDnsRecordDecoder extends DefaultDnsRecordDecoder {
 
     private final CodecRegistry<DnsRecordType> registry;
+    private final boolean lazy;
 
     public TypedDnsRecordDecoder() {
         this(DnsRecordCodecRegistry.DEFAULT, false);
@@ -58,18 +61,37 @@ public final class TypedDnsRecordDecoder extends DefaultDnsRecordDecoder {
     }
 
     public TypedDnsRecordDecoder(CodecRegistry<DnsRecordType> registry, boolean mdns) {
+        this(registry, mdns, false);
+    }
+
+    /**
+     * Create a new TypedDnsRecordDecoder, optionally in lazy mode. In lazy mode, records whose payload would be decoded
+     * by a codec are returned with the payload still undecoded; it is decoded on the first call to
+     * {@link TypedDnsRecord#content()}. Such records retain the message buffer until released, so content() must be
+     * called before the message they belong to is released. OPT records and records handled by the fallback codec
+     * or a {@link RecordFactoryCodec} are always decoded eagerly.
+     *
+     * @param registry A registry
+     * @param mdns Whether to interpret the top bit of the DNS class as the mDNS unicast-response / cache-flush bit
+     * @param lazy Whether to defer decoding record payloads until they are requested
+     */
+    public TypedDnsRecordDecoder(CodecRegistry<DnsRecordType> registry, boolean mdns, boolean lazy) {
         super(THROW_ON_UNDERFLOW, mdns);
-        this.registry = registry;
+        this.registry = checkNotNull(registry, "registry");
+        this.lazy = lazy;
     }
 
     @Override
     protected DnsRecord decodeRecord(CharSequence name, DnsRecordType type, int dnsClass, long timeToLive, ByteBuf in,
             int length, NameCodec names) throws Exception {
-        DnsRecordCodec<?> codec = registry.get(type);
+        DnsRecordCodec<?> codec = registry.get(type.intValue());
         if (codec instanceof RecordFactoryCodec<?>) {
             RecordFactoryCodec<?> fac = (RecordFactoryCodec<?>) codec;
             return createRecordWithFactoryCodec(fac, name, type, dnsClass, timeToLive, in, length, names);
         }
+        if (lazy && codec.type() != ByteBuf.class && !OPT.equals(type)) {
+            return createLazyRecord(codec, name, type, dnsClass, timeToLive, in, length, names);
+        }
         if (codec.type() != ByteBuf.class) {
             return createRecord(codec, name, type, dnsClass, timeToLive, in, length, names);
         }
@@ -87,6 +109,24 @@ public final class TypedDnsRecordDecoder extends DefaultDnsRecordDecoder {
         return codec.decodeRecord(name, type, dnsClass, timeToLive, in, length, names, mdns);
     }
 
+    private <T> TypedDnsRecord<T> createLazyRecord(DnsRecordCodec<T> codec, CharSequence name, DnsRecordType type,
+            int dnsClass, long timeToLive, ByteBuf in, int length, NameCodec names) {
+        boolean isUnicastResponse = false;
+        if (mdns) {
+            isUnicastResponse = (dnsClass & MDNS_UNICAST_RESPONSE_BIT) != 0;
+            dnsClass &= MDNS_DNS_CLASS_MASK;
+        }
+        int offset = in.readerIndex();
+        if (in.readableBytes() < length) {
+            throw new CorruptedFrameException("Record length " + length + " greater than remaining bytes "
+                    + in.readableBytes());
+        }
+        LazyTypedDnsRecord<T> result = new LazyTypedDnsRecord<>(codec, in.retainedDuplicate(), offset, length,
+                names, name, type, dnsClass, timeToLive, isUnicastResponse);
+        in.skipBytes(length);
+        return result;
+    }
+
     protected <T> TypedDnsRecord<T> createRecord(DnsRecordCodec<T> codec, CharSequence name, DnsRecordType type,
             int dnsClass, long timeToLive, ByteBuf in, int length, NameCodec names) throws UnmappableCharacterException,
             IOException {
@@ -17,14 +17,23 @@ package io.netty.codec.dns.protocol;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufHolder;
+import io.netty.codec.dns.protocol.types.OptRecords;
+import io.netty.codec.dns.protocol.types.Padding;
+import io.netty.handler.codec.EncoderException;
 import io.netty.handler.codec.dns.DefaultDnsRecordEncoder;
+import io.netty.handler.codec.dns.DnsMessage;
 import io.netty.handler.codec.dns.DnsRawRecord;
 import io.netty.handler.codec.dns.DnsRecord;
 import io.netty.handler.codec.dns.DnsRecordType;
+import io.netty.handler.codec.dns.DnsResponse;
+import io.netty.handler.codec.dns.DnsSection;
 import io.netty.handler.codec.dns.names.NameCodec;
+import io.netty.handler.codec.dns.names.NameCodecFeature;
 import java.io.IOException;
 
+import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.PADDING;
 import static io.netty.handler.codec.dns.DnsRecordType.OPT;
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
 
 /**
  * Create an encoder which can accept TypedDnsRecord instances and use a DnsRecordCodecRegistry to find codecs to
@@ -32,10 +41,23 @@ import static io.netty.handler.codec.dns.DnsRecordType.OPT;
  * a cache that does not <i>interpret</i> DNS records, you will save memory storing records as byte arrays rather than
  * Java objects. If you do need this, the DnsCodecRegistry should only contain codecs for records you know you will
  * actually need to use parsed at runtime.
+ * <p>
+ * Records can be written one at a time through {@link #encodeRecord}, as DnsMessageEncoder does, which writes each
+ * record it is passed in full; or a whole message can be written with {@link #encodeMessage}, which can truncate the
+ * message to a maximum packet size and pad it to a block length. Both of those are measured from the start of the
+ * message, which is the writer index of the buffer when encodeMessage is called.
  */
 public class TypedDnsRecordEncoder extends DefaultDnsRecordEncoder {
 
+    private static final int MESSAGE_HEADER_LENGTH = 12;
+    private static final int RECORD_HEADER_LENGTH = 10;
+    // a name is at least one byte (the root) or two (a compression pointer)
+    private static final int MIN_HEADER_LENGTH = 1 + RECORD_HEADER_LENGTH;
+    private static final int OPTION_HEADER_LENGTH = 4;
+    private static final DnsSection[] SECTIONS = DnsSection.values();
+
     private final CodecRegistry<DnsRecordType> registry;
+    private final int paddingBlockLength;
 
     public TypedDnsRecordEncoder() {
         this(false);
@@ -55,49 +77,359 @@ public class TypedDnsRecordEncoder extends DefaultDnsRecordEncoder {
      * @param registry A registry
      */
     public TypedDnsRecordEncoder(CodecRegistry<DnsRecordType> registry, boolean mdns) {
+        this(registry, mdns, 0);
+    }
+
+    /**
+     * Create a new TypedDnsRecordEncoder which appends a PADDING option (RFC 7830) to each OPT record it writes,
+     * sized so the message ends on a multiple of the block length - the block-length strategy of RFC 8467, for use
+     * over encrypted transports. Messages are only padded by {@link #encodeMessage}, which writes the OPT record
+     * last so the pad can be computed from the bytes already written; a padding encoder refuses to write OPT records
+     * through {@link #encodeRecord}, whose caller may add records after it. OPT records which already contain a
+     * PADDING option are written as they are, and the pad is cut short rather than exceed the maximum packet size.
+     *
+     * @param registry A registry
+     * @param mdns Whether to use mDNS class encoding
+     * @param paddingBlockLength The block length to pad to, such as {@link Padding#RESPONSE_BLOCK_LENGTH}, or 0 not
+     * to pad
+     */
+    public TypedDnsRecordEncoder(CodecRegistry<DnsRecordType> registry, boolean mdns, int paddingBlockLength) {
         super(mdns);
         this.registry = registry;
+        this.paddingBlockLength = checkPositiveOrZero(paddingBlockLength, "paddingBlockLength");
+    }
+
+    /**
+     * Encode a whole message - header, questions and records - into the passed buffer, which is sized once, from
+     * {@link #maxEncodedSize(DnsMessage)}, before anything is written, rather than growing as each record is
+     * appended; the per-record capacity checks in {@link #encodeRecord} then find the room already there.
+     * <p>
+     * If maxPacketSize is non-zero and the message does not fit, it is truncated as RFC 2181 and RFC 6891 describe:
+     * records are written in order until one does not fit, the TC bit is set, the section counts in the header are
+     * those of the records actually written, and the OPT record is still sent - OPT records are always written last,
+     * and if one does not fit, further records are dropped to make room for it. A compressing NameCodec may hold
+     * pointers into the bytes of the record which did not fit, so when compression is used the records which fit are
+     * written again with a fresh codec. Only responses are truncated - a query has no TC bit to tell the server that
+     * records are missing, so a query which does not fit is rejected, as is any message whose questions do not fit.
+     * <p>
+     * The message starts at the writer index of the buffer, whatever precedes it there, and both maxPacketSize and
+     * the block length of any padding are measured from that point.
+     *
+     * @param message The message
+     * @param into The buffer to write to, starting at its writer index
+     * @param maxPacketSize The maximum size of the message, or 0 for no limit
+     * @param features The features of the NameCodec to write names with
+     * @return true if the message was truncated
+     * @throws TruncatedRecordException if not even the header, questions and OPT record fit, or if the message is a
+     * query which does not fit
+     * @throws Exception if a record cannot be encoded
+     */
+    public boolean encodeMessage(DnsMessage message, ByteBuf into, int maxPacketSize, NameCodecFeature... features)
+            throws Exception {
+        int maxSize = maxEncodedSize(message);
+        if (maxSize >= 0) {
+            into.ensureWritable(maxPacketSize > 0 ? Math.min(maxSize, maxPacketSize) : maxSize);
+        }
+        boolean compressing = false;
+        for (NameCodecFeature feature : features) {
+            compressing |= feature == NameCodecFeature.COMPRESSION;
+        }
+        int start = into.writerIndex();
+        int[] counts = new int[SECTIONS.length];
+        int limit = Integer.MAX_VALUE;
+        for (;;) {
+            into.writerIndex(start);
+            into.writeZero(MESSAGE_HEADER_LENGTH);
+            NameCodec names = NameCodec.get(features);
+            try {
+                boolean truncated = writeRecords(message, names, into, start, maxPacketSize, limit, counts);
+                int written = counts[0] + counts[1] + counts[2] + counts[3];
+                if (truncated && compressing && written < limit) {
+                    // Rewind the name codec by starting again with a fresh one
+                    limit = written;
+                    continue;
+                }
+                try {
+                    writeOptRecords(message, names, into, start, maxPacketSize, counts);
+                } catch (TruncatedRecordException e) {
+                    if (written == counts[0] || !(message instanceof DnsResponse)) {
+                        throw e;
+                    }
+                    limit = written - 1;
+                    continue;
+                }
+                into.setShort(start, message.id());
+                into.setShort(start + 2, flags(message, truncated));
+                for (int i = 0; i < counts.length; i++) {
+                    into.setShort(start + 4 + i * 2, counts[i]);
+                }
+                return truncated;
+            } catch (Exception e) {
+                into.writerIndex(start);
+                throw e;
+            } finally {
+                names.close();
+            }
+        }
     }
 
+    /**
+     * Write the questions and records of a message other than OPT records, stopping at the first record of a
+     * response which does not fit or once <code>limit</code> have been written, and count those written per section.
+     * Questions which do not fit, and records of queries, are not left out - the TruncatedRecordException is thrown.
+     *
+     * @return true if any were left out
+     */
+    private boolean writeRecords(DnsMessage message, NameCodec names, ByteBuf into, int messageStart,
+            int maxPacketSize, int limit, int[] counts) throws Exception {
+        boolean truncatable = message instanceof DnsResponse;
+        int written = 0;
+        for (int s = 0; s < SECTIONS.length; s++) {
+            DnsSection section = SECTIONS[s];
+            int count = message.count(section);
+            counts[s] = 0;
+            for (int i = 0; i < count; i++) {
+                DnsRecord record = message.recordAt(section, i);
+                if (section == DnsSection.ADDITIONAL && OPT.equals(record.type())) {
+                    continue;
+                }
+                if (written == limit) {
+                    return true;
+                }
+                if (section == DnsSection.QUESTION) {
+                    writeQuestion(names, record, into, messageStart, maxPacketSize);
+                } else {
+                    try {
+                        encodeRecord(names, record, into, messageStart, maxPacketSize, true);
+                    } catch (TruncatedRecordException e) {
+                        if (!truncatable) {
+                            throw e;
+                        }
+                        return true;
+                    }
+                }
+                counts[s]++;
+                written++;
+            }
+        }
+        return false;
+    }
+
+    private void writeOptRecords(DnsMessage message, NameCodec names, ByteBuf into, int messageStart,
+            int maxPacketSize, int[] counts) throws Exception {
+        int count = message.count(DnsSection.ADDITIONAL);
+        for (int i = 0; i < count; i++) {
+            DnsRecord record = message.recordAt(DnsSection.ADDITIONAL, i);
+            if (OPT.equals(record.type())) {
+                encodeRecord(names, record, into, messageStart, maxPacketSize, true);
+                counts[DnsSection.ADDITIONAL.ordinal()]++;
+            }
+        }
+    }
+
+    /**
+     * Pack the flags word of the message header; the TC bit is set for truncated responses, and queries are never
+     * truncated.
+     */
+    private static int flags(DnsMessage message, boolean truncated) {
+        int flags = (message.opCode().byteValue() & 0xF) << 11 | (message.z() & 7) << 4;
+        if (message.isRecursionDesired()) {
+            flags |= 1 << 8;
+        }
+        if (message instanceof DnsResponse) {
+            DnsResponse response = (DnsResponse) message;
+            flags |= 1 << 15 | response.code().intValue() & 0xF;
+            if (response.isAuthoritativeAnswer()) {
+                flags |= 1 << 10;
+            }
+            if (truncated || response.isTruncated()) {
+                flags |= 1 << 9;
+            }
+            if (response.isRecursionAvailable()) {
+                flags |= 1 << 7;
+            }
+        }
+        return flags;
+    }
+
+    private void writeQuestion(NameCodec names, DnsRecord question, ByteBuf into, int messageStart,
+            int maxPacketSize) throws IOException {
+        int start = into.writerIndex();
+        names.writeName(question.name(), into);
+        into.writeShort(question.type().intValue());
+        encodeDnsClass(question, into);
+        if (maxPacketSize > 0) {
+            checkRemaining(question, into, start, maxPacketSize - (start - messageStart), 0);
+        }
+    }
+
+    /**
+     * Encode a record, in full - the message encoder calling this method decides which records fit in the packet.
+     * An encoder which pads messages cannot write OPT records this way, since the caller may add records after them;
+     * use {@link #encodeMessage} instead.
+     *
+     * @throws IllegalStateException if the record is an OPT record and this encoder pads messages
+     */
     @Override
     public void encodeRecord(NameCodec names, DnsRecord record, ByteBuf into, int maxPacketSize) throws Exception {
-        if (record instanceof TypedDnsRecord<?>) {
+        if (paddingBlockLength > 0 && OPT.equals(record.type())) {
+            throw new IllegalStateException("An encoder which pads to " + paddingBlockLength
+                    + " byte blocks can only write OPT records through encodeMessage()");
+        }
+        encodeRecord(names, record, into, into.writerIndex(), maxPacketSize, false);
+    }
+
+    /**
+     * Encode a record into a message which starts at <code>messageStart</code>. If <code>limited</code> is true and
+     * maxPacketSize is greater than zero, the record must fit within maxPacketSize bytes of the start of the message;
+     * if it cannot, the writer index is restored and a TruncatedRecordException is thrown. Records whose size is
+     * known in advance are rejected before any bytes are written. Only the writer index is rolled back, not the state
+     * of the NameCodec, so after the exception a compressing codec may hold pointers into the discarded bytes.
+     */
+    void encodeRecord(NameCodec names, DnsRecord record, ByteBuf into, int messageStart, int maxPacketSize,
+            boolean limited) throws Exception {
+        int start = into.writerIndex();
+        int remaining = limited && maxPacketSize > 0 ? maxPacketSize - (start - messageStart) : Integer.MAX_VALUE;
+        if (record instanceof PreEncodedTypedDnsRecord<?>
+                && ((PreEncodedTypedDnsRecord<?>) record).canCopyRdata(names)) {
+            PreEncodedTypedDnsRecord<?> rec = (PreEncodedTypedDnsRecord<?>) record;
+            checkRemaining(record, into, start, remaining, MIN_HEADER_LENGTH + rec.rdataLength());
+            into.ensureWritable(maxHeaderLength(record) + rec.rdataLength());
+            writeHeader(names, record, into);
+            checkRemaining(record, into, start, remaining, 2 + rec.rdataLength());
+            into.writeShort(rec.rdataLength());
+            rec.writeRdata(into);
+        } else if (record instanceof TypedDnsRecord<?>) {
             TypedDnsRecord<?> rec = (TypedDnsRecord<?>) record;
             if (OPT.equals(record.type())) {
-                writeOptRecord(rec, names, into, maxPacketSize);
+                if (paddingBlockLength > 0) {
+                    writePaddedOptRecord(rec, names, into, messageStart, maxPacketSize);
+                } else {
+                    writeOptRecord(rec, names, into, maxPacketSize);
+                }
             } else {
-                names.writeName(record.name(), into);
-
-                into.writeShort(record.type().intValue());
-                encodeDnsClass(record, into);
-                into.writeInt((int) record.timeToLive());
-
-                // Write a temporary length field of 0 - go back
-                // and fill it in once we know the byte buf length
-                int lengthFieldPosition = into.writerIndex();
-                into.writeShort(0);
-
-                writePayload(rec, names, into);
-
-                // Now rewrite the length field with the number of
-                // bytes appended to the byte buf
-                int loc = into.writerIndex();
-                into.writerIndex(lengthFieldPosition);
-                into.writeShort(loc - (lengthFieldPosition + 2));
-                // And reset the location
-                into.writerIndex(loc);
+                writeTypedRecord(rec, names, into, start, remaining);
             }
         } else {
+            if (record instanceof ByteBufHolder) {
+                checkRemaining(record, into, start, remaining,
+                        MIN_HEADER_LENGTH + ((ByteBufHolder) record).content().readableBytes());
+            }
             if (record instanceof DnsRawRecord) {
                 ((ByteBufHolder) record).content().touch();
             }
             super.encodeRecord(names, record, into, maxPacketSize);
         }
+        checkRemaining(record, into, start, remaining, 0);
+    }
+
+    /**
+     * Throw a TruncatedRecordException, discarding anything written for the current record, if writing
+     * <code>needed</code> more bytes would exceed the space remaining for it.
+     */
+    private static void checkRemaining(DnsRecord record, ByteBuf into, int start, int remaining, int needed) {
+        if (into.writerIndex() - start + needed > remaining) {
+            into.writerIndex(start);
+            throw new TruncatedRecordException(record, remaining);
+        }
+    }
+
+    private <T> void writeTypedRecord(TypedDnsRecord<T> record, NameCodec names, ByteBuf into, int start,
+            int remaining) throws IOException {
+        RdataTemplate template = record instanceof PreEncodedTypedDnsRecord<?>
+                ? ((PreEncodedTypedDnsRecord<?>) record).template() : null;
+        if (template != null) {
+            checkRemaining(record, into, start, remaining, MIN_HEADER_LENGTH + template.fixedLength());
+            writeHeader(names, record, into);
+            int lengthFieldPosition = into.writerIndex();
+            into.writeShort(0);
+            template.write(names, into);
+            patchLength(into, lengthFieldPosition);
+            return;
+        }
+        DnsRecordCodec<T> codec = registry.get(record.type(), record.content());
+        int size = codec.encodedSize(record.content());
+        checkRemaining(record, into, start, remaining, MIN_HEADER_LENGTH + Math.max(0, size));
+        int maxSize = size >= 0 ? size : codec.maxEncodedSize(record.content());
+        if (maxSize >= 0) {
+            into.ensureWritable(maxHeaderLength(record) + maxSize);
+        }
+        writeHeader(names, record, into);
+        if (size >= 0) {
+            checkRemaining(record, into, start, remaining, 2 + size);
+        }
+        writeRdata(codec, record.content(), size, names, into);
+    }
+
+    private void writeHeader(NameCodec names, DnsRecord record, ByteBuf into) throws IOException {
+        names.writeName(record.name(), into);
+        into.writeShort(record.type().intValue());
+        encodeDnsClass(record, into);
+        into.writeInt((int) record.timeToLive());
+    }
+
+    /**
+     * Write the record data length and record data - the length is written up front if the codec can compute it,
+     * and otherwise patched in afterwards.
+     */
+    private static <T> void writeRdata(DnsRecordCodec<T> codec, T content, int size, NameCodec names,
+            ByteBuf into) throws IOException {
+        if (size >= 0) {
+            into.writeShort(size);
+            int start = into.writerIndex();
+            codec.write(content, names, into);
+            if (into.writerIndex() - start != size) {
+                throw new EncoderException(codec + " computed an encoded size of " + size + " for " + content
+                        + " but wrote " + (into.writerIndex() - start) + " bytes");
+            }
+        } else {
+            // Write a temporary length field of 0 - go back
+            // and fill it in once we know the byte buf length
+            int lengthFieldPosition = into.writerIndex();
+            into.writeShort(0);
+            codec.write(content, names, into);
+            patchLength(into, lengthFieldPosition);
+        }
+    }
+
+    private static void patchLength(ByteBuf into, int lengthFieldPosition) {
+        // Now rewrite the length field with the number of
+        // bytes appended to the byte buf
+        into.setShort(lengthFieldPosition, into.writerIndex() - (lengthFieldPosition + 2));
+    }
+
+    private static int maxHeaderLength(DnsRecord record) {
+        // type, class, ttl and rdata length follow the name
+        return DnsRecordCodec.maxNameLength(record.name()) + RECORD_HEADER_LENGTH;
     }
 
     protected <T> void writeOptRecord(TypedDnsRecord<T> record, NameCodec names, ByteBuf into, int maxPacketSize) throws
             IOException {
+        writeOptRecordData(record, names, into);
+    }
+
+    /**
+     * Write an OPT record, the last record of a message which starts at <code>messageStart</code> in the buffer, with
+     * a PADDING option which brings the message to a multiple of the block length.
+     */
+    private <T> void writePaddedOptRecord(TypedDnsRecord<T> record, NameCodec names, ByteBuf into, int messageStart,
+            int maxPacketSize) throws IOException {
+        int lengthFieldPosition = writeOptRecordData(record, names, into);
+        if (!hasPadding(record.content())) {
+            writePadding(into, messageStart, lengthFieldPosition, maxPacketSize);
+        }
+    }
+
+    /**
+     * Write an OPT record and return the position of its RDATA length field.
+     */
+    private <T> int writeOptRecordData(TypedDnsRecord<T> record, NameCodec names, ByteBuf into) throws IOException {
         DnsRecordCodec<T> codec = registry.get(record.type(), record.content());
+        int size = codec.encodedSize(record.content());
+        int maxSize = size >= 0 ? size : codec.maxEncodedSize(record.content());
+        if (maxSize >= 0) {
+            into.ensureWritable(MIN_HEADER_LENGTH + maxSize);
+        }
         names.writeName(".", into);
         into.writeShort(record.type().intValue());
         // Temporarily writePseudoRecord in values from the record - they
@@ -109,22 +441,78 @@ public class TypedDnsRecordEncoder extends DefaultDnsRecordEncoder {
         into.writeShort(dnsClassValue);
         into.writeInt((int) timeToLiveValue);
 
-        // Write a temporary length field of 0 - go back
-        // and fill it in once we know the byte buf length
         int lengthFieldPosition = into.writerIndex();
-        into.writeShort(0);
+        writeRdata(codec, record.content(), size, names, into);
+        return lengthFieldPosition;
+    }
 
-        codec.write(record.content(), names, into);
+    private static boolean hasPadding(Object content) {
+        return content instanceof OptRecords && ((OptRecords) content).contains(PADDING);
+    }
 
-        int loc = into.writerIndex();
-        into.writerIndex(lengthFieldPosition);
-        into.writeShort(loc - (lengthFieldPosition + 2));
-        // Put the cursor back at the end of the buffer
-        into.writerIndex(loc);
+    /**
+     * Append a PADDING option to the OPT record just written, with a single writeZero, and add its length to the
+     * record's RDATA length.
+     */
+    private void writePadding(ByteBuf into, int messageStart, int lengthFieldPosition, int maxPacketSize) {
+        int messageLength = into.writerIndex() - messageStart + OPTION_HEADER_LENGTH;
+        int pad = Padding.padLength(messageLength, paddingBlockLength);
+        if (maxPacketSize > 0 && messageLength + pad > maxPacketSize) {
+            if (messageLength > maxPacketSize) {
+                return;
+            }
+            pad = maxPacketSize - messageLength;
+        }
+        into.writeShort(PADDING.intValue());
+        into.writeShort(pad);
+        into.writeZero(pad);
+        into.setShort(lengthFieldPosition, into.getUnsignedShort(lengthFieldPosition) + OPTION_HEADER_LENGTH + pad);
     }
 
-    private <T> void writePayload(TypedDnsRecord<T> record, NameCodec names, ByteBuf into) throws IOException {
-        DnsRecordCodec<T> codec = registry.get(record.type(), record.content());
-        codec.write(record.content(), names, into);
+    /**
+     * Compute an upper bound on the encoded size of a message, assuming no name compression, so the target buffer can
+     * be sized once before encoding instead of growing as records are written.
+     *
+     * @param message A message
+     * @return An upper bound on its encoded size in bytes, or -1 if some record's size cannot be bounded
+     */
+    public int maxEncodedSize(DnsMessage message) {
+        int result = MESSAGE_HEADER_LENGTH;
+        for (DnsSection section : SECTIONS) {
+            int count = message.count(section);
+            for (int i = 0; i < count; i++) {
+                DnsRecord record = message.recordAt(section, i);
+                if (section == DnsSection.QUESTION) {
+                    // name, type and class
+                    result += DnsRecordCodec.maxNameLength(record.name()) + 4;
+                    continue;
+                }
+                int size = maxRdataSize(record);
+                if (size < 0) {
+                    return -1;
+                }
+                if (paddingBlockLength > 0 && OPT.equals(record.type())) {
+                    size += OPTION_HEADER_LENGTH + paddingBlockLength - 1;
+                }
+                result += maxHeaderLength(record) + size;
+            }
+        }
+        return result;
+    }
+
+    private int maxRdataSize(DnsRecord record) {
+        if (record instanceof PreEncodedTypedDnsRecord<?>) {
+            PreEncodedTypedDnsRecord<?> rec = (PreEncodedTypedDnsRecord<?>) record;
+            return rec.template() == null ? rec.rdataLength() : maxTypedRdataSize(rec);
+        } else if (record instanceof TypedDnsRecord<?>) {
+            return maxTypedRdataSize((TypedDnsRecord<?>) record);
+        } else if (record instanceof ByteBufHolder) {
+            return ((ByteBufHolder) record).content().readableBytes();
+        }
+        return -1;
+    }
+
+    private <T> int maxTypedRdataSize(TypedDnsRecord<T> record) {
+        return registry.get(record.type(), record.content()).maxEncodedSize(record.content());
     }
 }
@@ -0,0 +1,524 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.cache;
+
+import io.netty.codec.dns.protocol.types.ClientSubnet;
+import io.netty.codec.dns.protocol.types.DnsName;
+import io.netty.codec.dns.protocol.types.MutableClientSubnet;
+import io.netty.handler.codec.dns.DnsRecordType;
+import io.netty.util.concurrent.FastThreadLocal;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * A cache of answers which depend on the client's subnet, for forwarders in front of authoritative servers which
+ * return EDNS Client Subnet scopes, as described in RFC 7871 section 7.3.
+ * <p>
+ * Answers are grouped by name, type and class, and then held in a binary trie per address family, at the depth of the
+ * scope prefix length the server returned. A lookup walks the trie along the bits of the client's address, as far as
+ * the source prefix length it sent, and returns the deepest unexpired answer it passes - so it takes time
+ * proportional to the prefix length, however many subnets are cached. Answers with a scope of 0 are valid for every
+ * client, so they are held outside the tries and found by lookups from either address family. Changes take a lock
+ * per name, type and class, so different names do not contend; lookups take no lock, and do not allocate when
+ * passed a {@link MutableClientSubnet}.
+ *
+ * @param <T> The type of cached answers, such as a list of records
+ */
+public final class ClientSubnetCache<T> {
+
+    public static final int DEFAULT_MAX_ENTRIES = 100000;
+    private static final int IPV4_BITS = 32;
+    private static final int IPV6_BITS = 128;
+
+    // A reusable probe for looking up tries without allocating a Key
+    private static final FastThreadLocal<Lookup> LOOKUP = new FastThreadLocal<Lookup>() {
+        @Override
+        protected Lookup initialValue() {
+            return new Lookup();
+        }
+    };
+
+    private final ConcurrentHashMap<Key, Tries<T>> tries = new ConcurrentHashMap<>();
+    private final AtomicInteger size = new AtomicInteger();
+    private final PurgeSchedule purges = new PurgeSchedule();
+    private final int maxEntries;
+
+    public ClientSubnetCache() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Create a cache.
+     *
+     * @param maxEntries The maximum number of answers to hold; when full, expired answers are purged - at most once a
+     * second - and if none are, new answers are not added
+     */
+    public ClientSubnetCache(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1 but is " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Cache an answer for the subnet in the ECS option of a response. Per RFC 7871, a scope prefix length longer than
+     * the source prefix length is treated as the source prefix length, and a scope of 0 makes the answer valid for
+     * every client.
+     *
+     * @param name The query name
+     * @param type The query type
+     * @param dnsClass The query class
+     * @param subnet The client subnet option from the response
+     * @param answer The answer
+     * @param ttlSeconds How long the answer may be used for
+     * @return true if it was added, replacing any answer for the same subnet
+     */
+    public boolean put(CharSequence name, DnsRecordType type, int dnsClass, ClientSubnet<?> subnet, T answer,
+            long ttlSeconds) {
+        return put(name, type, dnsClass, subnet, answer, ttlSeconds, System.nanoTime());
+    }
+
+    boolean put(CharSequence name, DnsRecordType type, int dnsClass, ClientSubnet<?> subnet, T answer,
+            long ttlSeconds, long now) {
+        checkNotNull(subnet, "subnet");
+        checkNotNull(answer, "answer");
+        Key key = new Key(name, type, dnsClass);
+        if (ttlSeconds <= 0) {
+            return false;
+        }
+        if (size.get() >= maxEntries && purges.tryStart(now)) {
+            expire(now);
+        }
+        int depth = Math.min(Math.min(subnet.scopePrefixLength(), subnet.sourcePrefixLength()),
+                bits(subnet.isIpv4()));
+        Entry<T> entry = new Entry<>(answer, depth, now + TimeUnit.SECONDS.toNanos(ttlSeconds));
+        for (;;) {
+            Tries<T> existing = tries.get(key);
+            if (existing == null) {
+                existing = new Tries<>();
+                Tries<T> raced = tries.putIfAbsent(key, existing);
+                if (raced != null) {
+                    existing = raced;
+                }
+            }
+            synchronized (existing) {
+                if (existing.removed) {
+                    // Emptied and dropped from the map by expire() since we fetched it
+                    continue;
+                }
+                if (depth == 0) {
+                    if (existing.global == null) {
+                        if (size.get() >= maxEntries) {
+                            return false;
+                        }
+                        size.incrementAndGet();
+                    }
+                    existing.global = entry;
+                    return true;
+                }
+                Node<T> node = existing.root(subnet.isIpv4());
+                long high = subnet.high();
+                long low = subnet.low();
+                for (int i = 0; i < depth; i++) {
+                    if (node.child(bit(high, low, i)) == null && size.get() >= maxEntries) {
+                        return false;
+                    }
+                    node = node.createChild(bit(high, low, i));
+                }
+                if (node.entry == null) {
+                    if (size.get() >= maxEntries) {
+                        return false;
+                    }
+                    size.incrementAndGet();
+                }
+                node.entry = entry;
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Find the most specific cached answer usable for a query with the passed client subnet option.
+     *
+     * @param name The query name
+     * @param type The query type
+     * @param dnsClass The query class
+     * @param subnet The client subnet option from the query
+     * @return An entry, or null if there is none
+     */
+    public Entry<T> get(CharSequence name, DnsRecordType type, int dnsClass, ClientSubnet<?> subnet) {
+        return get(name, type, dnsClass, subnet, System.nanoTime());
+    }
+
+    Entry<T> get(CharSequence name, DnsRecordType type, int dnsClass, ClientSubnet<?> subnet, long now) {
+        checkNotNull(subnet, "subnet");
+        return get(name, type, dnsClass, subnet.isIpv4(), subnet.high(), subnet.low(), subnet.sourcePrefixLength(),
+                now);
+    }
+
+    /**
+     * Find the most specific cached answer usable for a query with the passed client subnet option, without
+     * allocating.
+     *
+     * @param name The query name
+     * @param type The query type
+     * @param dnsClass The query class
+     * @param subnet The client subnet option from the query
+     * @return An entry, or null if there is none
+     */
+    public Entry<T> get(CharSequence name, DnsRecordType type, int dnsClass, MutableClientSubnet subnet) {
+        return get(name, type, dnsClass, subnet, System.nanoTime());
+    }
+
+    Entry<T> get(CharSequence name, DnsRecordType type, int dnsClass, MutableClientSubnet subnet, long now) {
+        checkNotNull(subnet, "subnet");
+        return get(name, type, dnsClass, subnet.isIpv4(), subnet.high(), subnet.low(), subnet.sourcePrefixLength(),
+                now);
+    }
+
+    private Entry<T> get(CharSequence name, DnsRecordType type, int dnsClass, boolean ipv4, long high, long low,
+            int sourcePrefixLength, long now) {
+        Lookup lookup = LOOKUP.get().set(name, type, dnsClass);
+        Tries<T> existing;
+        try {
+            existing = tries.get(lookup);
+        } finally {
+            lookup.name = null;
+        }
+        if (existing == null) {
+            return null;
+        }
+        // Nodes and entries are published through volatile fields, so this needs no lock; a lookup racing a change
+        // sees the trie either before or after it
+        int depth = Math.min(sourcePrefixLength, bits(ipv4));
+        Entry<T> result = null;
+        Entry<T> global = existing.global;
+        if (global != null && !global.isExpired(now)) {
+            result = global;
+        }
+        Node<T> node = existing.root(ipv4);
+        for (int i = 0; node != null; i++) {
+            Entry<T> entry = node.entry;
+            if (entry != null && !entry.isExpired(now)) {
+                result = entry;
+            }
+            node = i < depth ? node.child(bit(high, low, i)) : null;
+        }
+        return result;
+    }
+
+    /**
+     * Remove all answers for a name, type and class.
+     *
+     * @param name The query name
+     * @param type The query type
+     * @param dnsClass The query class
+     * @return The number of answers removed
+     */
+    public int remove(CharSequence name, DnsRecordType type, int dnsClass) {
+        Tries<T> existing = tries.remove(new Key(name, type, dnsClass));
+        if (existing == null) {
+            return 0;
+        }
+        synchronized (existing) {
+            existing.removed = true;
+            int result = existing.prune(Long.MAX_VALUE, true);
+            size.addAndGet(-result);
+            return result;
+        }
+    }
+
+    /**
+     * Remove all expired answers.
+     *
+     * @return The number removed
+     */
+    public int expire() {
+        return expire(System.nanoTime());
+    }
+
+    int expire(long now) {
+        int result = 0;
+        for (Iterator<Tries<T>> it = tries.values().iterator(); it.hasNext();) {
+            Tries<T> existing = it.next();
+            synchronized (existing) {
+                int removed = existing.prune(now, false);
+                size.addAndGet(-removed);
+                result += removed;
+                if (!existing.removed && existing.isEmpty()) {
+                    existing.removed = true;
+                    it.remove();
+                }
+            }
+        }
+        return result;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public void clear() {
+        for (Key key : tries.keySet()) {
+            remove(key.name, key.type, key.dnsClass);
+        }
+    }
+
+    private static int bits(boolean ipv4) {
+        return ipv4 ? IPV4_BITS : IPV6_BITS;
+    }
+
+    // ClientSubnet keeps IPv4 addresses in the top 32 bits of the high word, so both families share one bit order
+    private static int bit(long high, long low, int index) {
+        return (int) (index < 64 ? high >>> 63 - index : low >>> 127 - index) & 1;
+    }
+
+    /**
+     * A cached answer.
+     *
+     * @param <T> The answer type
+     */
+    public static final class Entry<T> {
+
+        private final T answer;
+        private final int scopePrefixLength;
+        private final long expiresAt;
+
+        Entry(T answer, int scopePrefixLength, long expiresAt) {
+            this.answer = answer;
+            this.scopePrefixLength = scopePrefixLength;
+            this.expiresAt = expiresAt;
+        }
+
+        public T answer() {
+            return answer;
+        }
+
+        /**
+         * The number of leading address bits this answer applies to, which should be returned to the client as the
+         * scope prefix length.
+         *
+         * @return A prefix length
+         */
+        public int scopePrefixLength() {
+            return scopePrefixLength;
+        }
+
+        /**
+         * The remaining time this answer may be used for, for rewriting the TTLs of records served from the cache.
+         *
+         * @return A number of seconds, which may be zero
+         */
+        public long timeToLive() {
+            return Math.max(0, TimeUnit.NANOSECONDS.toSeconds(expiresAt - System.nanoTime()));
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+
+        @Override
+        public String toString() {
+            return "/" + scopePrefixLength + " " + answer;
+        }
+    }
+
+    private static final class Key {
+
+        private final CharSequence name;
+        private final DnsRecordType type;
+        private final int dnsClass;
+        private final int hash;
+
+        Key(CharSequence name, DnsRecordType type, int dnsClass) {
+            checkNotNull(name, "name");
+            this.name = name instanceof DnsName ? name : fold(name);
+            this.type = checkNotNull(type, "type");
+            this.dnsClass = dnsClass;
+            this.hash = hash(this.name, type.intValue(), dnsClass);
+        }
+
+        // Names are compared case-insensitively and without any trailing dot, character by character, so that a
+        // Lookup can match a Key without normalizing the name it is passed
+        static String fold(CharSequence name) {
+            int end = nameEnd(name);
+            StringBuilder sb = new StringBuilder(end);
+            for (int i = 0; i < end; i++) {
+                sb.append(toLowerCase(name.charAt(i)));
+            }
+            return sb.toString();
+        }
+
+        static int hash(CharSequence name, int type, int dnsClass) {
+            int result = 0;
+            for (int i = 0, end = nameEnd(name); i < end; i++) {
+                result = result * 31 + toLowerCase(name.charAt(i));
+            }
+            return (result * 31 + type) * 31 + dnsClass;
+        }
+
+        boolean matches(CharSequence otherName, int otherType, int otherDnsClass) {
+            if (dnsClass != otherDnsClass || type.intValue() != otherType) {
+                return false;
+            }
+            int end = nameEnd(otherName);
+            if (name.length() != end) {
+                return false;
+            }
+            for (int i = 0; i < end; i++) {
+                if (name.charAt(i) != toLowerCase(otherName.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static int nameEnd(CharSequence name) {
+            int length = name.length();
+            return length > 0 && name.charAt(length - 1) == '.' ? length - 1 : length;
+        }
+
+        private static char toLowerCase(char c) {
+            return c < 0x80 ? c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c : Character.toLowerCase(c);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return hash == other.hash && matches(other.name, other.type.intValue(), other.dnsClass);
+        }
+    }
+
+    /**
+     * A mutable stand-in for a Key, which ConcurrentHashMap compares with the keys it holds by calling its equals.
+     */
+    private static final class Lookup {
+
+        CharSequence name;
+        private int type;
+        private int dnsClass;
+        private int hash;
+
+        Lookup set(CharSequence name, DnsRecordType type, int dnsClass) {
+            this.name = checkNotNull(name, "name");
+            this.type = checkNotNull(type, "type").intValue();
+            this.dnsClass = dnsClass;
+            this.hash = Key.hash(name, this.type, dnsClass);
+            return this;
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).hash == hash && ((Key) o).matches(name, type, dnsClass);
+        }
+    }
+
+    private static final class Tries<T> {
+
+        final Node<T> ipv4 = new Node<>();
+        final Node<T> ipv6 = new Node<>();
+        // An answer with a scope of 0, which applies to clients of both families
+        volatile Entry<T> global;
+        boolean removed;
+
+        Node<T> root(boolean isIpv4) {
+            return isIpv4 ? ipv4 : ipv6;
+        }
+
+        int prune(long now, boolean all) {
+            int result = ipv4.prune(now, all) + ipv6.prune(now, all);
+            if (global != null && (all || global.isExpired(now))) {
+                global = null;
+                result++;
+            }
+            return result;
+        }
+
+        boolean isEmpty() {
+            return global == null && ipv4.isEmpty() && ipv6.isEmpty();
+        }
+    }
+
+    private static final class Node<T> {
+
+        // Only changed while holding the lock on the Tries, but read without it
+        private volatile Node<T> zero;
+        private volatile Node<T> one;
+        volatile Entry<T> entry;
+
+        Node<T> child(int bit) {
+            return bit == 0 ? zero : one;
+        }
+
+        Node<T> createChild(int bit) {
+            Node<T> result = child(bit);
+            if (result == null) {
+                result = new Node<>();
+                if (bit == 0) {
+                    zero = result;
+                } else {
+                    one = result;
+                }
+            }
+            return result;
+        }
+
+        boolean isEmpty() {
+            return entry == null && zero == null && one == null;
+        }
+
+        /**
+         * Remove expired entries (or all of them), and any branches left empty.
+         */
+        int prune(long now, boolean all) {
+            int result = 0;
+            if (entry != null && (all || entry.isExpired(now))) {
+                entry = null;
+                result++;
+            }
+            if (zero != null) {
+                result += zero.prune(now, all);
+                if (zero.isEmpty()) {
+                    zero = null;
+                }
+            }
+            if (one != null) {
+                result += one.prune(now, all);
+                if (one.isEmpty()) {
+                    one = null;
+                }
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,322 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.cache;
+
+import io.netty.codec.dns.protocol.TypedDnsRecord;
+import io.netty.codec.dns.protocol.types.CanonicalNameComparator;
+import io.netty.codec.dns.protocol.types.DnsName;
+import io.netty.codec.dns.protocol.types.NextSecureRecord;
+import io.netty.handler.codec.dns.DnsRecordType;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * An index of cached, validated NSEC records ordered by owner name in canonical order, for synthesizing NXDOMAIN and
+ * NODATA answers from the cache as described in RFC 8198, rather than asking upstream servers about names already
+ * proven not to exist.
+ * <p>
+ * Finding the NSEC record covering a name is a floor lookup in a skip list - O(log n), lock-free for readers and
+ * safe for concurrent writers. Only the nearest preceding owner is consulted, so if records from several zones are
+ * mixed in one index a lookup can miss, but never returns a record which does not cover the name. The caller is
+ * responsible for only adding records whose signatures have been validated.
+ * <p>
+ * A covering record alone does not justify NXDOMAIN - a wildcard at the closest encloser could still answer for the
+ * name; use {@link #provesNxDomain} rather than {@link #covering} for that.
+ */
+public final class NsecIndex {
+
+    public static final int DEFAULT_MAX_ENTRIES = 100000;
+
+    private final ConcurrentSkipListMap<CharSequence, Entry> entries
+            = new ConcurrentSkipListMap<>(CanonicalNameComparator.INSTANCE);
+    private final AtomicInteger size = new AtomicInteger();
+    private final PurgeSchedule purges = new PurgeSchedule();
+    private final int maxEntries;
+
+    public NsecIndex() {
+        this(DEFAULT_MAX_ENTRIES);
+    }
+
+    /**
+     * Create an index.
+     *
+     * @param maxEntries The maximum number of records to hold; when full, expired records are purged - at most once a
+     * second - and if none are, new records are not added
+     */
+    public NsecIndex(int maxEntries) {
+        if (maxEntries < 1) {
+            throw new IllegalArgumentException("maxEntries must be at least 1 but is " + maxEntries);
+        }
+        this.maxEntries = maxEntries;
+    }
+
+    /**
+     * Add a decoded NSEC record, using its owner name and TTL.
+     *
+     * @param record A record whose content is a NextSecureRecord
+     * @return true if it was added
+     */
+    public boolean add(TypedDnsRecord<?> record) {
+        checkNotNull(record, "record");
+        if (!DnsRecordType.NSEC.equals(record.type()) || !(record.content() instanceof NextSecureRecord)) {
+            throw new IllegalArgumentException("Not an NSEC record: " + record);
+        }
+        return add(record.name(), (NextSecureRecord) record.content(), record.timeToLive());
+    }
+
+    /**
+     * Add an NSEC record, replacing any existing one with the same owner name.
+     *
+     * @param owner The owner name of the record
+     * @param nsec The record's payload
+     * @param ttlSeconds How long the record may be used for
+     * @return true if it was added
+     */
+    public boolean add(CharSequence owner, NextSecureRecord nsec, long ttlSeconds) {
+        return add(owner, nsec, ttlSeconds, System.nanoTime());
+    }
+
+    boolean add(CharSequence owner, NextSecureRecord nsec, long ttlSeconds, long now) {
+        checkNotNull(owner, "owner");
+        checkNotNull(nsec, "nsec");
+        if (ttlSeconds <= 0) {
+            return false;
+        }
+        // Normalized keys compare byte-wise against DnsName lookups
+        owner = DnsName.normalize(owner);
+        if (size.get() >= maxEntries && !entries.containsKey(owner)
+                && (!purges.tryStart(now) || expire(now) == 0)) {
+            return false;
+        }
+        Entry entry = new Entry(owner, nsec, now + TimeUnit.SECONDS.toNanos(ttlSeconds));
+        if (entries.put(owner, entry) == null) {
+            size.incrementAndGet();
+        }
+        return true;
+    }
+
+    /**
+     * Find the cached NSEC record which covers the passed name - one whose owner name sorts before it and whose next
+     * name sorts after it. This only shows that no records are owned by exactly that name; a wildcard may still
+     * synthesize an answer for it, so an NXDOMAIN answer also needs the wildcard at the closest encloser to be
+     * covered, as {@link #provesNxDomain} checks - RFC 4035 section 5.4, RFC 8198 section 5.1.
+     *
+     * @param name A name
+     * @return A covering entry, or null if none is cached
+     */
+    public Entry covering(CharSequence name) {
+        return covering(name, System.nanoTime());
+    }
+
+    Entry covering(CharSequence name, long now) {
+        Map.Entry<CharSequence, Entry> floor = entries.floorEntry(checkNotNull(name, "name"));
+        if (floor == null) {
+            return null;
+        }
+        Entry entry = floor.getValue();
+        if (entry.isExpired(now)) {
+            remove(entry);
+            return null;
+        }
+        return entry.covers(name) ? entry : null;
+    }
+
+    /**
+     * Determine if cached NSEC records prove that the passed name does not exist, so an NXDOMAIN answer can be
+     * synthesized: one must cover the name, and one must cover the wildcard child of its closest encloser - the
+     * longest ancestor of the name which is also an ancestor of the covering record's owner or next name.
+     *
+     * @param name A name
+     * @return true if NXDOMAIN is proven
+     */
+    public boolean provesNxDomain(CharSequence name) {
+        return provesNxDomain(name, System.nanoTime());
+    }
+
+    boolean provesNxDomain(CharSequence name, long now) {
+        Entry entry = covering(name, now);
+        if (entry == null) {
+            return false;
+        }
+        CharSequence normalized = DnsName.normalize(name);
+        if (!(normalized instanceof DnsName)) {
+            return false;
+        }
+        DnsName encloser = ((DnsName) normalized).parent();
+        CharSequence next = entry.record.nextRecord;
+        while (!CanonicalNameComparator.isAtOrBelow(entry.owner, encloser)
+                && !CanonicalNameComparator.isAtOrBelow(next, encloser)) {
+            encloser = encloser.parent();
+        }
+        String wildcard = encloser.length() == 0 ? "*" : "*." + encloser;
+        return covering(DnsName.of(wildcard), now) != null;
+    }
+
+    /**
+     * Find the cached NSEC record owned by exactly the passed name, whose type bitmap says what types exist there.
+     *
+     * @param name A name
+     * @return An entry, or null if none is cached
+     */
+    public Entry matching(CharSequence name) {
+        return matching(name, System.nanoTime());
+    }
+
+    Entry matching(CharSequence name, long now) {
+        Entry entry = entries.get(checkNotNull(name, "name"));
+        if (entry != null && entry.isExpired(now)) {
+            remove(entry);
+            return null;
+        }
+        return entry;
+    }
+
+    /**
+     * Determine if a cached NSEC record proves that the passed name exists but has no records of the passed type
+     * (or a CNAME), so a NODATA answer can be synthesized. The parent-side NSEC at a delegation point only proves
+     * the absence of DS, since the other records there live in the child zone; and the NSEC at a zone apex cannot
+     * prove the absence of DS, which lives in the parent zone - RFC 4035 section 5.4, RFC 6840 section 4.1.
+     *
+     * @param name A name
+     * @param type A record type
+     * @return true if NODATA is proven
+     */
+    public boolean provesNoData(CharSequence name, DnsRecordType type) {
+        return provesNoData(name, type, System.nanoTime());
+    }
+
+    boolean provesNoData(CharSequence name, DnsRecordType type, long now) {
+        checkNotNull(type, "type");
+        Entry entry = matching(name, now);
+        if (entry == null) {
+            return false;
+        }
+        NextSecureRecord record = entry.record();
+        boolean ds = DnsRecordType.DS.equals(type);
+        if (record.hasType(DnsRecordType.SOA) ? ds : record.hasType(DnsRecordType.NS) && !ds) {
+            return false;
+        }
+        return !record.hasType(type) && !record.hasType(DnsRecordType.CNAME);
+    }
+
+    /**
+     * Remove all expired records.
+     *
+     * @return The number removed
+     */
+    public int expire() {
+        return expire(System.nanoTime());
+    }
+
+    int expire(long now) {
+        int result = 0;
+        for (Iterator<Entry> it = entries.values().iterator(); it.hasNext();) {
+            Entry entry = it.next();
+            if (entry.isExpired(now) && remove(entry)) {
+                result++;
+            }
+        }
+        return result;
+    }
+
+    private boolean remove(Entry entry) {
+        if (entries.remove(entry.owner, entry)) {
+            size.decrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size.get();
+    }
+
+    public void clear() {
+        for (Entry entry : entries.values()) {
+            remove(entry);
+        }
+    }
+
+    /**
+     * A cached NSEC record.
+     */
+    public static final class Entry {
+
+        private final CharSequence owner;
+        private final NextSecureRecord record;
+        private final long expiresAt;
+
+        Entry(CharSequence owner, NextSecureRecord record, long expiresAt) {
+            this.owner = owner;
+            this.record = record;
+            this.expiresAt = expiresAt;
+        }
+
+        public CharSequence owner() {
+            return owner;
+        }
+
+        public NextSecureRecord record() {
+            return record;
+        }
+
+        boolean isExpired(long now) {
+            return now - expiresAt >= 0;
+        }
+
+        /**
+         * Determine if this record covers the passed name, proving that no records are owned by exactly that name.
+         * It does not prove the name does not exist - a wildcard may still match it; see
+         * {@link NsecIndex#provesNxDomain}.
+         *
+         * @param name A name
+         * @return true if the name falls strictly between the owner and next names of this record
+         */
+        public boolean covers(CharSequence name) {
+            CanonicalNameComparator order = CanonicalNameComparator.INSTANCE;
+            if (order.compare(owner, name) >= 0) {
+                return false;
+            }
+            // At a delegation point or DNAME, names below the owner belong to another zone or are
+            // redirected, and this record says nothing about them - RFC 4035 section 5.4
+            if (CanonicalNameComparator.isAtOrBelow(name, owner)
+                    && (record.hasType(DnsRecordType.DNAME)
+                    || record.hasType(DnsRecordType.NS) && !record.hasType(DnsRecordType.SOA))) {
+                return false;
+            }
+            CharSequence next = record.nextRecord;
+            // A name with the next name below it is an empty non-terminal, which exists - RFC 4035 section 3.1.3.2
+            if (CanonicalNameComparator.isAtOrBelow(next, name)) {
+                return false;
+            }
+            if (order.compare(owner, next) < 0) {
+                return order.compare(name, next) < 0;
+            }
+            // The last record in the zone points back to the apex, and covers every following name in the zone
+            return CanonicalNameComparator.isAtOrBelow(name, next);
+        }
+
+        @Override
+        public String toString() {
+            return owner + " NSEC " + record;
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.cache;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limits how often a full cache scans itself for expired entries, so that inserts into a full cache - which a flood
+ * of queries for random names keeps full - cost a scan at most once per interval rather than on every insert.
+ */
+final class PurgeSchedule {
+
+    static final long DEFAULT_INTERVAL = TimeUnit.SECONDS.toNanos(1);
+
+    private final long interval;
+    private final AtomicLong next = new AtomicLong();
+    private volatile boolean started;
+
+    PurgeSchedule() {
+        this(DEFAULT_INTERVAL);
+    }
+
+    PurgeSchedule(long interval) {
+        this.interval = interval;
+    }
+
+    /**
+     * Determine if a purge may run now; if so, the next one is scheduled an interval later, so only one of several
+     * racing callers gets true.
+     *
+     * @param now The current time in nanoseconds
+     * @return true if the caller should purge
+     */
+    boolean tryStart(long now) {
+        long due = next.get();
+        if (started && now - due < 0) {
+            return false;
+        }
+        if (!next.compareAndSet(due, now + interval)) {
+            return false;
+        }
+        started = true;
+        return true;
+    }
+}
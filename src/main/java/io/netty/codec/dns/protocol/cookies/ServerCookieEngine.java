@@ -0,0 +1,336 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.cookies;
+
+import io.netty.buffer.ByteBuf;
+import java.net.InetAddress;
+import java.security.SecureRandom;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * Generates and validates DNS server cookies in the format of RFC 9018 - a version byte, three reserved bytes, a
+ * 32-bit timestamp, and a SipHash-2-4 of the client cookie, those fields and the client's address, keyed with a
+ * 16-byte secret - so that every server in an anycast cluster sharing the secret accepts the others' cookies.
+ * <p>
+ * Cookies are read from and written to buffers directly, and the client address can be passed as primitives, in the
+ * layout {@link io.netty.codec.dns.protocol.types.ClientSubnet} uses, so that checking the cookie of every query on
+ * the event loop allocates nothing. The secret can be rotated while running; cookies made with the previous secret
+ * remain valid, but are reported as {@link Status#STALE} so the client is sent a fresh one.
+ */
+public final class ServerCookieEngine {
+
+    public static final int SECRET_LENGTH = 16;
+    public static final int CLIENT_COOKIE_LENGTH = 8;
+    public static final int SERVER_COOKIE_LENGTH = 16;
+    private static final int MIN_SERVER_COOKIE_LENGTH = 8;
+    private static final int MAX_SERVER_COOKIE_LENGTH = 32;
+    private static final int VERSION = 1;
+    // RFC 9018 section 4.3
+    private static final int MAX_AGE_SECONDS = 3600;
+    private static final int MAX_CLOCK_SKEW_SECONDS = 300;
+    private static final int REFRESH_AGE_SECONDS = 1800;
+
+    private volatile Secrets secrets;
+
+    /**
+     * Create an engine.
+     *
+     * @param secret A 16-byte secret, shared by all servers which should accept each other's cookies
+     */
+    public ServerCookieEngine(byte[] secret) {
+        secrets = new Secrets(secret, null);
+    }
+
+    /**
+     * Generate a random secret.
+     *
+     * @return A new 16-byte secret
+     */
+    public static byte[] newSecret() {
+        byte[] result = new byte[SECRET_LENGTH];
+        new SecureRandom().nextBytes(result);
+        return result;
+    }
+
+    /**
+     * Start generating cookies with a new secret, while still accepting ones made with the current secret until the
+     * next rotation or a call to {@link #retirePreviousSecret()}.
+     *
+     * @param secret A 16-byte secret
+     */
+    public synchronized void rotate(byte[] secret) {
+        Secrets old = secrets;
+        secrets = new Secrets(secret, old);
+    }
+
+    /**
+     * Stop accepting cookies made with the secret before the last rotation.
+     */
+    public synchronized void retirePreviousSecret() {
+        secrets = secrets.withoutPrevious();
+    }
+
+    /**
+     * Check the payload of a COOKIE option.
+     *
+     * @param option A buffer containing the option payload - the client cookie, followed by any server cookie
+     * @param index The index of the payload in the buffer
+     * @param length The length of the payload
+     * @param client The address the query came from
+     * @return The result
+     */
+    public Status validate(ByteBuf option, int index, int length, InetAddress client) {
+        byte[] address = checkNotNull(client, "client").getAddress();
+        return validate(option, index, length, address.length == 4, high(address), low(address));
+    }
+
+    /**
+     * Check the payload of a COOKIE option without allocating.
+     *
+     * @param option A buffer containing the option payload - the client cookie, followed by any server cookie
+     * @param index The index of the payload in the buffer
+     * @param length The length of the payload
+     * @param ipv4 Whether the client address is IPv4
+     * @param high The high 64 bits of the client address - for IPv4, the address in the upper 32 bits
+     * @param low The low 64 bits of the client address, ignored for IPv4
+     * @return The result
+     */
+    public Status validate(ByteBuf option, int index, int length, boolean ipv4, long high, long low) {
+        return validate(option, index, length, ipv4, high, low, now());
+    }
+
+    Status validate(ByteBuf option, int index, int length, boolean ipv4, long high, long low, int now) {
+        checkNotNull(option, "option");
+        if (length == CLIENT_COOKIE_LENGTH) {
+            return Status.MISSING;
+        }
+        if (length < CLIENT_COOKIE_LENGTH + MIN_SERVER_COOKIE_LENGTH
+                || length > CLIENT_COOKIE_LENGTH + MAX_SERVER_COOKIE_LENGTH) {
+            return Status.MALFORMED;
+        }
+        int server = index + CLIENT_COOKIE_LENGTH;
+        if (length != CLIENT_COOKIE_LENGTH + SERVER_COOKIE_LENGTH || option.getUnsignedByte(server) != VERSION) {
+            // Well formed, but not made by an RFC 9018 server
+            return Status.INVALID;
+        }
+        // Serial number arithmetic, so the comparison survives the timestamp wrapping in 2106
+        int age = now - option.getInt(server + 4);
+        if (age > MAX_AGE_SECONDS || age < -MAX_CLOCK_SKEW_SECONDS) {
+            return Status.INVALID;
+        }
+        long clientCookie = option.getLongLE(index);
+        long header = option.getLongLE(server);
+        long hash = option.getLongLE(server + 8);
+        Secrets keys = secrets;
+        if (hash(keys.k0, keys.k1, clientCookie, header, ipv4, high, low) == hash) {
+            return age > REFRESH_AGE_SECONDS ? Status.STALE : Status.VALID;
+        }
+        if (keys.hasPrevious
+                && hash(keys.previousK0, keys.previousK1, clientCookie, header, ipv4, high, low) == hash) {
+            return Status.STALE;
+        }
+        return Status.INVALID;
+    }
+
+    /**
+     * Write the payload of a COOKIE option for a response - the client cookie from the query, followed by a newly
+     * generated server cookie.
+     *
+     * @param option A buffer containing the query's option payload
+     * @param index The index of the payload, which must contain at least a client cookie
+     * @param into The buffer to write to
+     * @param client The address the query came from
+     */
+    public void writeCookies(ByteBuf option, int index, ByteBuf into, InetAddress client) {
+        byte[] address = checkNotNull(client, "client").getAddress();
+        writeCookies(option, index, into, address.length == 4, high(address), low(address));
+    }
+
+    /**
+     * Write the payload of a COOKIE option for a response without allocating.
+     *
+     * @param option A buffer containing the query's option payload
+     * @param index The index of the payload, which must contain at least a client cookie
+     * @param into The buffer to write to
+     * @param ipv4 Whether the client address is IPv4
+     * @param high The high 64 bits of the client address - for IPv4, the address in the upper 32 bits
+     * @param low The low 64 bits of the client address, ignored for IPv4
+     */
+    public void writeCookies(ByteBuf option, int index, ByteBuf into, boolean ipv4, long high, long low) {
+        writeCookies(option, index, into, ipv4, high, low, now());
+    }
+
+    void writeCookies(ByteBuf option, int index, ByteBuf into, boolean ipv4, long high, long low, int now) {
+        checkNotNull(option, "option");
+        checkNotNull(into, "into");
+        long clientCookie = option.getLongLE(index);
+        // Version and reserved bytes, then the timestamp, as the little-endian word SipHash reads
+        long header = VERSION | (Integer.reverseBytes(now) & 0xFFFFFFFFL) << 32;
+        Secrets keys = secrets;
+        into.writeLongLE(clientCookie);
+        into.writeLongLE(header);
+        into.writeLongLE(hash(keys.k0, keys.k1, clientCookie, header, ipv4, high, low));
+    }
+
+    private static int now() {
+        return (int) (System.currentTimeMillis() / 1000);
+    }
+
+    /**
+     * SipHash-2-4 of the client cookie, version, reserved bytes, timestamp and client address, with each 8-byte block
+     * of the message passed as a little-endian word.
+     */
+    static long hash(long k0, long k1, long clientCookie, long header, boolean ipv4, long high, long low) {
+        long m2;
+        long m3;
+        long m4;
+        int words;
+        if (ipv4) {
+            // 20 bytes: the address, then the message length in the top byte of the final block
+            m2 = Integer.reverseBytes((int) (high >>> 32)) & 0xFFFFFFFFL | 20L << 56;
+            m3 = 0;
+            m4 = 0;
+            words = 3;
+        } else {
+            m2 = Long.reverseBytes(high);
+            m3 = Long.reverseBytes(low);
+            m4 = 32L << 56;
+            words = 5;
+        }
+        long v0 = k0 ^ 0x736f6d6570736575L;
+        long v1 = k1 ^ 0x646f72616e646f6dL;
+        long v2 = k0 ^ 0x6c7967656e657261L;
+        long v3 = k1 ^ 0x7465646279746573L;
+        for (int i = 0; i <= words; i++) {
+            boolean finish = i == words;
+            long m = i == 0 ? clientCookie : i == 1 ? header : i == 2 ? m2 : i == 3 ? m3 : m4;
+            if (finish) {
+                v2 ^= 0xFF;
+            } else {
+                v3 ^= m;
+            }
+            for (int round = finish ? 4 : 2; round > 0; round--) {
+                v0 += v1;
+                v1 = Long.rotateLeft(v1, 13);
+                v1 ^= v0;
+                v0 = Long.rotateLeft(v0, 32);
+                v2 += v3;
+                v3 = Long.rotateLeft(v3, 16);
+                v3 ^= v2;
+                v0 += v3;
+                v3 = Long.rotateLeft(v3, 21);
+                v3 ^= v0;
+                v2 += v1;
+                v1 = Long.rotateLeft(v1, 17);
+                v1 ^= v2;
+                v2 = Long.rotateLeft(v2, 32);
+            }
+            if (!finish) {
+                v0 ^= m;
+            }
+        }
+        return v0 ^ v1 ^ v2 ^ v3;
+    }
+
+    private static long high(byte[] address) {
+        long result = 0;
+        for (int i = 0; i < 8; i++) {
+            result = result << 8 | (i < address.length ? address[i] & 0xFF : 0);
+        }
+        return result;
+    }
+
+    private static long low(byte[] address) {
+        long result = 0;
+        for (int i = 8; i < address.length; i++) {
+            result = result << 8 | address[i] & 0xFF;
+        }
+        return result;
+    }
+
+    private static long littleEndianLong(byte[] bytes, int offset) {
+        long result = 0;
+        for (int i = 7; i >= 0; i--) {
+            result = result << 8 | bytes[offset + i] & 0xFF;
+        }
+        return result;
+    }
+
+    /**
+     * The result of checking a COOKIE option.
+     */
+    public enum Status {
+        /**
+         * The option has a length RFC 7873 does not allow; the query should be answered with FORMERR.
+         */
+        MALFORMED,
+        /**
+         * Only a client cookie is present.
+         */
+        MISSING,
+        /**
+         * The server cookie was not made by this server or its cluster, is too old, or is from the future.
+         */
+        INVALID,
+        /**
+         * The server cookie is valid, but is old or was made with the previous secret, and should be replaced.
+         */
+        STALE,
+        /**
+         * The server cookie is valid.
+         */
+        VALID;
+
+        public boolean isValid() {
+            return this == STALE || this == VALID;
+        }
+    }
+
+    private static final class Secrets {
+
+        final long k0;
+        final long k1;
+        final long previousK0;
+        final long previousK1;
+        final boolean hasPrevious;
+
+        Secrets(byte[] secret, Secrets previous) {
+            checkNotNull(secret, "secret");
+            if (secret.length != SECRET_LENGTH) {
+                throw new IllegalArgumentException("Secret must be " + SECRET_LENGTH + " bytes long but is "
+                        + secret.length);
+            }
+            k0 = littleEndianLong(secret, 0);
+            k1 = littleEndianLong(secret, 8);
+            hasPrevious = previous != null;
+            previousK0 = hasPrevious ? previous.k0 : 0;
+            previousK1 = hasPrevious ? previous.k1 : 0;
+        }
+
+        private Secrets(long k0, long k1) {
+            this.k0 = k0;
+            this.k1 = k1;
+            previousK0 = 0;
+            previousK1 = 0;
+            hasPrevious = false;
+        }
+
+        Secrets withoutPrevious() {
+            return new Secrets(k0, k1);
+        }
+    }
+}
@@ -19,51 +19,29 @@ import io.netty.buffer.ByteBuf;
 import io.netty.codec.dns.protocol.DnsRecordCodec;
 import io.netty.codec.dns.protocol.types.Cookies;
 import io.netty.handler.codec.dns.DnsDecoderException;
-import io.netty.handler.codec.dns.DnsResponseCode;
 import io.netty.handler.codec.dns.names.NameCodec;
 import java.io.IOException;
 import java.nio.charset.UnmappableCharacterException;
 
-import static io.netty.handler.codec.dns.DnsResponseCode.FORMERR;
-
 public class CookieCodec extends DnsRecordCodec<Cookies> {
 
-    private static final int CLIENT_COOKIE_BYTE_COUNT = 8;
-
     public CookieCodec() {
         super(Cookies.class);
     }
 
     @Override
     public void write(Cookies cookies, NameCodec names, ByteBuf into) throws IOException {
-        into.writeBytes(cookies.clientCookie());
-        if (cookies.hasServerCookie()) {
-            into.writeBytes(cookies.serverCookie());
-        }
+        cookies.writeTo(into);
     }
 
     @Override
     public Cookies read(ByteBuf from, NameCodec forReadingNames, int length) throws DnsDecoderException,
             UnmappableCharacterException, IOException {
-        if (from.readableBytes() < CLIENT_COOKIE_BYTE_COUNT) {
-            throw new DnsDecoderException(FORMERR, "Insufficient remaining bytes to read an "
-                    + CLIENT_COOKIE_BYTE_COUNT + " byte cookie");
-        }
-        if (length < CLIENT_COOKIE_BYTE_COUNT) {
-            throw new DnsDecoderException(FORMERR, "Insufficient remaining bytes to read an "
-                    + CLIENT_COOKIE_BYTE_COUNT + " byte cookie");
-        }
-        byte[] clientCookie = new byte[CLIENT_COOKIE_BYTE_COUNT];
-        from.readBytes(clientCookie);
-        int remaining = length - CLIENT_COOKIE_BYTE_COUNT;
-        Cookies result;
-        if (remaining > 0) {
-            byte[] serverCookie = new byte[remaining];
-            from.readBytes(serverCookie);
-            result = new Cookies(clientCookie, serverCookie);
-        } else {
-            result = new Cookies(clientCookie);
-        }
-        return result;
+        return Cookies.read(from, length);
+    }
+
+    @Override
+    public int encodedSize(Cookies value) {
+        return value.encodedLength();
     }
 }
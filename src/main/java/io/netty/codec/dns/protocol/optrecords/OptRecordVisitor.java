@@ -0,0 +1,42 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.optrecords;
+
+import io.netty.buffer.ByteBuf;
+import java.io.IOException;
+
+/**
+ * Receives the options in the RDATA of an OPT record one at a time, by code and position, without anything being
+ * decoded or allocated on its behalf - so a caller that only cares about, say, COOKIE and ECS can read those in place
+ * and pay nothing for padding, NSID or unknown options.
+ *
+ * @see io.netty.codec.dns.protocol.recordcodecs.OptRecordCodec#visit(ByteBuf, int, int, OptRecordVisitor)
+ */
+public interface OptRecordVisitor {
+
+    /**
+     * Called for each option, in wire order. The option's bytes may be read with absolute gets, or by moving the
+     * reader index, which is restored once visiting is done.
+     *
+     * @param rdata The buffer containing the OPT RDATA
+     * @param code The option code
+     * @param index The index of the option payload in the buffer, after its code and length
+     * @param length The length of the option payload
+     * @return true to continue on to the next option, false to stop
+     * @throws IOException If the visitor fails to read an option it wanted
+     */
+    boolean visitOption(ByteBuf rdata, int code, int index, int length) throws IOException;
+}
@@ -19,6 +19,10 @@ import io.netty.buffer.ByteBuf;
 import io.netty.codec.dns.protocol.DnsRecordCodec;
 import io.netty.codec.dns.protocol.types.ClientSubnet;
 import io.netty.codec.dns.protocol.types.Cookies;
+import io.netty.codec.dns.protocol.types.ExtendedDnsError;
+import io.netty.codec.dns.protocol.types.NameServerIdentifier;
+import io.netty.codec.dns.protocol.types.Padding;
+import io.netty.codec.dns.protocol.types.TcpKeepalive;
 import io.netty.handler.codec.dns.DnsDecoderException;
 import io.netty.handler.codec.dns.names.NameCodec;
 import java.io.IOException;
@@ -37,6 +41,22 @@ public final class OptSubrecordCodecs {
         return new ClientSubnetCodec();
     }
 
+    public static DnsRecordCodec<TcpKeepalive> tcpKeepalive() {
+        return new TcpKeepaliveCodec();
+    }
+
+    public static DnsRecordCodec<NameServerIdentifier> nsid() {
+        return new NameServerIdentifierCodec();
+    }
+
+    public static DnsRecordCodec<ExtendedDnsError> extendedDnsError() {
+        return new ExtendedDnsErrorCodec();
+    }
+
+    public static DnsRecordCodec<Padding> padding() {
+        return new PaddingCodec();
+    }
+
     public static DnsRecordCodec<ByteBuf> fallback() {
         return new FallbackOptCodec();
     }
@@ -63,5 +83,10 @@ public final class OptSubrecordCodecs {
                 UnmappableCharacterException, IOException {
             return from.slice(from.readerIndex(), length);
         }
+
+        @Override
+        public int encodedSize(ByteBuf value) {
+            return value.readableBytes();
+        }
     }
 }
@@ -16,54 +16,160 @@
 package io.netty.codec.dns.protocol.optrecords;
 
 import io.netty.util.AsciiString;
-import io.netty.util.internal.ObjectUtil;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import static io.netty.util.internal.ObjectUtil.checkNotNull;
-import static io.netty.util.internal.ObjectUtil.checkPositive;
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
 
 /**
  * Opt subrecord types.  OPT Pseudo records can embed a collection of different sub-records, each of which has their
  * own payload type;  this allows us to register decoders for those.
+ * <p>
+ * Constants are provided for the options in the IANA "DNS EDNS0 Option Codes (OPT)" registry.  Instances returned
+ * by {@link #valueOf(int)} are interned, so decoding an option code - known or not - allocates at most once per code
+ * for the life of the JVM. Instances created with the constructor are not interned, so types should be compared
+ * with {@link #equals(Object)}, which compares option codes.
  */
 public final class OptSubrecordType {
 
+    public static final OptSubrecordType LLQ = new OptSubrecordType(new AsciiString("LLQ"), 1);
+    public static final OptSubrecordType UPDATE_LEASE = new OptSubrecordType(new AsciiString("UL"), 2);
+    public static final OptSubrecordType NSID = new OptSubrecordType(new AsciiString("NSID"), 3);
+    public static final OptSubrecordType DAU = new OptSubrecordType(new AsciiString("DAU"), 5);
+    public static final OptSubrecordType DHU = new OptSubrecordType(new AsciiString("DHU"), 6);
+    public static final OptSubrecordType N3U = new OptSubrecordType(new AsciiString("N3U"), 7);
     public static final OptSubrecordType ECS = new OptSubrecordType(new AsciiString("ECS"), 8);
+    public static final OptSubrecordType EXPIRE = new OptSubrecordType(new AsciiString("EXPIRE"), 9);
     public static final OptSubrecordType COOKIE = new OptSubrecordType(new AsciiString("COOKIE"), 10);
+    public static final OptSubrecordType TCP_KEEPALIVE = new OptSubrecordType(new AsciiString("TCP_KEEPALIVE"), 11);
+    public static final OptSubrecordType PADDING = new OptSubrecordType(new AsciiString("PADDING"), 12);
+    public static final OptSubrecordType CHAIN = new OptSubrecordType(new AsciiString("CHAIN"), 13);
+    public static final OptSubrecordType KEY_TAG = new OptSubrecordType(new AsciiString("KEY_TAG"), 14);
+    public static final OptSubrecordType EDE = new OptSubrecordType(new AsciiString("EDE"), 15);
+    public static final OptSubrecordType CLIENT_TAG = new OptSubrecordType(new AsciiString("CLIENT_TAG"), 16);
+    public static final OptSubrecordType SERVER_TAG = new OptSubrecordType(new AsciiString("SERVER_TAG"), 17);
+    public static final OptSubrecordType REPORT_CHANNEL = new OptSubrecordType(new AsciiString("REPORT_CHANNEL"), 18);
+    public static final OptSubrecordType ZONEVERSION = new OptSubrecordType(new AsciiString("ZONEVERSION"), 19);
+    public static final OptSubrecordType UMBRELLA_IDENT
+            = new OptSubrecordType(new AsciiString("UMBRELLA_IDENT"), 20292);
+    public static final OptSubrecordType DEVICE_ID = new OptSubrecordType(new AsciiString("DEVICE_ID"), 26946);
+
+    private static final OptSubrecordType[] VALUES = {
+        LLQ, UPDATE_LEASE, NSID, DAU, DHU, N3U, ECS, EXPIRE, COOKIE, TCP_KEEPALIVE, PADDING, CHAIN, KEY_TAG, EDE,
+        CLIENT_TAG, SERVER_TAG, REPORT_CHANNEL, ZONEVERSION, UMBRELLA_IDENT, DEVICE_ID
+    };
+
+    private static final int MAX_VALUE = 0xFFFF;
+    private static final int PAGE_SHIFT = 8;
+    private static final int PAGE_MASK = (1 << PAGE_SHIFT) - 1;
+
+    // Two-level table of all 65536 codes, with pages of 256 created the first time a code in them is seen,
+    // so that the table costs little unless peers send many distinct unknown codes
+    private static final AtomicReferenceArray<AtomicReferenceArray<OptSubrecordType>> TABLE
+            = new AtomicReferenceArray<>((MAX_VALUE >>> PAGE_SHIFT) + 1);
+
+    static {
+        for (OptSubrecordType type : VALUES) {
+            intern(type);
+        }
+    }
 
     private final AsciiString name;
 
     private final int intValue;
 
+    private final boolean unknown;
+
+    /**
+     * Create a type with a custom name. The result is not interned; {@link #valueOf(int)} will not return it.
+     *
+     * @param name The name
+     * @param intValue The option code, between 0 and 65535
+     */
     public OptSubrecordType(CharSequence name, int intValue) {
         this.name = AsciiString.of(checkNotNull(name, "name"));
-        this.intValue = checkPositive(intValue, "intValue");
+        this.intValue = checkPositiveOrZero(intValue, "intValue");
+        if (intValue > MAX_VALUE) {
+            throw new IllegalArgumentException("intValue: " + intValue + " (expected: 0-" + MAX_VALUE + ")");
+        }
+        this.unknown = this.name.contentEquals(Integer.toString(intValue));
     }
 
+    private static OptSubrecordType intern(OptSubrecordType type) {
+        AtomicReferenceArray<OptSubrecordType> page = page(type.intValue);
+        int slot = type.intValue & PAGE_MASK;
+        if (page.compareAndSet(slot, null, type)) {
+            return type;
+        }
+        return page.get(slot);
+    }
+
+    private static AtomicReferenceArray<OptSubrecordType> page(int value) {
+        int index = value >>> PAGE_SHIFT;
+        AtomicReferenceArray<OptSubrecordType> page = TABLE.get(index);
+        if (page == null) {
+            TABLE.compareAndSet(index, null, new AtomicReferenceArray<OptSubrecordType>(PAGE_MASK + 1));
+            page = TABLE.get(index);
+        }
+        return page;
+    }
+
+    /**
+     * Get the interned type for an option code.
+     *
+     * @param value An option code between 0 and 65535
+     * @return A type, which will be the same instance for every call with the same code
+     */
     public static OptSubrecordType valueOf(int value) {
-        switch (value) {
-            case 8:
-                return ECS;
-            case 10:
-                return COOKIE;
-            default:
-                return new OptSubrecordType(Integer.toString(value), value);
+        if (value < 0 || value > MAX_VALUE) {
+            throw new IllegalArgumentException("Option code " + value + " (expected: 0-" + MAX_VALUE + ")");
         }
+        AtomicReferenceArray<OptSubrecordType> page = TABLE.get(value >>> PAGE_SHIFT);
+        if (page != null) {
+            OptSubrecordType result = page.get(value & PAGE_MASK);
+            if (result != null) {
+                return result;
+            }
+        }
+        return intern(new OptSubrecordType(Integer.toString(value), value));
     }
 
+    /**
+     * Get the types in the IANA option code registry, in order of option code.
+     *
+     * @return A new array of types
+     */
     public static OptSubrecordType[] values() {
-        return new OptSubrecordType[]{ECS};
+        return VALUES.clone();
     }
 
     public static OptSubrecordType valueOf(CharSequence name) {
-        for (OptSubrecordType t : values()) {
+        for (OptSubrecordType t : VALUES) {
             if (t.name.contentEquals(name)) {
                 return t;
             }
         }
+        if (isDigits(name)) {
+            return valueOf(Integer.parseInt(name.toString()));
+        }
         throw new IllegalArgumentException("Unknown opt subrecord type '"
                 + name + "'");
     }
 
+    private static boolean isDigits(CharSequence name) {
+        int length = name.length();
+        if (length == 0 || length > 5) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
     public AsciiString name() {
         return name;
     }
@@ -73,7 +179,17 @@ public final class OptSubrecordType {
     }
 
     public boolean isUnknown() {
-        return name.contentEquals(Integer.toString(intValue));
+        return unknown;
+    }
+
+    @Override
+    public int hashCode() {
+        return intValue;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj == this || obj instanceof OptSubrecordType && ((OptSubrecordType) obj).intValue == intValue;
     }
 
     @Override
@@ -0,0 +1,47 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.optrecords;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.codec.dns.protocol.DnsRecordCodec;
+import io.netty.codec.dns.protocol.types.TcpKeepalive;
+import io.netty.handler.codec.dns.DnsDecoderException;
+import io.netty.handler.codec.dns.names.NameCodec;
+import java.io.IOException;
+import java.nio.charset.UnmappableCharacterException;
+
+final class TcpKeepaliveCodec extends DnsRecordCodec<TcpKeepalive> {
+
+    TcpKeepaliveCodec() {
+        super(TcpKeepalive.class);
+    }
+
+    @Override
+    public void write(TcpKeepalive value, NameCodec names, ByteBuf into) throws IOException {
+        value.writeTo(into);
+    }
+
+    @Override
+    public TcpKeepalive read(ByteBuf from, NameCodec forReadingNames, int length) throws DnsDecoderException,
+            UnmappableCharacterException, IOException {
+        return TcpKeepalive.read(from, length);
+    }
+
+    @Override
+    public int encodedSize(TcpKeepalive value) {
+        return value.encodedLength();
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.recordcodecs;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.codec.dns.protocol.DnsRecordCodec;
+import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.dns.DnsDecoderException;
+import io.netty.handler.codec.dns.names.NameCodec;
+import io.netty.util.AsciiString;
+import java.io.IOException;
+
+import static io.netty.handler.codec.dns.DnsResponseCode.FORMERR;
+
+/**
+ * Reads and writes TXT record data as the RFC 1035 sequence of length-prefixed
+ * &lt;character-string&gt;s, one array element per string. No quoting or whitespace
+ * splitting is applied. On read the whole RDATA is copied once into a single array
+ * and each element is an AsciiString view over its slice of it.
+ */
+final class CharacterStringsRecordCodec extends DnsRecordCodec<CharSequence[]> {
+
+    private static final int MAX_STRING_LENGTH = 255;
+    private static final CharSequence[] EMPTY = new CharSequence[0];
+
+    CharacterStringsRecordCodec() {
+        super(CharSequence[].class);
+    }
+
+    @Override
+    public CharSequence[] read(ByteBuf from, NameCodec forReadingNames, int length)
+            throws DnsDecoderException, IOException {
+        if (length == 0) {
+            return EMPTY;
+        }
+        if (length > from.readableBytes()) {
+            throw new DnsDecoderException(FORMERR, "TXT record length " + length
+                    + " greater than remaining bytes in buffer " + from.readableBytes());
+        }
+        byte[] data = new byte[length];
+        from.readBytes(data);
+        // Validate and count first, so the result array is allocated once at its final size
+        int count = 0;
+        for (int pos = 0; pos < length; pos += (data[pos] & 0xFF) + 1) {
+            if (pos + (data[pos] & 0xFF) >= length) {
+                throw new DnsDecoderException(FORMERR, "TXT character-string at " + pos
+                        + " of length " + (data[pos] & 0xFF) + " overruns record data length " + length);
+            }
+            count++;
+        }
+        CharSequence[] result = new CharSequence[count];
+        for (int i = 0, pos = 0; i < count; i++) {
+            int len = data[pos] & 0xFF;
+            result[i] = new AsciiString(data, pos + 1, len, false);
+            pos += len + 1;
+        }
+        return result;
+    }
+
+    @Override
+    public void write(CharSequence[] value, NameCodec names, ByteBuf into) throws IOException {
+        if (value.length == 0) {
+            // A TXT record must contain at least one (possibly empty) character-string
+            into.writeByte(0);
+            return;
+        }
+        for (CharSequence seq : value) {
+            int len = seq.length();
+            if (len > MAX_STRING_LENGTH) {
+                throw new TooLongFrameException("TXT character-string may not be longer than "
+                        + MAX_STRING_LENGTH + " bytes, but got " + len + ": '" + seq + "'");
+            }
+            into.writeByte(len);
+            if (seq instanceof AsciiString) {
+                AsciiString ascii = (AsciiString) seq;
+                into.writeBytes(ascii.array(), ascii.arrayOffset(), len);
+                continue;
+            }
+            for (int i = 0; i < len; i++) {
+                char c = seq.charAt(i);
+                if (c > 0xFF) {
+                    throw new IOException("Character '" + c + "' at " + i + " in '" + seq
+                            + "' cannot be encoded in a single byte");
+                }
+                into.writeByte(c);
+            }
+        }
+    }
+
+    @Override
+    public int encodedSize(CharSequence[] value) {
+        if (value.length == 0) {
+            return 1;
+        }
+        int result = 0;
+        for (CharSequence seq : value) {
+            result += seq.length() + 1;
+        }
+        return result;
+    }
+}
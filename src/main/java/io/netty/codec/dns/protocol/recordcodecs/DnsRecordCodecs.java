@@ -19,6 +19,8 @@ import io.netty.buffer.ByteBuf;
 import io.netty.codec.dns.protocol.CodecRegistry;
 import io.netty.codec.dns.protocol.DnsRecordCodec;
 import io.netty.codec.dns.protocol.optrecords.OptSubrecordType;
+import io.netty.codec.dns.protocol.types.AddressInterner;
+import io.netty.codec.dns.protocol.types.DnsName;
 import io.netty.codec.dns.protocol.types.Ipv4Address;
 import io.netty.codec.dns.protocol.types.Ipv6Address;
 import io.netty.codec.dns.protocol.types.Location;
@@ -28,8 +30,11 @@ import io.netty.codec.dns.protocol.types.OptRecords;
 import io.netty.codec.dns.protocol.types.ServiceDetails;
 import io.netty.codec.dns.protocol.types.StartOfAuthority;
 import io.netty.codec.dns.protocol.types.UriInfo;
+import io.netty.codec.dns.protocol.types.WireName;
+import java.util.BitSet;
 
 import static io.netty.codec.dns.protocol.OptSubrecordCodecRegistry.DEFAULT;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
 
 /**
  * Has static methods for fetching individual record codecs.
@@ -49,6 +54,17 @@ public final class DnsRecordCodecs {
         return new NSECRecordCodec();
     }
 
+    /**
+     * Get a codec for NSEC records which, if <code>normalizeNames</code> is true, decodes the next name as a
+     * {@link DnsName} where possible, ready for canonical ordering.
+     *
+     * @param normalizeNames Whether to normalize decoded names
+     * @return A codec
+     */
+    public static DnsRecordCodec<NextSecureRecord> nsec(boolean normalizeNames) {
+        return new NSECRecordCodec(normalizeNames);
+    }
+
     public static DnsRecordCodec<ByteBuf> fallback() {
         return FALLBACK;
     }
@@ -57,6 +73,15 @@ public final class DnsRecordCodecs {
         return new ServiceRecordCodec();
     }
 
+    /**
+     * Get a codec for SRV records which decodes the target as a {@link WireName}.
+     *
+     * @return A codec
+     */
+    public static DnsRecordCodec<ServiceDetails> serviceWithWireNames() {
+        return new ServiceRecordCodec(NameForm.WIRE);
+    }
+
     public static DnsRecordCodec<OptRecords> opt(CodecRegistry<OptSubrecordType> registry) {
         return new OptRecordCodec(registry);
     }
@@ -65,6 +90,27 @@ public final class DnsRecordCodecs {
         return new OptRecordCodec(DEFAULT);
     }
 
+    /**
+     * Get a codec for OPT records which decodes only the options of the passed types, leaving all others out of the
+     * decoded OptRecords - useful for servers which act on a few options and ignore the rest. Since skipped options
+     * are dropped, records decoded this way should not be relayed as-is.
+     *
+     * @param registry The registry of option codecs
+     * @param type An option type to decode
+     * @param more Any further option types to decode
+     * @return A codec
+     */
+    public static DnsRecordCodec<OptRecords> opt(CodecRegistry<OptSubrecordType> registry, OptSubrecordType type,
+            OptSubrecordType... more) {
+        checkNotNull(registry, "registry");
+        BitSet decode = new BitSet();
+        decode.set(checkNotNull(type, "type").intValue());
+        for (OptSubrecordType t : checkNotNull(more, "more")) {
+            decode.set(checkNotNull(t, "more").intValue());
+        }
+        return new OptRecordCodec(registry, decode);
+    }
+
     /**
      * Get a codec for DNS location records.
      *
@@ -83,6 +129,27 @@ public final class DnsRecordCodecs {
         return new NameRecordCodec();
     }
 
+    /**
+     * Get a codec for reading DNS names which, if <code>normalizeNames</code> is true, returns a {@link DnsName}
+     * for any name which can be represented as one.
+     *
+     * @param normalizeNames Whether to normalize decoded names
+     * @return A codec
+     */
+    public static DnsRecordCodec<CharSequence> name(boolean normalizeNames) {
+        return new NameRecordCodec(NameForm.of(normalizeNames));
+    }
+
+    /**
+     * Get a codec for reading DNS names which returns {@link WireName}s, whose text is only computed if it is asked
+     * for. Names read this way are copied byte-for-byte when written with a NameCodec that does not compress.
+     *
+     * @return A codec
+     */
+    public static DnsRecordCodec<CharSequence> nameWithWireNames() {
+        return new NameRecordCodec(NameForm.WIRE);
+    }
+
     /**
      * Get a codec for reading IPv4 addresses.
      *
@@ -92,6 +159,16 @@ public final class DnsRecordCodecs {
         return new Ipv4AddressRecordCodec();
     }
 
+    /**
+     * Get a codec for reading IPv4 addresses which returns shared instances from the passed interner.
+     *
+     * @param interner An interner, which may be shared with other codecs
+     * @return A codec
+     */
+    public static DnsRecordCodec<Ipv4Address> ipv4Address(AddressInterner interner) {
+        return new Ipv4AddressRecordCodec(checkNotNull(interner, "interner"));
+    }
+
     /**
      * Get a codec for reading IPv6 addresses.
      *
@@ -101,6 +178,16 @@ public final class DnsRecordCodecs {
         return new Ipv6AddressRecordCodec();
     }
 
+    /**
+     * Get a codec for reading IPv6 addresses which returns shared instances from the passed interner.
+     *
+     * @param interner An interner, which may be shared with other codecs
+     * @return A codec
+     */
+    public static DnsRecordCodec<Ipv6Address> ipv6Address(AddressInterner interner) {
+        return new Ipv6AddressRecordCodec(checkNotNull(interner, "interner"));
+    }
+
     /**
      * Get a codec for reading mail exchanger records.
      *
@@ -110,6 +197,15 @@ public final class DnsRecordCodecs {
         return new MailExchangerRecordCodec();
     }
 
+    /**
+     * Get a codec for mail exchanger records which decodes the exchanger as a {@link WireName}.
+     *
+     * @return A codec
+     */
+    public static DnsRecordCodec<MailExchanger> mailExchangerWithWireNames() {
+        return new MailExchangerRecordCodec(NameForm.WIRE);
+    }
+
     /**
      * Get a codec for reading DNS text records as arrays of strings, where
      * <ul>
@@ -130,6 +226,17 @@ public final class DnsRecordCodecs {
         return new TextRecordCodec();
     }
 
+    /**
+     * Get a codec for TXT records which maps each length-prefixed &lt;character-string&gt; in the record data to one
+     * array element, as RFC 1035 defines them - unlike {@link #text()}, which reads a single string and splits it on
+     * whitespace and quotes. Decoding copies the record data once, rather than once per string.
+     *
+     * @return A codec
+     */
+    public static DnsRecordCodec<CharSequence[]> characterStrings() {
+        return new CharacterStringsRecordCodec();
+    }
+
     /**
      * Get a codec for reading start of authority records.
      *
@@ -138,4 +245,24 @@ public final class DnsRecordCodecs {
     public static DnsRecordCodec<StartOfAuthority> startOfAuthority() {
         return new StartOfAuthorityRecordCodec();
     }
+
+    /**
+     * Get a codec for start of authority records which, if <code>normalizeNames</code> is true, decodes the name
+     * server and mailbox as {@link DnsName}s where possible.
+     *
+     * @param normalizeNames Whether to normalize decoded names
+     * @return A codec
+     */
+    public static DnsRecordCodec<StartOfAuthority> startOfAuthority(boolean normalizeNames) {
+        return new StartOfAuthorityRecordCodec(NameForm.of(normalizeNames));
+    }
+
+    /**
+     * Get a codec for start of authority records which decodes the name server and mailbox as {@link WireName}s.
+     *
+     * @return A codec
+     */
+    public static DnsRecordCodec<StartOfAuthority> startOfAuthorityWithWireNames() {
+        return new StartOfAuthorityRecordCodec(NameForm.WIRE);
+    }
 }
@@ -39,4 +39,8 @@ final class FallbackRecordCodec extends DnsRecordCodec<ByteBuf> {
         into.writeBytes(value);
     }
 
+    @Override
+    public int encodedSize(ByteBuf value) {
+        return value.readableBytes();
+    }
 }
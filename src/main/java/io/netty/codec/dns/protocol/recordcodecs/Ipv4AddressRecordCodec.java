@@ -17,6 +17,7 @@ package io.netty.codec.dns.protocol.recordcodecs;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.codec.dns.protocol.DnsRecordCodec;
+import io.netty.codec.dns.protocol.types.AddressInterner;
 import io.netty.codec.dns.protocol.types.Ipv4Address;
 import io.netty.handler.codec.dns.DnsDecoderException;
 import io.netty.handler.codec.dns.names.NameCodec;
@@ -24,13 +25,21 @@ import java.io.IOException;
 
 final class Ipv4AddressRecordCodec extends DnsRecordCodec<Ipv4Address> {
 
+    private final AddressInterner interner;
+
     Ipv4AddressRecordCodec() {
+        this(null);
+    }
+
+    Ipv4AddressRecordCodec(AddressInterner interner) {
         super(Ipv4Address.class);
+        this.interner = interner;
     }
 
     @Override
     public Ipv4Address read(ByteBuf buffer, NameCodec forReadingNames, int length) throws DnsDecoderException {
-        return new Ipv4Address(buffer.readInt());
+        int address = buffer.readInt();
+        return interner == null ? new Ipv4Address(address) : interner.ipv4(address);
     }
 
     @Override
@@ -38,4 +47,8 @@ final class Ipv4AddressRecordCodec extends DnsRecordCodec<Ipv4Address> {
         into.writeInt(value.intValue());
     }
 
+    @Override
+    public int encodedSize(Ipv4Address value) {
+        return 4;
+    }
 }
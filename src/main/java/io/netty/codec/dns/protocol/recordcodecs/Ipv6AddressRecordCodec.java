@@ -17,6 +17,7 @@ package io.netty.codec.dns.protocol.recordcodecs;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.codec.dns.protocol.DnsRecordCodec;
+import io.netty.codec.dns.protocol.types.AddressInterner;
 import io.netty.codec.dns.protocol.types.Ipv6Address;
 import io.netty.handler.codec.dns.DnsDecoderException;
 import io.netty.handler.codec.dns.names.NameCodec;
@@ -24,15 +25,22 @@ import java.io.IOException;
 
 final class Ipv6AddressRecordCodec extends DnsRecordCodec<Ipv6Address> {
 
+    private final AddressInterner interner;
+
     Ipv6AddressRecordCodec() {
+        this(null);
+    }
+
+    Ipv6AddressRecordCodec(AddressInterner interner) {
         super(Ipv6Address.class);
+        this.interner = interner;
     }
 
     @Override
     public Ipv6Address read(ByteBuf buffer, NameCodec forReadingNames, int length) throws DnsDecoderException {
         long high = buffer.readLong();
         long low = buffer.readLong();
-        return new Ipv6Address(high, low);
+        return interner == null ? new Ipv6Address(high, low) : interner.ipv6(high, low);
     }
 
     @Override
@@ -41,4 +49,8 @@ final class Ipv6AddressRecordCodec extends DnsRecordCodec<Ipv6Address> {
         into.writeLong(value.low());
     }
 
+    @Override
+    public int encodedSize(Ipv6Address value) {
+        return 16;
+    }
 }
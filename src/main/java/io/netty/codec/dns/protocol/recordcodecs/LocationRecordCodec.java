@@ -84,4 +84,8 @@ final class LocationRecordCodec extends DnsRecordCodec<Location> {
         into.writeInt((int) value.altitude());
     }
 
+    @Override
+    public int encodedSize(Location value) {
+        return 16;
+    }
 }
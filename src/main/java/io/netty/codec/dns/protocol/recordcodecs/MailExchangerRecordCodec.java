@@ -17,6 +17,7 @@ package io.netty.codec.dns.protocol.recordcodecs;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.codec.dns.protocol.DnsRecordCodec;
+import io.netty.codec.dns.protocol.RdataTemplate;
 import io.netty.codec.dns.protocol.types.MailExchanger;
 import io.netty.handler.codec.dns.DnsDecoderException;
 import io.netty.handler.codec.dns.names.NameCodec;
@@ -25,21 +26,38 @@ import java.nio.charset.UnmappableCharacterException;
 
 final class MailExchangerRecordCodec extends DnsRecordCodec<MailExchanger> {
 
+    private final NameForm form;
+
     MailExchangerRecordCodec() {
+        this(NameForm.TEXT);
+    }
+
+    MailExchangerRecordCodec(NameForm form) {
         super(MailExchanger.class);
+        this.form = form;
     }
 
     @Override
     public MailExchanger read(ByteBuf buf, NameCodec forReadingNames, int length) throws DnsDecoderException,
             UnmappableCharacterException {
         int pref = buf.readShort();
-        CharSequence mx = forReadingNames.readName(buf);
+        CharSequence mx = form.read(buf, forReadingNames);
         return new MailExchanger(pref, mx);
     }
 
     @Override
     public void write(MailExchanger value, NameCodec names, ByteBuf into) throws IOException {
         into.writeShort(value.pref());
-        names.writeName(value.mx(), into);
+        NameForm.write(value.mx(), names, into);
+    }
+
+    @Override
+    public RdataTemplate template(MailExchanger value) {
+        return RdataTemplate.builder().writeShort(value.pref()).writeName(value.mx()).build();
+    }
+
+    @Override
+    public int maxEncodedSize(MailExchanger value) {
+        return 2 + maxNameLength(value.mx());
     }
 }
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.recordcodecs;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.codec.dns.protocol.types.DnsName;
+import io.netty.codec.dns.protocol.types.WireName;
+import io.netty.handler.codec.dns.DnsDecoderException;
+import io.netty.handler.codec.dns.names.NameCodec;
+import java.io.IOException;
+import java.nio.charset.UnmappableCharacterException;
+
+import static io.netty.handler.codec.dns.names.NameCodecFeature.COMPRESSION;
+import static io.netty.handler.codec.dns.names.NameCodecFeature.MDNS_UTF_8;
+
+/**
+ * How a codec represents the names embedded in the record data it decodes.
+ */
+enum NameForm {
+    /**
+     * Whatever the message's NameCodec produces.
+     */
+    TEXT,
+    /**
+     * A {@link DnsName} where the name can be represented as one.
+     */
+    NORMALIZED,
+    /**
+     * A {@link WireName}, read directly from the buffer without going through the NameCodec.
+     */
+    WIRE;
+
+    static NameForm of(boolean normalizeNames) {
+        return normalizeNames ? NORMALIZED : TEXT;
+    }
+
+    CharSequence read(ByteBuf buf, NameCodec names) throws DnsDecoderException, UnmappableCharacterException {
+        switch (this) {
+            case NORMALIZED:
+                return DnsName.normalize(names.readName(buf));
+            case WIRE:
+                return WireName.read(buf);
+            default:
+                return names.readName(buf);
+        }
+    }
+
+    /**
+     * Write a name, copying its bytes if it is a WireName which the NameCodec would not have rewritten - that is,
+     * when the codec does not compress, and the name is ASCII or the codec writes UTF-8.
+     */
+    static void write(CharSequence name, NameCodec names, ByteBuf into) throws IOException {
+        if (name instanceof WireName && !COMPRESSION.isImplementedBy(names)
+                && (((WireName) name).isAscii() || MDNS_UTF_8.isImplementedBy(names))) {
+            ((WireName) name).writeTo(into);
+        } else {
+            names.writeName(name, into);
+        }
+    }
+}
@@ -17,6 +17,7 @@ package io.netty.codec.dns.protocol.recordcodecs;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.codec.dns.protocol.DnsRecordCodec;
+import io.netty.codec.dns.protocol.RdataTemplate;
 import io.netty.handler.codec.dns.DnsDecoderException;
 import io.netty.handler.codec.dns.names.NameCodec;
 import java.io.IOException;
@@ -24,19 +25,35 @@ import java.nio.charset.UnmappableCharacterException;
 
 final class NameRecordCodec extends DnsRecordCodec<CharSequence> {
 
+    private final NameForm form;
+
     NameRecordCodec() {
+        this(NameForm.TEXT);
+    }
+
+    NameRecordCodec(NameForm form) {
         super(CharSequence.class);
+        this.form = form;
     }
 
     @Override
     public CharSequence read(ByteBuf buffer, NameCodec forReadingNames, int length) throws DnsDecoderException,
             UnmappableCharacterException {
-        return forReadingNames.readName(buffer);
+        return form.read(buffer, forReadingNames);
     }
 
     @Override
     public void write(CharSequence value, NameCodec names, ByteBuf into) throws IOException {
-        names.writeName(value, into);
+        NameForm.write(value, names, into);
+    }
+
+    @Override
+    public RdataTemplate template(CharSequence value) {
+        return RdataTemplate.builder().writeName(value).build();
     }
 
+    @Override
+    public int maxEncodedSize(CharSequence value) {
+        return maxNameLength(value);
+    }
 }
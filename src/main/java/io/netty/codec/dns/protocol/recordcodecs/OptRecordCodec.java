@@ -18,60 +18,117 @@ package io.netty.codec.dns.protocol.recordcodecs;
 import io.netty.buffer.ByteBuf;
 import io.netty.codec.dns.protocol.CodecRegistry;
 import io.netty.codec.dns.protocol.DnsRecordCodec;
-import io.netty.codec.dns.protocol.optrecords.OptSubrecordCodecs;
+import io.netty.codec.dns.protocol.optrecords.OptRecordVisitor;
 import io.netty.codec.dns.protocol.optrecords.OptSubrecordType;
 import io.netty.codec.dns.protocol.types.OptRecords;
 import io.netty.codec.dns.protocol.types.OptSubrecord;
 import io.netty.handler.codec.dns.DnsDecoderException;
-import io.netty.handler.codec.dns.DnsResponseCode;
 import io.netty.handler.codec.dns.names.NameCodec;
 import java.io.IOException;
 import java.nio.charset.UnmappableCharacterException;
+import java.util.BitSet;
 
 import static io.netty.handler.codec.dns.DnsResponseCode.FORMERR;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
 
 public class OptRecordCodec extends DnsRecordCodec<OptRecords> {
 
+    private static final int OPTION_HEADER_LENGTH = 4;
+
     private final CodecRegistry<OptSubrecordType> optCodecs;
+    private final BitSet decode;
 
     OptRecordCodec(CodecRegistry<OptSubrecordType> optCodecs) {
+        this(optCodecs, null);
+    }
+
+    /**
+     * Create a codec which only decodes the options whose codes are set in the passed set, skipping the rest.
+     */
+    OptRecordCodec(CodecRegistry<OptSubrecordType> optCodecs, BitSet decode) {
         super(OptRecords.class);
         this.optCodecs = optCodecs;
+        this.decode = decode;
     }
 
     @Override
     public OptRecords read(ByteBuf from, NameCodec forReadingNames, int length) throws DnsDecoderException,
             UnmappableCharacterException, IOException {
-        int optRecordHead = from.readerIndex();
-
-        int endPosition = from.readerIndex() + length;
         if (length > from.readableBytes()) {
             throw new DnsDecoderException(FORMERR, "Opt payload length "
                     + length + " greater than remaining bytes in buffer "
                     + from.readableBytes());
         }
+        int endPosition = from.readerIndex() + length;
 
         OptRecords records = new OptRecords();
         while (from.readerIndex() < endPosition) {
             int thisRecordStart = from.readerIndex();
-            int type = from.readUnsignedShort();
-            int subdataLength = from.readUnsignedShort();
-            // Back up so the codec sees its data length
-//        from.readerIndex(from.readerIndex() - 2);
-            OptSubrecordType subrecordType = OptSubrecordType.valueOf(type);
-            DnsRecordCodec<?> codec = optCodecs.get(subrecordType);
-            ByteBuf readFrom = from;
-            if (OptSubrecordCodecs.isFallbackCodec(codec)) {
-                readFrom = from.slice(from.readerIndex(), length - (from.readerIndex() - optRecordHead));
+            int type = from.getUnsignedShort(thisRecordStart);
+            int subdataLength = optionLength(from, thisRecordStart, endPosition);
+            int next = thisRecordStart + OPTION_HEADER_LENGTH + subdataLength;
+            if (decode == null || decode.get(type)) {
+                from.readerIndex(thisRecordStart + OPTION_HEADER_LENGTH);
+                DnsRecordCodec<?> codec = optCodecs.get(type);
+                records.add(doRead(from, OptSubrecordType.valueOf(type), codec, forReadingNames, subdataLength));
             }
-            OptSubrecord<?> result = doRead(readFrom, subrecordType, codec, forReadingNames, subdataLength);
-//            from.readerIndex(optRecordHead + fullPayloadLength);
-            records.add(result);
-            from.readerIndex(thisRecordStart + subdataLength + 4);
+            from.readerIndex(next);
         }
         return records;
     }
 
+    /**
+     * Walk the options in OPT RDATA, passing the code, payload position and payload length of each to the visitor,
+     * without decoding any of them.
+     *
+     * @param rdata A buffer containing OPT RDATA
+     * @param index The index of the RDATA in the buffer
+     * @param length The length of the RDATA
+     * @param visitor A visitor
+     * @return The number of options visited
+     * @throws DnsDecoderException If an option header is truncated or an option's length runs past the end of the
+     * RDATA
+     * @throws IOException If the visitor throws it
+     */
+    public static int visit(ByteBuf rdata, int index, int length, OptRecordVisitor visitor)
+            throws DnsDecoderException, IOException {
+        checkNotNull(rdata, "rdata");
+        checkNotNull(visitor, "visitor");
+        int end = index + length;
+        if (index < 0 || length < 0 || end > rdata.writerIndex()) {
+            throw new DnsDecoderException(FORMERR, "Opt payload of " + length + " bytes at " + index
+                    + " runs past the end of the buffer at " + rdata.writerIndex());
+        }
+        int readerIndex = rdata.readerIndex();
+        int count = 0;
+        try {
+            for (int pos = index; pos < end; count++) {
+                int optionLength = optionLength(rdata, pos, end);
+                if (!visitor.visitOption(rdata, rdata.getUnsignedShort(pos), pos + OPTION_HEADER_LENGTH,
+                        optionLength)) {
+                    return count + 1;
+                }
+                pos += OPTION_HEADER_LENGTH + optionLength;
+            }
+        } finally {
+            rdata.readerIndex(readerIndex);
+        }
+        return count;
+    }
+
+    private static int optionLength(ByteBuf buf, int optionStart, int end) throws DnsDecoderException {
+        if (end - optionStart < OPTION_HEADER_LENGTH) {
+            throw new DnsDecoderException(FORMERR, "Truncated option header at " + optionStart
+                    + " - only " + (end - optionStart) + " bytes remain");
+        }
+        int result = buf.getUnsignedShort(optionStart + 2);
+        if (result > end - optionStart - OPTION_HEADER_LENGTH) {
+            throw new DnsDecoderException(FORMERR, "Option " + buf.getUnsignedShort(optionStart) + " of length "
+                    + result + " runs past the end of the OPT record");
+        }
+        return result;
+    }
+
     private <T> OptSubrecord<T> doRead(ByteBuf from, OptSubrecordType ofType,
             DnsRecordCodec<T> with, NameCodec forReadingNames, int subdataLength) throws
             UnmappableCharacterException, IOException {
@@ -89,20 +146,60 @@ public class OptRecordCodec extends DnsRecordCodec<OptRecords> {
 
     private <T> void doWrite(OptSubrecord<T> value, NameCodec names, ByteBuf into) throws IOException {
         OptSubrecordType subrecordType = value.type();
-        DnsRecordCodec<T> codec = (DnsRecordCodec<T>) optCodecs.get(subrecordType); //XXX cast
-        int recordBodyTop = into.writerIndex();
-//        into.writeShort(0); // come back for this
-//        int recordContentStart = into.writerIndex();
+        DnsRecordCodec<T> codec = codecFor(value);
         into.writeShort(subrecordType.intValue());
+        int size = codec.encodedSize(value.content());
+        if (size >= 0) {
+            into.writeShort(size);
+            codec.write(value.content(), names, into);
+            return;
+        }
+        int lengthOffset = into.writerIndex();
         into.writeShort(0); // come back for this
         codec.write(value.content(), names, into);
         int recordBodyTail = into.writerIndex();
-        int bodyLength = recordBodyTail - (recordBodyTop + 2);
         try {
-            into.writerIndex(recordBodyTop + 2);
-            into.writeShort(bodyLength - 2);
+            into.writerIndex(lengthOffset);
+            into.writeShort(recordBodyTail - (lengthOffset + 2));
         } finally {
             into.writerIndex(recordBodyTail);
         }
     }
+
+    @SuppressWarnings("unchecked")
+    private <T> DnsRecordCodec<T> codecFor(OptSubrecord<T> value) {
+        return (DnsRecordCodec<T>) optCodecs.get(value.type().intValue()); //XXX cast
+    }
+
+    @Override
+    public int encodedSize(OptRecords value) {
+        int result = 0;
+        for (OptSubrecord<?> subrecord : value) {
+            int size = subrecordSize(subrecord, false);
+            if (size < 0) {
+                return -1;
+            }
+            result += size;
+        }
+        return result;
+    }
+
+    @Override
+    public int maxEncodedSize(OptRecords value) {
+        int result = 0;
+        for (OptSubrecord<?> subrecord : value) {
+            int size = subrecordSize(subrecord, true);
+            if (size < 0) {
+                return -1;
+            }
+            result += size;
+        }
+        return result;
+    }
+
+    private <T> int subrecordSize(OptSubrecord<T> subrecord, boolean max) {
+        DnsRecordCodec<T> codec = codecFor(subrecord);
+        int size = max ? codec.maxEncodedSize(subrecord.content()) : codec.encodedSize(subrecord.content());
+        return size < 0 ? -1 : size + 4;
+    }
 }
@@ -16,6 +16,7 @@
 package io.netty.codec.dns.protocol.recordcodecs;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.codec.dns.protocol.RdataTemplate;
 import io.netty.codec.dns.protocol.RecordFactoryCodec;
 import io.netty.codec.dns.protocol.ServiceRecord;
 import io.netty.codec.dns.protocol.TypedDnsRecord;
@@ -33,8 +34,15 @@ import static io.netty.handler.codec.dns.DnsRecordDecoder.MDNS_UNICAST_RESPONSE_
 
 final class ServiceRecordCodec extends RecordFactoryCodec<ServiceDetails> {
 
+    private final NameForm form;
+
     ServiceRecordCodec() {
+        this(NameForm.TEXT);
+    }
+
+    ServiceRecordCodec(NameForm form) {
         super(ServiceDetails.class);
+        this.form = form;
     }
 
     @Override
@@ -43,7 +51,7 @@ final class ServiceRecordCodec extends RecordFactoryCodec<ServiceDetails> {
         int priority = from.readUnsignedShort();
         int weight = from.readUnsignedShort();
         int port = from.readUnsignedShort();
-        CharSequence name = forReadingNames.readName(from);
+        CharSequence name = form.read(from, forReadingNames);
         return new ServiceDetails(priority, weight, port, name);
     }
 
@@ -52,7 +60,7 @@ final class ServiceRecordCodec extends RecordFactoryCodec<ServiceDetails> {
         into.writeShort(value.priority);
         into.writeShort(value.weight);
         into.writeShort(value.port);
-        names.writeName(value.name, into);
+        NameForm.write(value.name, names, into);
     }
 
     @Override
@@ -68,4 +76,19 @@ final class ServiceRecordCodec extends RecordFactoryCodec<ServiceDetails> {
         ServiceLocation loc = new ServiceLocation(name);
         return new ServiceRecord(loc, details, timeToLive, dnsClass, isUnicastResponse);
     }
+
+    @Override
+    public RdataTemplate template(ServiceDetails value) {
+        return RdataTemplate.builder()
+                .writeShort(value.priority)
+                .writeShort(value.weight)
+                .writeShort(value.port)
+                .writeName(value.name)
+                .build();
+    }
+
+    @Override
+    public int maxEncodedSize(ServiceDetails value) {
+        return 6 + maxNameLength(value.name);
+    }
 }
@@ -17,6 +17,7 @@ package io.netty.codec.dns.protocol.recordcodecs;
 
 import io.netty.buffer.ByteBuf;
 import io.netty.codec.dns.protocol.DnsRecordCodec;
+import io.netty.codec.dns.protocol.RdataTemplate;
 import io.netty.codec.dns.protocol.types.StartOfAuthority;
 import io.netty.handler.codec.dns.DnsDecoderException;
 import io.netty.handler.codec.dns.names.NameCodec;
@@ -25,15 +26,22 @@ import java.nio.charset.UnmappableCharacterException;
 
 final class StartOfAuthorityRecordCodec extends DnsRecordCodec<StartOfAuthority> {
 
+    private final NameForm form;
+
     StartOfAuthorityRecordCodec() {
+        this(NameForm.TEXT);
+    }
+
+    StartOfAuthorityRecordCodec(NameForm form) {
         super(StartOfAuthority.class);
+        this.form = form;
     }
 
     @Override
     public StartOfAuthority read(ByteBuf buf, NameCodec forReadingNames, int length) throws DnsDecoderException,
             UnmappableCharacterException {
-        CharSequence primaryNs = forReadingNames.readName(buf);
-        CharSequence adminMailbox = forReadingNames.readName(buf);
+        CharSequence primaryNs = form.read(buf, forReadingNames);
+        CharSequence adminMailbox = form.read(buf, forReadingNames);
         long serialNumber = DnsRecordCodec.toUnsignedLong(buf.readInt());
         long refreshInterval = DnsRecordCodec.toUnsignedLong(buf.readInt());
         long retryInterval = DnsRecordCodec.toUnsignedLong(buf.readInt());
@@ -45,8 +53,8 @@ final class StartOfAuthorityRecordCodec extends DnsRecordCodec<StartOfAuthority>
 
     @Override
     public void write(StartOfAuthority auth, NameCodec writer, ByteBuf buf) throws IOException {
-        writer.writeName(auth.primaryNs, buf);
-        writer.writeName(auth.adminMailbox, buf);
+        NameForm.write(auth.primaryNs, writer, buf);
+        NameForm.write(auth.adminMailbox, writer, buf);
         buf.writeInt((int) auth.serialNumber);
         buf.writeInt((int) auth.refreshInterval);
         buf.writeInt((int) auth.retryInterval);
@@ -54,4 +62,21 @@ final class StartOfAuthorityRecordCodec extends DnsRecordCodec<StartOfAuthority>
         buf.writeInt((int) auth.minimumTtl);
     }
 
+    @Override
+    public RdataTemplate template(StartOfAuthority auth) {
+        return RdataTemplate.builder()
+                .writeName(auth.primaryNs)
+                .writeName(auth.adminMailbox)
+                .writeInt(auth.serialNumber)
+                .writeInt(auth.refreshInterval)
+                .writeInt(auth.retryInterval)
+                .writeInt(auth.expirationLimit)
+                .writeInt(auth.minimumTtl)
+                .build();
+    }
+
+    @Override
+    public int maxEncodedSize(StartOfAuthority auth) {
+        return 20 + maxNameLength(auth.primaryNs) + maxNameLength(auth.adminMailbox);
+    }
 }
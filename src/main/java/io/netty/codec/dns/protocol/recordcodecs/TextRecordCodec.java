@@ -64,7 +64,7 @@ final class TextRecordCodec extends DnsRecordCodec<CharSequence[]> {
         boolean precedingBackslash = false;
         boolean inElement = false;
 
-        ByteBuf currString = from.alloc().buffer(bytes, 255);
+        ByteBuf currString = Unpooled.buffer(bytes, 255);
         boolean lastWasQuoteOrWhitespace = true;
         for (int i = 0; i < bytes; i++) {
             // Read one character as ASCII
@@ -121,62 +121,78 @@ final class TextRecordCodec extends DnsRecordCodec<CharSequence[]> {
     }
 
     @Override
-    public void write(CharSequence[] value, NameCodec names, ByteBuf into) throws TooLongFrameException, IOException {
-        // Store the position of where we'll writePseudoRecord the byte count
-        int lengthOffset = into.writerIndex();
-        // Write a dummy 0 value for now - we'll come back to it once we have a total
-        into.writeByte(0);
-        int cumulativeLength = 0;
-        // Iterate over the strings
+    public int encodedSize(CharSequence[] value) {
+        return 1 + contentLength(value);
+    }
+
+    /**
+     * Compute the length of the single character-string this codec writes: elements without quotes or whitespace are
+     * written as-is and space-delimited;  others are quoted, with internal quotes escaped.
+     */
+    private static int contentLength(CharSequence[] value) {
+        int result = 0;
         for (int j = 0; j < value.length; j++) {
             CharSequence seq = value[j];
             int len = seq.length();
             boolean canEncodeRaw = true;
-            // Scan for whether we can copy the data as-is or whether it needs quoting or
-            // escaping, and check for illegal characters
+            int quotes = 0;
+            for (int i = 0; i < len; i++) {
+                char c = seq.charAt(i);
+                if (c == '"') {
+                    canEncodeRaw = false;
+                    quotes++;
+                } else if (Character.isWhitespace(c)) {
+                    canEncodeRaw = false;
+                }
+            }
+            if (canEncodeRaw) {
+                result += j != value.length - 1 ? len + 1 : len;
+            } else {
+                result += len + quotes + 2;
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void write(CharSequence[] value, NameCodec names, ByteBuf into) throws TooLongFrameException, IOException {
+        // Check for illegal characters
+        for (CharSequence seq : value) {
+            int len = seq.length();
             for (int i = 0; i < len; i++) {
                 char c = seq.charAt(i);
                 if (!ASCII_ENCODER.canEncode(c)) {
                     throw new IOException("Character '" + c + " at " + i + " in '" + seq
                             + "' cannot be encoded in ASCII");
                 }
-                if (c == '"' || Character.isWhitespace(c)) {
-                    canEncodeRaw = false;
-                }
+            }
+        }
+        // The length is known up front, so there is no need to go back and patch it in
+        int length = contentLength(value);
+        if (length > 255) {
+            throw new TooLongFrameException("Maximum TXT record length exceeded - encoding would result in "
+                    + length + " bytes, which would make the length field wrap around zero. Max is 255, "
+                    + "including any escapes of quotes and delimiters");
+        }
+        into.writeByte(length);
+        for (int j = 0; j < value.length; j++) {
+            CharSequence seq = value[j];
+            boolean canEncodeRaw = true;
+            for (int i = 0; i < seq.length() && canEncodeRaw; i++) {
+                char c = seq.charAt(i);
+                canEncodeRaw = c != '"' && !Character.isWhitespace(c);
             }
             if (canEncodeRaw) {
-                // If the number of bytes will exceed 255, get out - we can't record a length
-                // field longer than 255 in one byte
-                if (cumulativeLength + seq.length() > 255) {
-                    throw new TooLongFrameException("Maximum TXT record length reached - appending '" + seq
-                            + "' + would result in " + (cumulativeLength + seq.length()
-                            + " bytes, which would make the length field wrap around zero. Max is 255, "
-                            + "including any escapes of quotes and delimiters"));
-                }
                 // Raw copy the data
-                cumulativeLength = ByteBufUtil.writeAscii(into, seq);
+                ByteBufUtil.writeAscii(into, seq);
                 // Add a delimiter
                 if (j != value.length - 1) {
                     into.writeByte(' ');
-                    cumulativeLength++;
                 }
             } else {
                 // Add quotes and escape any internal quotes
-                String s = '"' + seq.toString().replace("\"", "\\\"") + '"';
-                if (s.length() + cumulativeLength > 255) {
-                    throw new TooLongFrameException("Maximum TXT record length reached - appending '" + s
-                            + "' + would result in " + (cumulativeLength + s.length()
-                            + " bytes, which would make the length field wrap around zero. Max is 255, "
-                            + "including any escapes of quotes and delimiters"));
-                }
-                cumulativeLength += ByteBufUtil.writeAscii(into, s);
+                ByteBufUtil.writeAscii(into, '"' + seq.toString().replace("\"", "\\\"") + '"');
             }
         }
-        int endOffset = into.writerIndex();
-        int bytesWritten = endOffset - (lengthOffset + 1);
-        into.writerIndex(lengthOffset);
-        into.writeByte(bytesWritten);
-        into.writerIndex(endOffset);
     }
-
 }
@@ -57,4 +57,9 @@ class UriRecordCodec extends DnsRecordCodec<UriInfo> {
         into.writeByte(value.uri.length());
         ByteBufUtil.writeAscii(into, value.uri);
     }
+
+    @Override
+    public int encodedSize(UriInfo value) {
+        return 5 + value.uri.length();
+    }
 }
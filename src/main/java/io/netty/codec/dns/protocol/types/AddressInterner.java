@@ -0,0 +1,127 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.types;
+
+import io.netty.util.internal.MathUtil;
+
+/**
+ * A bounded pool of Ipv4Address and Ipv6Address instances, so that decoding the same addresses over and over
+ * returns shared instances rather than allocating a new one per record.
+ * <p>
+ * The pool is a pair of open-addressed tables probed a few slots from a hash of the address; when all of those
+ * slots are taken, one is overwritten. No locks or atomic operations are used: addresses are immutable, so a thread
+ * that reads a stale or missing entry simply creates a new instance, and the worst case is a duplicate.
+ */
+public final class AddressInterner {
+
+    public static final int DEFAULT_CAPACITY = 4096;
+    private static final int PROBES = 4;
+
+    private final Ipv4Address[] ipv4;
+    private final Ipv6Address[] ipv6;
+    private final int mask;
+
+    public AddressInterner() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Create an interner.
+     *
+     * @param capacity The number of addresses of each family to retain, rounded up to a power of two
+     */
+    public AddressInterner(int capacity) {
+        if (capacity < PROBES || capacity > 1 << 24) {
+            throw new IllegalArgumentException("Capacity must be between " + PROBES + " and " + (1 << 24)
+                    + " but is " + capacity);
+        }
+        int size = MathUtil.findNextPositivePowerOfTwo(capacity);
+        this.ipv4 = new Ipv4Address[size];
+        this.ipv6 = new Ipv6Address[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * Get a shared Ipv4Address for the passed value.
+     *
+     * @param address An address as an int
+     * @return An address
+     */
+    public Ipv4Address ipv4(int address) {
+        Ipv4Address[] table = ipv4;
+        int slot = mix(address);
+        int empty = -1;
+        for (int i = 0; i < PROBES; i++) {
+            int index = (slot + i) & mask;
+            Ipv4Address existing = table[index];
+            if (existing == null) {
+                if (empty < 0) {
+                    empty = index;
+                }
+            } else if (existing.intValue() == address) {
+                return existing;
+            }
+        }
+        Ipv4Address result = new Ipv4Address(address);
+        table[empty >= 0 ? empty : victim(slot)] = result;
+        return result;
+    }
+
+    /**
+     * Get a shared Ipv6Address for the passed value.
+     *
+     * @param high The high 64 bits of the address
+     * @param low The low 64 bits of the address
+     * @return An address
+     */
+    public Ipv6Address ipv6(long high, long low) {
+        Ipv6Address[] table = ipv6;
+        long hash = high ^ low;
+        int slot = mix((int) (hash ^ (hash >>> 32)));
+        int empty = -1;
+        for (int i = 0; i < PROBES; i++) {
+            int index = (slot + i) & mask;
+            Ipv6Address existing = table[index];
+            if (existing == null) {
+                if (empty < 0) {
+                    empty = index;
+                }
+            } else if (existing.low() == low && existing.high() == high) {
+                return existing;
+            }
+        }
+        Ipv6Address result = new Ipv6Address(high, low);
+        table[empty >= 0 ? empty : victim(slot)] = result;
+        return result;
+    }
+
+    private int victim(int slot) {
+        // Pick the probe slot to evict from bits 24 and 25 of the hash, which the mask never uses since tables hold at
+        // most 2^24 entries, so that addresses colliding in the same slots evict different ones without shared state
+        return (slot + (slot >>> 24 & PROBES - 1)) & mask;
+    }
+
+    private static int mix(int value) {
+        // Murmur3 finalizer - addresses in the same subnet differ only in their low bits
+        int h = value;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return h;
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.types;
+
+import java.util.Comparator;
+
+/**
+ * Orders DNS names in RFC 4034 section 6.1 canonical order: label by label starting from the rightmost, comparing
+ * labels as unsigned UTF-8 octets with only ASCII letters folded to lower case, with a name sorting before any name
+ * it is a suffix of. Trailing dots are ignored. Names are compared in place, without allocating, and pairs of
+ * {@link DnsName}s are compared by their bytes.
+ */
+public final class CanonicalNameComparator implements Comparator<CharSequence> {
+
+    public static final CanonicalNameComparator INSTANCE = new CanonicalNameComparator();
+
+    private CanonicalNameComparator() {
+    }
+
+    @Override
+    public int compare(CharSequence a, CharSequence b) {
+        if (a instanceof DnsName && b instanceof DnsName) {
+            return ((DnsName) a).compareTo((DnsName) b);
+        }
+        int aEnd = nameEnd(a);
+        int bEnd = nameEnd(b);
+        while (aEnd > 0 && bEnd > 0) {
+            int aStart = labelStart(a, aEnd);
+            int bStart = labelStart(b, bEnd);
+            int result = compareLabels(a, aStart, aEnd, b, bStart, bEnd);
+            if (result != 0) {
+                return result;
+            }
+            aEnd = aStart - 1;
+            bEnd = bStart - 1;
+        }
+        boolean aMore = aEnd > 0;
+        return aMore == bEnd > 0 ? 0 : aMore ? 1 : -1;
+    }
+
+    /**
+     * Determine if a name is the same as, or a subdomain of, another name.
+     *
+     * @param name A name
+     * @param ancestor A possible ancestor of the name
+     * @return true if every label of the ancestor matches the corresponding rightmost label of the name
+     */
+    public static boolean isAtOrBelow(CharSequence name, CharSequence ancestor) {
+        if (name instanceof DnsName && ancestor instanceof DnsName) {
+            return ((DnsName) name).isAtOrBelow((DnsName) ancestor);
+        }
+        int nameEnd = nameEnd(name);
+        int ancestorEnd = nameEnd(ancestor);
+        while (ancestorEnd > 0) {
+            if (nameEnd <= 0) {
+                return false;
+            }
+            int nameStart = labelStart(name, nameEnd);
+            int ancestorStart = labelStart(ancestor, ancestorEnd);
+            if (compareLabels(name, nameStart, nameEnd, ancestor, ancestorStart, ancestorEnd) != 0) {
+                return false;
+            }
+            nameEnd = nameStart - 1;
+            ancestorEnd = ancestorStart - 1;
+        }
+        return true;
+    }
+
+    private static int nameEnd(CharSequence name) {
+        int length = name.length();
+        return length > 0 && name.charAt(length - 1) == '.' ? length - 1 : length;
+    }
+
+    private static int labelStart(CharSequence name, int end) {
+        for (int i = end - 1; i >= 0; i--) {
+            if (name.charAt(i) == '.') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    // Compares code points rather than chars: UTF-8 preserves code point order, so this orders non-ASCII labels
+    // by their wire octets without encoding them, where comparing UTF-16 chars would put supplementary characters
+    // before U+E000..U+FFFF
+    private static int compareLabels(CharSequence a, int aStart, int aEnd, CharSequence b, int bStart, int bEnd) {
+        int i = aStart;
+        int j = bStart;
+        while (i < aEnd && j < bEnd) {
+            int aCodePoint = codePointAt(a, i, aEnd);
+            int bCodePoint = codePointAt(b, j, bEnd);
+            int diff = toLowerCase(aCodePoint) - toLowerCase(bCodePoint);
+            if (diff != 0) {
+                return diff;
+            }
+            i += Character.charCount(aCodePoint);
+            j += Character.charCount(bCodePoint);
+        }
+        return i < aEnd ? 1 : j < bEnd ? -1 : 0;
+    }
+
+    private static int codePointAt(CharSequence s, int index, int end) {
+        char c = s.charAt(index);
+        if (Character.isHighSurrogate(c) && index + 1 < end) {
+            char low = s.charAt(index + 1);
+            if (Character.isLowSurrogate(low)) {
+                return Character.toCodePoint(c, low);
+            }
+        }
+        return c;
+    }
+
+    private static int toLowerCase(int c) {
+        return c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c;
+    }
+}
@@ -15,42 +15,182 @@
  */
 package io.netty.codec.dns.protocol.types;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.dns.DnsDecoderException;
 import java.net.InetAddress;
 
+import static io.netty.handler.codec.dns.DnsResponseCode.FORMERR;
 import static io.netty.util.internal.ObjectUtil.checkNotNull;
-import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
 
 /**
- * Used in OPT EDNS Client subnet records.
+ * Used in OPT EDNS Client subnet records. The address is held as primitives, with any bits beyond the source prefix
+ * length cleared, as RFC 7871 requires on the wire; the address object is only created if asked for.
  *
  * @param <T> The address type
  */
 public final class ClientSubnet<T> {
 
+    // http://www.iana.org/assignments/address-family-numbers/address-family-numbers.xhtml
+    private static final int IPV4_FAMILY = 1;
+    private static final int IPV6_FAMILY = 2;
+
+    private final boolean ipv4;
     private final int sourcePrefixLength;
     private final int scopePrefixLength;
-    private final T address;
+    private final long high;
+    private final long low;
+    private T address;
+
+    private ClientSubnet(boolean ipv4, long high, long low, int sourcePrefixLength, int scopePrefixLength,
+            T address) {
+        checkPrefixLength(ipv4, sourcePrefixLength, "sourcePrefixLength");
+        checkPrefixLength(ipv4, scopePrefixLength, "scopePrefixLength");
+        this.ipv4 = ipv4;
+        this.sourcePrefixLength = sourcePrefixLength;
+        this.scopePrefixLength = scopePrefixLength;
+        this.high = high & Ipv6Address.prefixMaskHigh(sourcePrefixLength);
+        this.low = low & Ipv6Address.prefixMaskLow(sourcePrefixLength);
+        // Only keep the passed address if masking did not change it
+        this.address = this.high == high && this.low == low ? address : null;
+    }
 
-    private ClientSubnet(int sourcePrefixLength, int scopePrefixLength, T address) {
-        this.sourcePrefixLength = checkPositiveOrZero(sourcePrefixLength, "sourcePrefixLength");
-        this.scopePrefixLength = checkPositiveOrZero(scopePrefixLength, "scopePrefixLength");
-        this.address = checkNotNull(address, "address");
+    private static void checkPrefixLength(boolean ipv4, int prefixLength, String name) {
+        if (prefixLength < 0 || prefixLength > bits(ipv4)) {
+            throw new IllegalArgumentException(name + " must be between 0 and " + bits(ipv4) + " but is "
+                    + prefixLength);
+        }
     }
 
     public static ClientSubnet<Ipv4Address> ipv4(Ipv4Address addr, int sourcePrefixLength, int scopePrefixLength) {
-        return new ClientSubnet<>(sourcePrefixLength, scopePrefixLength, addr);
+        return new ClientSubnet<>(true, (long) checkNotNull(addr, "addr").intValue() << 32, 0, sourcePrefixLength,
+                scopePrefixLength, addr);
+    }
+
+    public static ClientSubnet<Ipv4Address> ipv4(int addr, int sourcePrefixLength, int scopePrefixLength) {
+        return new ClientSubnet<>(true, (long) addr << 32, 0, sourcePrefixLength, scopePrefixLength, null);
     }
 
     public static ClientSubnet<Ipv6Address> ipv6(Ipv6Address addr, int sourcePrefixLength, int scopePrefixLength) {
-        return new ClientSubnet<>(sourcePrefixLength, scopePrefixLength, addr);
+        checkNotNull(addr, "addr");
+        return new ClientSubnet<>(false, addr.high(), addr.low(), sourcePrefixLength, scopePrefixLength, addr);
+    }
+
+    public static ClientSubnet<Ipv6Address> ipv6(long high, long low, int sourcePrefixLength,
+            int scopePrefixLength) {
+        return new ClientSubnet<>(false, high, low, sourcePrefixLength, scopePrefixLength, null);
     }
 
     public static ClientSubnet<Ipv4Address> ipv4forQuery(Ipv4Address addr, int sourcePrefixLength) {
-        return new ClientSubnet<>(sourcePrefixLength, 0, addr);
+        return ipv4(addr, sourcePrefixLength, 0);
     }
 
     public static ClientSubnet<Ipv6Address> ipv6forQuery(Ipv6Address addr, int sourcePrefixLength) {
-        return new ClientSubnet<>(sourcePrefixLength, 0, addr);
+        return ipv6(addr, sourcePrefixLength, 0);
+    }
+
+    /**
+     * Read the payload of an ECS option, which contains only as many address bytes as the source prefix length needs.
+     *
+     * @param from A buffer
+     * @param length The option length
+     * @return A subnet
+     * @throws DnsDecoderException if the family is unknown, a prefix length is too long for it, or the option length
+     * does not match the source prefix length
+     */
+    public static ClientSubnet<?> read(ByteBuf from, int length) throws DnsDecoderException {
+        MutableClientSubnet parsed = read(from, length, new MutableClientSubnet());
+        return new ClientSubnet<>(parsed.isIpv4(), parsed.high(), parsed.low(), parsed.sourcePrefixLength(),
+                parsed.scopePrefixLength(), null);
+    }
+
+    /**
+     * Read the payload of an ECS option into a MutableClientSubnet, which is left unchanged if the option is
+     * malformed.
+     */
+    static MutableClientSubnet read(ByteBuf from, int length, MutableClientSubnet into) throws DnsDecoderException {
+        if (length < 4) {
+            throw new DnsDecoderException(FORMERR, "ECS option is only " + length + " bytes long");
+        }
+        boolean ipv4 = familyIsIpv4(from.readUnsignedShort());
+        int sourcePrefixLength = from.readUnsignedByte();
+        int scopePrefixLength = from.readUnsignedByte();
+        checkHeader(ipv4, sourcePrefixLength, scopePrefixLength, length);
+        int addressLength = addressLength(sourcePrefixLength);
+        long high = readAddressBytes(from, Math.min(addressLength, 8));
+        long low = readAddressBytes(from, addressLength - Math.min(addressLength, 8));
+        return into.set(ipv4, high & Ipv6Address.prefixMaskHigh(sourcePrefixLength),
+                low & Ipv6Address.prefixMaskLow(sourcePrefixLength), sourcePrefixLength, scopePrefixLength);
+    }
+
+    private static boolean familyIsIpv4(int family) throws DnsDecoderException {
+        switch (family) {
+            case IPV4_FAMILY:
+                return true;
+            case IPV6_FAMILY:
+                return false;
+            default:
+                throw new DnsDecoderException(FORMERR, "Unknown address type " + Integer.toHexString(family));
+        }
+    }
+
+    private static void checkHeader(boolean ipv4, int sourcePrefixLength, int scopePrefixLength, int length)
+            throws DnsDecoderException {
+        if (sourcePrefixLength > bits(ipv4) || scopePrefixLength > bits(ipv4)) {
+            throw new DnsDecoderException(FORMERR, "ECS prefix lengths " + sourcePrefixLength + " and "
+                    + scopePrefixLength + " are too long for " + (ipv4 ? "IPv4" : "IPv6"));
+        }
+        if (length != 4 + addressLength(sourcePrefixLength)) {
+            throw new DnsDecoderException(FORMERR, "ECS option is " + length + " bytes long but a /"
+                    + sourcePrefixLength + " prefix needs " + (4 + addressLength(sourcePrefixLength)));
+        }
+    }
+
+    /**
+     * Read up to 8 address bytes into the top of a long.
+     */
+    private static long readAddressBytes(ByteBuf from, int count) {
+        long result = 0;
+        for (int i = 0; i < Long.SIZE / Byte.SIZE; i++) {
+            result = result << Byte.SIZE | (i < count ? from.readUnsignedByte() : 0);
+        }
+        return result;
+    }
+
+    static void write(ByteBuf into, boolean ipv4, long high, long low, int sourcePrefixLength,
+            int scopePrefixLength) {
+        into.writeShort(ipv4 ? IPV4_FAMILY : IPV6_FAMILY);
+        into.writeByte(sourcePrefixLength);
+        into.writeByte(scopePrefixLength);
+        int addressLength = addressLength(sourcePrefixLength);
+        for (int i = 0; i < addressLength; i++) {
+            into.writeByte((int) (i < 8 ? high >>> 56 - 8 * i : low >>> 120 - 8 * i));
+        }
+    }
+
+    static int addressLength(int prefixLength) {
+        return (prefixLength + Byte.SIZE - 1) / Byte.SIZE;
+    }
+
+    static int bits(boolean ipv4) {
+        return ipv4 ? 32 : 128;
+    }
+
+    /**
+     * Write this subnet as the payload of an ECS option.
+     *
+     * @param into A buffer
+     */
+    public void writeTo(ByteBuf into) {
+        write(into, ipv4, high, low, sourcePrefixLength, scopePrefixLength);
+    }
+
+    /**
+     * The length of this subnet as the payload of an ECS option.
+     *
+     * @return A byte count
+     */
+    public int encodedLength() {
+        return 4 + addressLength(sourcePrefixLength);
     }
 
     public int sourcePrefixLength() {
@@ -58,7 +198,7 @@ public final class ClientSubnet<T> {
     }
 
     public boolean isIpv4() {
-        return address instanceof Ipv4Address;
+        return ipv4;
     }
 
     /**
@@ -68,24 +208,43 @@ public final class ClientSubnet<T> {
         return scopePrefixLength;
     }
 
+    /**
+     * The high 64 bits of the address; an IPv4 address occupies the upper 32 bits.
+     *
+     * @return The bits
+     */
+    public long high() {
+        return high;
+    }
+
+    /**
+     * The low 64 bits of the address, which are always zero for IPv4.
+     *
+     * @return The bits
+     */
+    public long low() {
+        return low;
+    }
+
     /**
      * Returns the bytes of the {@link InetAddress} to use.
      */
+    @SuppressWarnings("unchecked")
     public T address() {
-        return address;
+        T result = address;
+        if (result == null) {
+            result = (T) (ipv4 ? new Ipv4Address((int) (high >>> 32)) : new Ipv6Address(high, low));
+            address = result;
+        }
+        return result;
     }
 
     public byte[] addressAsBytes() {
-        if (address instanceof Ipv4Address) {
-            Ipv4Address addr = (Ipv4Address) address();
-            return addr.toByteArray();
-        } else if (address instanceof Ipv6Address) {
-            Ipv6Address addr = (Ipv6Address) address();
-            return addr.toByteArray();
-        } else {
-            throw new IllegalStateException("Address is neither an ipv4 "
-                    + "nor ipv6 address");
+        byte[] result = new byte[bits(ipv4) / Byte.SIZE];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = (byte) (i < 8 ? high >>> 56 - 8 * i : low >>> 120 - 8 * i);
         }
+        return result;
     }
 
     @Override
@@ -93,8 +252,8 @@ public final class ClientSubnet<T> {
         int hash = 7;
         hash = 13 * hash + sourcePrefixLength;
         hash = 13 * hash + scopePrefixLength;
-        hash = 13 * hash + address.hashCode();
-        return hash;
+        hash = 13 * hash + (int) (high ^ high >>> 32 ^ low ^ low >>> 32);
+        return ipv4 ? hash : -hash;
     }
 
     @Override
@@ -102,24 +261,16 @@ public final class ClientSubnet<T> {
         if (this == obj) {
             return true;
         }
-        if (obj == null) {
-            return false;
-        }
-        if (getClass() != obj.getClass()) {
+        if (!(obj instanceof ClientSubnet<?>)) {
             return false;
         }
         final ClientSubnet<?> other = (ClientSubnet<?>) obj;
-        if (this.sourcePrefixLength != other.sourcePrefixLength) {
-            return false;
-        }
-        if (this.scopePrefixLength != other.scopePrefixLength) {
-            return false;
-        }
-        return this.address.equals(other.address);
+        return ipv4 == other.ipv4 && sourcePrefixLength == other.sourcePrefixLength
+                && scopePrefixLength == other.scopePrefixLength && high == other.high && low == other.low;
     }
 
     @Override
     public String toString() {
-        return address + "\t" + sourcePrefixLength + "\t" + scopePrefixLength;
+        return address() + "\t" + sourcePrefixLength + "\t" + scopePrefixLength;
     }
 }
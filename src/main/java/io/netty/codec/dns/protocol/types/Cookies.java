@@ -15,19 +15,34 @@
  */
 package io.netty.codec.dns.protocol.types;
 
-import io.netty.util.internal.ObjectUtil;
-import java.util.Arrays;
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.dns.DnsDecoderException;
 
+import static io.netty.handler.codec.dns.DnsResponseCode.FORMERR;
 import static io.netty.util.internal.ObjectUtil.checkNotNull;
 
 /**
- * Represents the payload of an OPT COOKIE subrecord.
+ * Represents the payload of an OPT COOKIE subrecord. Immutable; the 8-byte client cookie is held as a long and the
+ * server cookie, which is 8 to 32 bytes long, as up to four longs, so cookies can be read, written, compared and used
+ * as hash keys without allocating arrays.
  */
 public final class Cookies {
 
-    private final byte[] clientCookie;
+    public static final int CLIENT_COOKIE_LENGTH = 8;
+    public static final int MIN_SERVER_COOKIE_LENGTH = 8;
+    public static final int MAX_SERVER_COOKIE_LENGTH = 32;
 
-    private final byte[] serverCookie;
+    private final long clientCookie;
+    // The server cookie in big-endian words, the last one left-aligned and zero-padded
+    private final long server0;
+    private final long server1;
+    private final long server2;
+    private final long server3;
+    private final int serverCookieLength;
+
+    public Cookies(long clientCookie) {
+        this(clientCookie, 0, 0, 0, 0, 0);
+    }
 
     public Cookies(byte[] clientCookie) {
         this(clientCookie, null);
@@ -35,50 +50,188 @@ public final class Cookies {
 
     public Cookies(byte[] clientCookie, byte[] serverCookie) {
         checkNotNull(clientCookie, "clientCookie");
-        if (clientCookie.length != 8) {
+        if (clientCookie.length != CLIENT_COOKIE_LENGTH) {
             throw new IllegalArgumentException("Client cookie length must be 8");
         }
-        if (serverCookie != null) {
-            if (serverCookie.length < 8) {
-                throw new IllegalArgumentException("Server cookie length must "
-                        + "be at least 8");
-            }
-            if (serverCookie.length > 32) {
-                throw new IllegalArgumentException("Server cookie length must "
-                        + "be no larger than 32");
+        int length = serverCookie == null ? 0 : checkServerCookieLength(serverCookie.length);
+        this.clientCookie = word(clientCookie, 0, CLIENT_COOKIE_LENGTH);
+        this.server0 = word(serverCookie, 0, length);
+        this.server1 = word(serverCookie, 8, length);
+        this.server2 = word(serverCookie, 16, length);
+        this.server3 = word(serverCookie, 24, length);
+        this.serverCookieLength = length;
+    }
+
+    private Cookies(long clientCookie, long server0, long server1, long server2, long server3,
+            int serverCookieLength) {
+        this.clientCookie = clientCookie;
+        this.server0 = server0;
+        this.server1 = server1;
+        this.server2 = server2;
+        this.server3 = server3;
+        this.serverCookieLength = serverCookieLength;
+    }
+
+    private static int checkServerCookieLength(int length) {
+        if (length < MIN_SERVER_COOKIE_LENGTH) {
+            throw new IllegalArgumentException("Server cookie length must be at least 8");
+        }
+        if (length > MAX_SERVER_COOKIE_LENGTH) {
+            throw new IllegalArgumentException("Server cookie length must be no larger than 32");
+        }
+        return length;
+    }
+
+    private static long word(byte[] bytes, int offset, int length) {
+        long result = 0;
+        for (int i = offset; i < offset + 8; i++) {
+            result = result << 8 | (i < length ? bytes[i] & 0xFF : 0);
+        }
+        return result;
+    }
+
+    /**
+     * Read the payload of a COOKIE option.
+     *
+     * @param from A buffer
+     * @param length The option length
+     * @return The cookies
+     * @throws DnsDecoderException if the length is not one RFC 7873 allows
+     */
+    public static Cookies read(ByteBuf from, int length) throws DnsDecoderException {
+        int serverCookieLength = length - CLIENT_COOKIE_LENGTH;
+        if (length > from.readableBytes() || serverCookieLength < 0 || serverCookieLength > MAX_SERVER_COOKIE_LENGTH
+                || serverCookieLength > 0 && serverCookieLength < MIN_SERVER_COOKIE_LENGTH) {
+            throw new DnsDecoderException(FORMERR, "Invalid COOKIE option length " + length + " with "
+                    + from.readableBytes() + " bytes available");
+        }
+        long clientCookie = from.readLong();
+        long server0 = readWord(from, serverCookieLength);
+        long server1 = readWord(from, serverCookieLength - 8);
+        long server2 = readWord(from, serverCookieLength - 16);
+        long server3 = readWord(from, serverCookieLength - 24);
+        return new Cookies(clientCookie, server0, server1, server2, server3, serverCookieLength);
+    }
+
+    private static long readWord(ByteBuf from, int remaining) {
+        if (remaining >= 8) {
+            return from.readLong();
+        }
+        long result = 0;
+        for (int i = 0; i < 8; i++) {
+            result = result << 8 | (i < remaining ? from.readUnsignedByte() : 0);
+        }
+        return result;
+    }
+
+    private static void writeWord(ByteBuf into, long word, int remaining) {
+        if (remaining >= 8) {
+            into.writeLong(word);
+        } else {
+            for (int i = 0; i < remaining; i++) {
+                into.writeByte((int) (word >>> 56 - 8 * i));
             }
         }
-        this.clientCookie = clientCookie;
-        this.serverCookie = serverCookie;
+    }
+
+    /**
+     * Write the client cookie followed by any server cookie, as the payload of a COOKIE option.
+     *
+     * @param into A buffer
+     */
+    public void writeTo(ByteBuf into) {
+        into.writeLong(clientCookie);
+        writeServerCookie(into);
+    }
+
+    /**
+     * Write the server cookie, if any.
+     *
+     * @param into A buffer
+     */
+    public void writeServerCookie(ByteBuf into) {
+        writeWord(into, server0, serverCookieLength);
+        writeWord(into, server1, serverCookieLength - 8);
+        writeWord(into, server2, serverCookieLength - 16);
+        writeWord(into, server3, serverCookieLength - 24);
+    }
+
+    /**
+     * The length of the payload of a COOKIE option containing these cookies.
+     *
+     * @return A byte count
+     */
+    public int encodedLength() {
+        return CLIENT_COOKIE_LENGTH + serverCookieLength;
     }
 
     public Cookies withServerCookie(byte[] serverCookie) {
-        return new Cookies(copy(this.clientCookie), serverCookie);
+        int length = checkServerCookieLength(checkNotNull(serverCookie, "serverCookie").length);
+        return new Cookies(clientCookie, word(serverCookie, 0, length), word(serverCookie, 8, length),
+                word(serverCookie, 16, length), word(serverCookie, 24, length), length);
     }
 
+    /**
+     * Cookies are immutable, so this returns this instance.
+     *
+     * @return this
+     */
     public Cookies copy() {
-        return new Cookies(clientCookie(), serverCookie());
+        return this;
     }
 
     public boolean hasServerCookie() {
-        return serverCookie != null;
+        return serverCookieLength != 0;
+    }
+
+    /**
+     * The length of the server cookie, or 0 if there is none.
+     */
+    public int serverCookieLength() {
+        return serverCookieLength;
     }
 
+    /**
+     * The client cookie as a big-endian long.
+     *
+     * @return The client cookie
+     */
+    public long clientCookieValue() {
+        return clientCookie;
+    }
+
+    /**
+     * Get the client cookie as a new array; {@link #clientCookieValue()} avoids the allocation.
+     *
+     * @return An array
+     */
     public byte[] clientCookie() {
-        return copy(clientCookie);
+        byte[] result = new byte[CLIENT_COOKIE_LENGTH];
+        toBytes(clientCookie, result, 0);
+        return result;
     }
 
+    /**
+     * Get the server cookie as a new array; {@link #writeServerCookie(ByteBuf)} avoids the allocation.
+     *
+     * @return An array, or null if there is no server cookie
+     */
     public byte[] serverCookie() {
-        return copy(serverCookie);
+        if (serverCookieLength == 0) {
+            return null;
+        }
+        byte[] result = new byte[serverCookieLength];
+        toBytes(server0, result, 0);
+        toBytes(server1, result, 8);
+        toBytes(server2, result, 16);
+        toBytes(server3, result, 24);
+        return result;
     }
 
-    private byte[] copy(byte[] b) {
-        if (b == null) {
-            return null;
+    private static void toBytes(long word, byte[] into, int offset) {
+        for (int i = 0; i < 8 && offset + i < into.length; i++) {
+            into[offset + i] = (byte) (word >>> 56 - 8 * i);
         }
-        byte[] nue = new byte[b.length];
-        System.arraycopy(b, 0, nue, 0, b.length);
-        return nue;
     }
 
     @Override
@@ -86,57 +239,40 @@ public final class Cookies {
         if (this == obj) {
             return true;
         }
-        if (obj == null) {
-            return false;
-        }
         if (!(obj instanceof Cookies)) {
             return false;
         }
         final Cookies other = (Cookies) obj;
-        if ((this.clientCookie == null) != (other.clientCookie == null)) {
-            return false;
-        }
-        if (!Arrays.equals(this.clientCookie, other.clientCookie)) {
-            return false;
-        }
-        return Arrays.equals(this.serverCookie, other.serverCookie);
+        return clientCookie == other.clientCookie && serverCookieLength == other.serverCookieLength
+                && server0 == other.server0 && server1 == other.server1 && server2 == other.server2
+                && server3 == other.server3;
     }
 
     @Override
     public int hashCode() {
-        int mult = serverCookie == null?571:937;
-        int result = 0;
-        for (byte b : clientCookie) {
-            result += mult * b;
-        }
-        if (serverCookie != null) {
-            for (byte b : serverCookie) {
-                result += mult * b;
-            }
-        }
-        return result;
+        long result = clientCookie;
+        result = 31 * result + server0;
+        result = 31 * result + server1;
+        result = 31 * result + server2;
+        result = 31 * result + server3;
+        result = 31 * result + serverCookieLength;
+        return (int) (result ^ result >>> 32);
     }
 
     @Override
     public String toString() {
-        StringBuilder sb = new StringBuilder();
-        for (byte b : clientCookie) {
-            String s = Integer.toHexString(b & 0xFF);
-            if (s.length() == 1) {
-                sb.append('0');
-            }
-            System.out.println((b & 0xFF) + " -> " + s);
-            sb.append(s);
-        }
-        if (serverCookie != null) {
-            for (byte b : serverCookie) {
-                String s = Integer.toHexString(b & 0xFF);
-                if (s.length() == 1) {
-                    sb.append('0');
-                }
-                sb.append(s);
-            }
-        }
+        StringBuilder sb = new StringBuilder(2 * encodedLength());
+        appendHex(sb, clientCookie, CLIENT_COOKIE_LENGTH);
+        appendHex(sb, server0, serverCookieLength);
+        appendHex(sb, server1, serverCookieLength - 8);
+        appendHex(sb, server2, serverCookieLength - 16);
+        appendHex(sb, server3, serverCookieLength - 24);
         return sb.toString();
     }
+
+    private static void appendHex(StringBuilder sb, long word, int remaining) {
+        for (int i = 0; i < 2 * Math.min(8, remaining); i++) {
+            sb.append(Character.forDigit((int) (word >>> 60 - 4 * i) & 0xF, 16));
+        }
+    }
 }
@@ -0,0 +1,265 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.types;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.util.AsciiString;
+import io.netty.util.CharsetUtil;
+import io.netty.util.internal.EmptyArrays;
+import java.util.Arrays;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * A normalized, immutable DNS name: lower-cased ASCII (so internationalized names must be in punycode), without a
+ * trailing dot, stored as a single byte array plus the offset of each label, with its hash code computed once. Names
+ * compare in RFC 4034 canonical order label by label from the right, without allocating, which makes them cheap keys
+ * for sorted indexes and hash tables.
+ * <p>
+ * A DnsName is only equal to another DnsName; use {@link CanonicalNameComparator} to compare one with other kinds of
+ * CharSequence.
+ */
+public final class DnsName implements CharSequence, Comparable<DnsName> {
+
+    public static final DnsName ROOT = new DnsName(EmptyArrays.EMPTY_BYTES, EmptyArrays.EMPTY_BYTES);
+    private static final int MAX_LABEL_LENGTH = 63;
+    // 255 bytes on the wire, less the first length byte and the terminating zero
+    private static final int MAX_LENGTH = 253;
+
+    private final byte[] bytes;
+    private final byte[] labelStarts;
+    private final int hash;
+
+    private DnsName(byte[] bytes, byte[] labelStarts) {
+        this.bytes = bytes;
+        this.labelStarts = labelStarts;
+        this.hash = Arrays.hashCode(bytes);
+    }
+
+    /**
+     * Get a normalized name.
+     *
+     * @param name A name, with or without a trailing dot
+     * @return A DnsName, which is the passed object if it already is one
+     * @throws IllegalArgumentException if the name contains non-ASCII characters, empty labels, or labels or a total
+     * length longer than DNS allows
+     */
+    public static DnsName of(CharSequence name) {
+        return parse(checkNotNull(name, "name"), true);
+    }
+
+    /**
+     * Normalize a name if it can be represented as a DnsName.
+     *
+     * @param name A name
+     * @return A DnsName, or the passed name if it cannot be represented as one
+     */
+    public static CharSequence normalize(CharSequence name) {
+        if (name == null) {
+            return null;
+        }
+        DnsName result = parse(name, false);
+        return result == null ? name : result;
+    }
+
+    private static DnsName parse(CharSequence name, boolean fail) {
+        if (name instanceof DnsName) {
+            return (DnsName) name;
+        }
+        int length = name.length();
+        if (length > 0 && name.charAt(length - 1) == '.') {
+            length--;
+        }
+        if (length == 0) {
+            return ROOT;
+        }
+        if (length > MAX_LENGTH) {
+            return invalid(fail, name, "is longer than " + MAX_LENGTH + " characters");
+        }
+        byte[] bytes = new byte[length];
+        int labels = 1;
+        int labelLength = 0;
+        for (int i = 0; i < length; i++) {
+            char c = name.charAt(i);
+            if (c == '.') {
+                if (labelLength == 0) {
+                    return invalid(fail, name, "has an empty label at " + i);
+                }
+                labels++;
+                labelLength = 0;
+            } else if (c > 127) {
+                return invalid(fail, name, "contains the non-ASCII character '" + c + "' at " + i);
+            } else if (++labelLength > MAX_LABEL_LENGTH) {
+                return invalid(fail, name, "has a label longer than " + MAX_LABEL_LENGTH + " at " + i);
+            }
+            bytes[i] = (byte) (c >= 'A' && c <= 'Z' ? c + ('a' - 'A') : c);
+        }
+        if (labelLength == 0) {
+            return invalid(fail, name, "has an empty label at " + length);
+        }
+        byte[] labelStarts = new byte[labels];
+        for (int i = 0, label = 1; i < length; i++) {
+            if (bytes[i] == '.') {
+                labelStarts[label++] = (byte) (i + 1);
+            }
+        }
+        return new DnsName(bytes, labelStarts);
+    }
+
+    private static DnsName invalid(boolean fail, CharSequence name, String problem) {
+        if (fail) {
+            throw new IllegalArgumentException("Name '" + name + "' " + problem);
+        }
+        return null;
+    }
+
+    public int labelCount() {
+        return labelStarts.length;
+    }
+
+    /**
+     * Get one label of this name.
+     *
+     * @param index The label index, with the leftmost label at 0
+     * @return The label
+     */
+    public AsciiString label(int index) {
+        int start = labelStart(index);
+        return new AsciiString(bytes, start, labelEnd(index) - start, true);
+    }
+
+    private int labelStart(int index) {
+        return labelStarts[index] & 0xFF;
+    }
+
+    private int labelEnd(int index) {
+        return index == labelStarts.length - 1 ? bytes.length : labelStart(index + 1) - 1;
+    }
+
+    /**
+     * Get the name with the leftmost label removed.
+     *
+     * @return The parent name, or ROOT for a single label or the root
+     */
+    public DnsName parent() {
+        if (labelStarts.length <= 1) {
+            return ROOT;
+        }
+        int offset = labelStart(1);
+        byte[] parentStarts = new byte[labelStarts.length - 1];
+        for (int i = 0; i < parentStarts.length; i++) {
+            parentStarts[i] = (byte) (labelStart(i + 1) - offset);
+        }
+        return new DnsName(Arrays.copyOfRange(bytes, offset, bytes.length), parentStarts);
+    }
+
+    /**
+     * Determine if this name is the same as, or a subdomain of, another.
+     *
+     * @param ancestor Another name
+     * @return true if this name ends with all of the labels of the other
+     */
+    public boolean isAtOrBelow(DnsName ancestor) {
+        int offset = bytes.length - ancestor.bytes.length;
+        if (offset < 0 || (offset > 0 && ancestor.bytes.length > 0 && bytes[offset - 1] != '.')) {
+            return false;
+        }
+        for (int i = 0; i < ancestor.bytes.length; i++) {
+            if (bytes[offset + i] != ancestor.bytes[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The length of this name in uncompressed wire format.
+     *
+     * @return A byte count
+     */
+    public int wireLength() {
+        return bytes.length == 0 ? 1 : bytes.length + 2;
+    }
+
+    /**
+     * Write this name in uncompressed wire format.
+     *
+     * @param into A buffer
+     */
+    public void writeTo(ByteBuf into) {
+        for (int i = 0; i < labelStarts.length; i++) {
+            int start = labelStart(i);
+            int length = labelEnd(i) - start;
+            into.writeByte(length);
+            into.writeBytes(bytes, start, length);
+        }
+        into.writeByte(0);
+    }
+
+    @Override
+    public int compareTo(DnsName other) {
+        int a = labelStarts.length - 1;
+        int b = other.labelStarts.length - 1;
+        for (; a >= 0 && b >= 0; a--, b--) {
+            int aStart = labelStart(a);
+            int aLength = labelEnd(a) - aStart;
+            int bStart = other.labelStart(b);
+            int bLength = other.labelEnd(b) - bStart;
+            int length = Math.min(aLength, bLength);
+            for (int i = 0; i < length; i++) {
+                int diff = (bytes[aStart + i] & 0xFF) - (other.bytes[bStart + i] & 0xFF);
+                if (diff != 0) {
+                    return diff;
+                }
+            }
+            if (aLength != bLength) {
+                return aLength - bLength;
+            }
+        }
+        return a == b ? 0 : a > b ? 1 : -1;
+    }
+
+    @Override
+    public int length() {
+        return bytes.length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) bytes[index];
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new AsciiString(bytes, start, end - start, true);
+    }
+
+    @Override
+    public String toString() {
+        return new String(bytes, CharsetUtil.US_ASCII);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o == this || o instanceof DnsName && ((DnsName) o).hash == hash
+                && Arrays.equals(((DnsName) o).bytes, bytes);
+    }
+}
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.types;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.dns.DnsDecoderException;
+import io.netty.util.CharsetUtil;
+import java.util.Arrays;
+
+import static io.netty.handler.codec.dns.DnsResponseCode.FORMERR;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * Represents the payload of an OPT Extended DNS Error subrecord (RFC 8914) - an info code saying why a query failed,
+ * optionally followed by some UTF-8 text for humans. The payload is encoded once, when this is created, so attaching
+ * one to a response is a single copy; the constants here, which have no extra text, are shared, and are what a
+ * decoded option without extra text is returned as.
+ */
+public final class ExtendedDnsError {
+
+    private static final String[] DESCRIPTIONS = {
+        "Other Error",
+        "Unsupported DNSKEY Algorithm",
+        "Unsupported DS Digest Type",
+        "Stale Answer",
+        "Forged Answer",
+        "DNSSEC Indeterminate",
+        "DNSSEC Bogus",
+        "Signature Expired",
+        "Signature Not Yet Valid",
+        "DNSKEY Missing",
+        "RRSIGs Missing",
+        "No Zone Key Bit Set",
+        "NSEC Missing",
+        "Cached Error",
+        "Not Ready",
+        "Blocked",
+        "Censored",
+        "Filtered",
+        "Prohibited",
+        "Stale NXDomain Answer",
+        "Not Authoritative",
+        "Not Supported",
+        "No Reachable Authority",
+        "Network Error",
+        "Invalid Data",
+        "Signature Expired before Valid",
+        "Too Early",
+        "Unsupported NSEC3 Iterations Value",
+        "Unable to conform to policy",
+        "Synthesized",
+        "Invalid Query Type"
+    };
+
+    private static final ExtendedDnsError[] COMMON = new ExtendedDnsError[DESCRIPTIONS.length];
+
+    static {
+        for (int i = 0; i < COMMON.length; i++) {
+            COMMON[i] = new ExtendedDnsError(i, "");
+        }
+    }
+
+    public static final ExtendedDnsError OTHER = COMMON[0];
+    public static final ExtendedDnsError UNSUPPORTED_DNSKEY_ALGORITHM = COMMON[1];
+    public static final ExtendedDnsError UNSUPPORTED_DS_DIGEST_TYPE = COMMON[2];
+    public static final ExtendedDnsError STALE_ANSWER = COMMON[3];
+    public static final ExtendedDnsError FORGED_ANSWER = COMMON[4];
+    public static final ExtendedDnsError DNSSEC_INDETERMINATE = COMMON[5];
+    public static final ExtendedDnsError DNSSEC_BOGUS = COMMON[6];
+    public static final ExtendedDnsError SIGNATURE_EXPIRED = COMMON[7];
+    public static final ExtendedDnsError SIGNATURE_NOT_YET_VALID = COMMON[8];
+    public static final ExtendedDnsError DNSKEY_MISSING = COMMON[9];
+    public static final ExtendedDnsError RRSIGS_MISSING = COMMON[10];
+    public static final ExtendedDnsError NO_ZONE_KEY_BIT_SET = COMMON[11];
+    public static final ExtendedDnsError NSEC_MISSING = COMMON[12];
+    public static final ExtendedDnsError CACHED_ERROR = COMMON[13];
+    public static final ExtendedDnsError NOT_READY = COMMON[14];
+    public static final ExtendedDnsError BLOCKED = COMMON[15];
+    public static final ExtendedDnsError CENSORED = COMMON[16];
+    public static final ExtendedDnsError FILTERED = COMMON[17];
+    public static final ExtendedDnsError PROHIBITED = COMMON[18];
+    public static final ExtendedDnsError STALE_NXDOMAIN_ANSWER = COMMON[19];
+    public static final ExtendedDnsError NOT_AUTHORITATIVE = COMMON[20];
+    public static final ExtendedDnsError NOT_SUPPORTED = COMMON[21];
+    public static final ExtendedDnsError NO_REACHABLE_AUTHORITY = COMMON[22];
+    public static final ExtendedDnsError NETWORK_ERROR = COMMON[23];
+    public static final ExtendedDnsError INVALID_DATA = COMMON[24];
+    public static final ExtendedDnsError SIGNATURE_EXPIRED_BEFORE_VALID = COMMON[25];
+    public static final ExtendedDnsError TOO_EARLY = COMMON[26];
+    public static final ExtendedDnsError UNSUPPORTED_NSEC3_ITERATIONS_VALUE = COMMON[27];
+    public static final ExtendedDnsError UNABLE_TO_CONFORM_TO_POLICY = COMMON[28];
+    public static final ExtendedDnsError SYNTHESIZED = COMMON[29];
+    public static final ExtendedDnsError INVALID_QUERY_TYPE = COMMON[30];
+
+    private static final int INFO_CODE_LENGTH = 2;
+    private static final int MAX_INFO_CODE = 0xFFFF;
+    private static final int MAX_LENGTH = 0xFFFF;
+
+    private final int infoCode;
+    private final String extraText;
+    private final byte[] encoded;
+
+    private ExtendedDnsError(int infoCode, String extraText) {
+        this.infoCode = infoCode;
+        this.extraText = extraText;
+        byte[] text = extraText.getBytes(CharsetUtil.UTF_8);
+        if (INFO_CODE_LENGTH + text.length > MAX_LENGTH) {
+            throw new IllegalArgumentException("Extra text of " + text.length + " bytes is longer than "
+                    + (MAX_LENGTH - INFO_CODE_LENGTH));
+        }
+        encoded = new byte[INFO_CODE_LENGTH + text.length];
+        encoded[0] = (byte) (infoCode >>> 8);
+        encoded[1] = (byte) infoCode;
+        System.arraycopy(text, 0, encoded, INFO_CODE_LENGTH, text.length);
+    }
+
+    private ExtendedDnsError(int infoCode, String extraText, byte[] encoded) {
+        this.infoCode = infoCode;
+        this.extraText = extraText;
+        this.encoded = encoded;
+    }
+
+    /**
+     * Get an error with no extra text, which will be a shared constant for the info codes RFC 8914 defines.
+     *
+     * @param infoCode The info code
+     * @return An error
+     */
+    public static ExtendedDnsError of(int infoCode) {
+        checkInfoCode(infoCode);
+        return infoCode < COMMON.length ? COMMON[infoCode] : new ExtendedDnsError(infoCode, "");
+    }
+
+    /**
+     * Create an error with extra text. Since the payload is encoded here, callers that attach the same error to many
+     * responses should create it once.
+     *
+     * @param infoCode The info code
+     * @param extraText Text for humans, or the empty string
+     * @return An error
+     * @throws IllegalArgumentException if the text is longer than 65533 bytes in UTF-8
+     */
+    public static ExtendedDnsError of(int infoCode, CharSequence extraText) {
+        String text = checkNotNull(extraText, "extraText").toString();
+        return text.isEmpty() ? of(infoCode) : new ExtendedDnsError(checkInfoCode(infoCode), text);
+    }
+
+    private static int checkInfoCode(int infoCode) {
+        if (infoCode < 0 || infoCode > MAX_INFO_CODE) {
+            throw new IllegalArgumentException("infoCode: " + infoCode + " (expected: 0-" + MAX_INFO_CODE + ")");
+        }
+        return infoCode;
+    }
+
+    /**
+     * Read the payload of an Extended DNS Error option.
+     *
+     * @param from A buffer
+     * @param length The option length
+     * @return An error
+     * @throws DnsDecoderException if the option is too short to hold an info code or longer than the bytes available
+     */
+    public static ExtendedDnsError read(ByteBuf from, int length) throws DnsDecoderException {
+        if (length < INFO_CODE_LENGTH || length > from.readableBytes()) {
+            throw new DnsDecoderException(FORMERR, "Invalid Extended DNS Error option length " + length + " with "
+                    + from.readableBytes() + " bytes available");
+        }
+        int infoCode = from.getUnsignedShort(from.readerIndex());
+        if (length == INFO_CODE_LENGTH) {
+            from.skipBytes(INFO_CODE_LENGTH);
+            return of(infoCode);
+        }
+        byte[] encoded = new byte[length];
+        from.readBytes(encoded);
+        String text = new String(encoded, INFO_CODE_LENGTH, length - INFO_CODE_LENGTH, CharsetUtil.UTF_8);
+        return new ExtendedDnsError(infoCode, text, encoded);
+    }
+
+    public ExtendedDnsError withExtraText(CharSequence extraText) {
+        return of(infoCode, extraText);
+    }
+
+    public void writeTo(ByteBuf into) {
+        into.writeBytes(encoded);
+    }
+
+    public int encodedLength() {
+        return encoded.length;
+    }
+
+    public int infoCode() {
+        return infoCode;
+    }
+
+    /**
+     * The extra text, if any.
+     *
+     * @return The text, or the empty string
+     */
+    public String extraText() {
+        return extraText;
+    }
+
+    /**
+     * The purpose of the info code, as given in the IANA registry.
+     *
+     * @return A description, or null for codes this class does not know
+     */
+    public String description() {
+        return infoCode < DESCRIPTIONS.length ? DESCRIPTIONS[infoCode] : null;
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(encoded);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj == this || obj instanceof ExtendedDnsError
+                && Arrays.equals(((ExtendedDnsError) obj).encoded, encoded);
+    }
+
+    @Override
+    public String toString() {
+        String description = description();
+        return "ExtendedDnsError{" + infoCode + (description == null ? "" : " " + description)
+                + (extraText.isEmpty() ? "" : ": " + extraText) + '}';
+    }
+}
@@ -15,13 +15,12 @@
  */
 package io.netty.codec.dns.protocol.types;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.channel.socket.InternetProtocolFamily;
 import io.netty.util.internal.ObjectUtil;
 import java.net.InetAddress;
 import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
-import java.util.ArrayList;
-import java.util.List;
 
 import static io.netty.channel.socket.InternetProtocolFamily.IPv4;
 import static io.netty.util.internal.ObjectUtil.checkNotNull;
@@ -43,7 +42,18 @@ public final class Ipv4Address implements Comparable<Ipv4Address> {
     }
 
     public Ipv4Address(String addr) {
-        this.address = parse(checkNotNull(addr, "addr"));
+        this.address = parse(checkNotNull(addr, "addr"), 0, addr.length());
+    }
+
+    /**
+     * Parse a dotted-quad address from a region of a character sequence, without copying it.
+     *
+     * @param seq The characters
+     * @param start The start of the address, inclusive
+     * @param end The end of the address, exclusive
+     */
+    public Ipv4Address(CharSequence seq, int start, int end) {
+        this.address = parse(checkNotNull(seq, "seq"), start, end);
     }
 
     public Ipv4Address(int... parts) {
@@ -90,7 +100,29 @@ public final class Ipv4Address implements Comparable<Ipv4Address> {
 
     @Override
     public String toString() {
-        return addressToString(address);
+        return appendTo(new StringBuilder(15)).toString();
+    }
+
+    /**
+     * Append the dotted-quad form of this address to a StringBuilder.
+     *
+     * @param sb A StringBuilder
+     * @return The same StringBuilder
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        write(address, checkNotNull(sb, "sb"), null);
+        return sb;
+    }
+
+    /**
+     * Write the dotted-quad form of this address into a buffer as ASCII.
+     *
+     * @param buf A buffer
+     * @return The same buffer
+     */
+    public ByteBuf appendTo(ByteBuf buf) {
+        write(address, null, checkNotNull(buf, "buf"));
+        return buf;
     }
 
     public InetAddress toInetAddress() throws UnknownHostException {
@@ -108,22 +140,37 @@ public final class Ipv4Address implements Comparable<Ipv4Address> {
         return new InetSocketAddress(toInetAddress(), port);
     }
 
-    private static String addressToString(int addr) {
-        StringBuilder sb = new StringBuilder(32);
-        int[] ints = toInts(addr);
-        for (int i = 0; i < ints.length; i++) {
-            sb.append(ints[i]);
-            if (i != ints.length - 1) {
-                sb.append('.');
+    private static void write(int addr, StringBuilder sb, ByteBuf buf) {
+        for (int shift = 24; shift >= 0; shift -= 8) {
+            int octet = (addr >>> shift) & 0xFF;
+            if (octet >= 100) {
+                put(sb, buf, '0' + octet / 100);
             }
+            if (octet >= 10) {
+                put(sb, buf, '0' + (octet / 10) % 10);
+            }
+            put(sb, buf, '0' + octet % 10);
+            if (shift != 0) {
+                put(sb, buf, '.');
+            }
+        }
+    }
+
+    /**
+     * Write one ASCII character to whichever of the two targets is non-null.
+     */
+    static void put(StringBuilder sb, ByteBuf buf, int c) {
+        if (sb != null) {
+            sb.append((char) c);
+        } else {
+            buf.writeByte(c);
         }
-        return sb.toString();
     }
 
     private static int[] toInts(int val) {
         int[] ret = new int[4];
         for (int j = 3; j >= 0; --j) {
-            ret[j] |= (val >>> 8 * (3 - j)) & 0xff;
+            ret[j] = (val >>> 8 * (3 - j)) & 0xff;
         }
         return ret;
     }
@@ -131,44 +178,51 @@ public final class Ipv4Address implements Comparable<Ipv4Address> {
     private static byte[] toBytes(int val) {
         byte[] ret = new byte[4];
         for (int j = 3; j >= 0; --j) {
-            ret[j] |= (val >>> 8 * (3 - j)) & 0xff;
+            ret[j] = (byte) (val >>> 8 * (3 - j));
         }
         return ret;
     }
 
-    static CharSequence[] split(char delimiter, CharSequence seq) {
-        List<CharSequence> result = new ArrayList<>(5);
-        int max = seq.length();
-        int start = 0;
-        for (int i = 0; i < max; i++) {
+    /**
+     * Parse a dotted-quad address in a single pass over the characters, without allocating.
+     */
+    static int parse(CharSequence seq, int start, int end) {
+        if (start < 0 || end > seq.length() || start >= end) {
+            throw new IllegalArgumentException("Not an ipv4 address: '" + seq + "' (" + start + ", " + end + ")");
+        }
+        int result = 0;
+        int octet = -1;
+        int dots = 0;
+        for (int i = start; i < end; i++) {
             char c = seq.charAt(i);
-            boolean last = i == max - 1;
-            if (c == delimiter || last) {
-                result.add(seq.subSequence(start, last?c == delimiter?i:i + 1:i));
-                start = i + 1;
+            if (c >= '0' && c <= '9') {
+                octet = octet < 0 ? c - '0' : octet * 10 + (c - '0');
+                if (octet > 255) {
+                    throw new IllegalArgumentException("Octet out of range at " + i + " in ipv4 address '"
+                            + seq.subSequence(start, end) + "'");
+                }
+            } else if (c == '.' && octet >= 0 && dots < 3) {
+                result = (result << 8) | octet;
+                octet = -1;
+                dots++;
+            } else {
+                throw new IllegalArgumentException("Invalid character '" + c + "' at " + i + " in ipv4 address '"
+                        + seq.subSequence(start, end) + "'");
             }
         }
-        return result.toArray(new CharSequence[result.size()]);
-    }
-
-    private static int parse(CharSequence ipv4address) {
-        CharSequence[] nums = split('.', ipv4address);
-        if (nums.length != 4) {
-            throw new IllegalArgumentException("Not an ipv4 address: " + ipv4address);
-        }
-        int[] result = new int[4];
-        for (int i = 0; i < nums.length; i++) {
-            result[i] = Integer.parseInt(nums[i].toString());
+        if (dots != 3 || octet < 0) {
+            throw new IllegalArgumentException("Not an ipv4 address: '" + seq.subSequence(start, end) + "'");
         }
-        return pack(result);
+        return (result << 8) | octet;
     }
 
     private static int pack(byte... bytes) {
-        int[] ints = new int[bytes.length];
+        int val = 0;
         for (int i = 0; i < bytes.length; i++) {
-            ints[i] = bytes[i] & 0xFF;
+            val <<= 8;
+            val |= bytes[i] & 0xff;
         }
-        return pack(ints);
+        return val;
     }
 
     private static int pack(int... bytes) {
@@ -180,9 +234,88 @@ public final class Ipv4Address implements Comparable<Ipv4Address> {
         return val;
     }
 
+    /**
+     * Get a mask with the leading <code>prefixLength</code> bits set.
+     *
+     * @param prefixLength A prefix length from 0 to 32
+     * @return A mask
+     */
+    public static int prefixMask(int prefixLength) {
+        checkPrefixLength(prefixLength);
+        return prefixLength == 0 ? 0 : -1 << (32 - prefixLength);
+    }
+
+    private static void checkPrefixLength(int prefixLength) {
+        if (prefixLength < 0 || prefixLength > 32) {
+            throw new IllegalArgumentException("Prefix length must be between 0 and 32 but is " + prefixLength);
+        }
+    }
+
+    /**
+     * Get the network address of the subnet of the given prefix length containing this address - that is, this
+     * address with all but the leading <code>prefixLength</code> bits cleared.
+     *
+     * @param prefixLength A prefix length from 0 to 32
+     * @return An address, which is this one if no bits were cleared
+     */
+    public Ipv4Address network(int prefixLength) {
+        int masked = address & prefixMask(prefixLength);
+        return masked == address ? this : new Ipv4Address(masked);
+    }
+
+    /**
+     * Get the broadcast address of the subnet of the given prefix length containing this address - that is, this
+     * address with all but the leading <code>prefixLength</code> bits set.
+     *
+     * @param prefixLength A prefix length from 0 to 32
+     * @return An address, which is this one if no bits were set
+     */
+    public Ipv4Address broadcast(int prefixLength) {
+        int filled = address | ~prefixMask(prefixLength);
+        return filled == address ? this : new Ipv4Address(filled);
+    }
+
+    /**
+     * Determine if the passed address is in the subnet of the given prefix length containing this address.
+     *
+     * @param other Another address
+     * @param prefixLength A prefix length from 0 to 32
+     * @return true if the leading <code>prefixLength</code> bits of both addresses are the same
+     */
+    public boolean contains(Ipv4Address other, int prefixLength) {
+        return ((address ^ other.address) & prefixMask(prefixLength)) == 0;
+    }
+
+    /**
+     * Get the number of leading bits this address has in common with another.
+     *
+     * @param other Another address
+     * @return A number from 0 to 32
+     */
+    public int commonPrefixLength(Ipv4Address other) {
+        return Integer.numberOfLeadingZeros(address ^ other.address);
+    }
+
+    /**
+     * Get the address numerically following this one, wrapping around to 0.0.0.0 after 255.255.255.255.
+     *
+     * @return An address
+     */
+    public Ipv4Address next() {
+        return new Ipv4Address(address + 1);
+    }
+
+    /**
+     * Get the address numerically preceding this one, wrapping around to 255.255.255.255 before 0.0.0.0.
+     *
+     * @return An address
+     */
+    public Ipv4Address previous() {
+        return new Ipv4Address(address - 1);
+    }
+
     @Override
     public int compareTo(Ipv4Address o) {
-        return address == o.address?0
-                :longValue() > o.longValue()?1:-1;
+        return Integer.compareUnsigned(address, o.address);
     }
 }
@@ -16,7 +16,6 @@
 package io.netty.codec.dns.protocol.types;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.Unpooled;
 import io.netty.channel.socket.InternetProtocolFamily;
 import io.netty.util.internal.ObjectUtil;
 import java.math.BigInteger;
@@ -25,8 +24,8 @@ import java.net.InetSocketAddress;
 import java.net.UnknownHostException;
 import java.nio.ByteBuffer;
 import java.nio.ByteOrder;
-import java.util.Arrays;
 
+import static io.netty.codec.dns.protocol.types.Ipv4Address.put;
 import static io.netty.util.internal.ObjectUtil.checkNotNull;
 
 /**
@@ -38,6 +37,8 @@ public class Ipv6Address implements Comparable<Ipv6Address> {
     private final long high;
 
     private static final int BYTES_SIZE = 16;
+    private static final int GROUPS = 8;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
 
     public Ipv6Address(long high, long low) {
         this.low = low;
@@ -46,13 +47,17 @@ public class Ipv6Address implements Comparable<Ipv6Address> {
 
     public Ipv6Address(int... ints) {
         checkNotNull(ints, "ints");
-        ByteBuf buf = Unpooled.buffer(BYTES_SIZE);
-        for (int i = 0; i < ints.length; i++) {
-            buf.writeShort(ints[i]);
+        if (ints.length != GROUPS) {
+            throw new IllegalArgumentException("Array size should be " + GROUPS + " but is " + ints.length);
         }
-        buf.readerIndex(0);
-        this.high = buf.readLong();
-        this.low = buf.readLong();
+        long hi = 0;
+        long lo = 0;
+        for (int i = 0; i < GROUPS; i++) {
+            hi = (hi << 16) | (lo >>> 48);
+            lo = (lo << 16) | (ints[i] & 0xFFFF);
+        }
+        this.high = hi;
+        this.low = lo;
     }
 
     public Ipv6Address(byte... bytes) {
@@ -78,121 +83,121 @@ public class Ipv6Address implements Comparable<Ipv6Address> {
     }
 
     public Ipv6Address(CharSequence address) {
-        this(parse(address));
+        this(checkNotNull(address, "address"), 0, address.length());
     }
 
     public static int addressFamilyNumber() {
         return InternetProtocolFamily.IPv6.addressNumber();
     }
 
-    private static int[] parse(CharSequence s) {
-        checkNotNull(s, "s");
-        if (s.length() == 0) {
+    /**
+     * Parse an address in full, shorthand or embedded-ipv4 form from a region of a character sequence, in a single
+     * pass and without allocating.
+     *
+     * @param address The characters
+     * @param start The start of the address, inclusive
+     * @param end The end of the address, exclusive
+     */
+    public Ipv6Address(CharSequence address, int start, int end) {
+        checkNotNull(address, "address");
+        if (start < 0 || end > address.length() || start > end) {
+            throw new IllegalArgumentException("Bad region " + start + ", " + end + " in '" + address + "'");
+        }
+        if (start == end) {
             throw new IllegalArgumentException("Zero-length address");
         }
-        int[] ints = new int[8];
-        int length = s.length();
-        int lastBoundary = -1;
-        int index = 0;
-        int remainderStart = -1;
-        boolean expectingDecimal = false;
-        for (int i = 0; i < length; i++) {
-            char currChar = s.charAt(i);
-            switch (currChar) {
-                case ':':
-                case '.':
-                    if (lastBoundary < i - 1) {
-                        CharSequence sub = s.subSequence(lastBoundary + 1, i);
-                        if (sub.length() > 4 && !expectingDecimal) {
-                            throw new IllegalArgumentException("Hexadecimal address component must be 4 "
-                                    + "characters or less but is '" + sub + "' at character " + i
-                                    + ", component " + index + " in '" + s + "'");
-                        }
-                        if (sub.length() > 5 && expectingDecimal) {
-                            throw new IllegalArgumentException("Decimal address component must be 4 characters or "
-                                    + "less but is '" + sub + "' at character " + i + ", component " + index
-                                    + " in '" + s + "'");
-                        }
-                        if (index >= 8) {
-                            throw new IllegalArgumentException("Too many address components in '" + s
-                                    + "' at character " + i + ", component " + index
-                                    + " in '" + s + "'");
-                        }
-                        try {
-                            ints[index] = expectingDecimal?Integer.parseInt(sub.toString())
-                                    :Integer.parseInt(sub.toString(), 16);
-                            if (ints[index] > 65535) {
-                                throw new IllegalArgumentException("Value out of range: " + ints[index]
-                                        + " (" + Integer.toHexString(ints[index]) + ") - must be between "
-                                        + "0 and 65335 " + " at character " + i + ", component " + index
-                                        + " in '" + s + "'");
-                            }
-                            index++;
-                            lastBoundary = i;
-                        } catch (NumberFormatException nfe) {
-                            throw new IllegalArgumentException("Invalid number: '" + sub
-                                    + "' " + " at character " + i + ", component " + index
-                                    + " in '" + s + "'", nfe);
-                        }
-                    } else if (lastBoundary == i - 1) {
-                        remainderStart = index;
-                        lastBoundary = i;
+        // Groups are shifted into a 128 bit register as they are read;  if there is a ::, they are moved
+        // into their final positions afterwards, leaving zeros where it was
+        long hi = 0;
+        long lo = 0;
+        int groups = 0;
+        int gapAt = -1;
+        int value = 0;
+        int digits = 0;
+        int runStart = start;
+        boolean embeddedIpv4 = false;
+        for (int i = start; i < end && !embeddedIpv4; i++) {
+            char c = address.charAt(i);
+            int digit = hexValue(c);
+            if (digit >= 0) {
+                if (digits == 4) {
+                    throw new IllegalArgumentException("Hexadecimal address component must be 4 characters or "
+                            + "less at character " + i + " in '" + address + "'");
+                }
+                if (digits == 0) {
+                    runStart = i;
+                }
+                value = (value << 4) | digit;
+                digits++;
+            } else if (c == ':') {
+                if (digits > 0) {
+                    if (groups == GROUPS) {
+                        throw tooManyComponents(address, i);
+                    }
+                    hi = (hi << 16) | (lo >>> 48);
+                    lo = (lo << 16) | value;
+                    groups++;
+                    value = 0;
+                    digits = 0;
+                } else if (i > start && address.charAt(i - 1) == ':') {
+                    if (gapAt >= 0) {
+                        throw new IllegalArgumentException("More than one :: at character " + i + " in '"
+                                + address + "'");
                     }
-                    expectingDecimal = currChar == '.';
-                    break;
-                case '0':
-                case '1':
-                case '2':
-                case '3':
-                case '4':
-                case '5':
-                case '6':
-                case '7':
-                case '8':
-                case '9':
-                case 'A':
-                case 'a':
-                case 'B':
-                case 'b':
-                case 'C':
-                case 'c':
-                case 'D':
-                case 'd':
-                case 'E':
-                case 'e':
-                case 'F':
-                case 'f':
-                    break;
-                default:
-                    throw new IllegalArgumentException("Invalid character at " + i + " '"
-                            + currChar + "' at " + i + " in '" + s + "'");
+                    gapAt = groups;
+                } else if (i != start || i + 1 == end || address.charAt(i + 1) != ':') {
+                    throw new IllegalArgumentException("Unexpected : at character " + i + " in '" + address + "'");
+                }
+            } else if (c == '.' && digits > 0) {
+                if (groups > GROUPS - 2) {
+                    throw tooManyComponents(address, i);
+                }
+                int ipv4 = Ipv4Address.parse(address, runStart, end);
+                hi = (hi << 32) | (lo >>> 32);
+                lo = (lo << 32) | (ipv4 & 0xFFFFFFFFL);
+                groups += 2;
+                digits = 0;
+                embeddedIpv4 = true;
+            } else {
+                throw new IllegalArgumentException("Invalid character '" + c + "' at " + i + " in '"
+                        + address + "'");
             }
         }
-        if (lastBoundary < length - 1) {
-            if (index >= 8) {
-                throw new IllegalArgumentException("Too many address components - " + (index + 1)
-                        + " in '" + s + "'");
-            }
-            CharSequence sub = s.subSequence(lastBoundary + 1, length);
-            try {
-                ints[index] = Integer.parseInt(sub.toString(), 16);
-            } catch (NumberFormatException nfe) {
-                throw new IllegalArgumentException("Invalid number: '" + sub
-                        + "' " + " at character " + (length - 1) + ", component " + index
-                        + " in '" + s + "'", nfe);
+        if (digits > 0) {
+            if (groups == GROUPS) {
+                throw tooManyComponents(address, end - 1);
             }
-
-            index++;
+            hi = (hi << 16) | (lo >>> 48);
+            lo = (lo << 16) | value;
+            groups++;
+        } else if (!embeddedIpv4 && gapAt != groups) {
+            throw new IllegalArgumentException("Address may not end with a single : in '" + address + "'");
         }
-        if (index <= 7 && remainderStart >= 0) {
-            int moveLen = index - remainderStart;
-            int moveTo = remainderStart + (8 - index);
-            int[] temp = new int[moveLen];
-            System.arraycopy(ints, remainderStart, temp, 0, temp.length);
-            Arrays.fill(ints, remainderStart, remainderStart + temp.length, 0);
-            System.arraycopy(temp, 0, ints, moveTo, temp.length);
+        if (gapAt < 0) {
+            if (groups != GROUPS) {
+                throw new IllegalArgumentException("Too few address components - " + groups + " in '"
+                        + address + "'");
+            }
+        } else if (groups == GROUPS) {
+            throw tooManyComponents(address, end - 1);
+        } else {
+            long resultHi = 0;
+            long resultLo = 0;
+            for (int i = 0; i < groups; i++) {
+                int fromRight = groups - 1 - i;
+                long group = (fromRight < 4 ? lo >>> (fromRight * 16) : hi >>> ((fromRight - 4) * 16)) & 0xFFFF;
+                int toRight = GROUPS - 1 - (i < gapAt ? i : i + GROUPS - groups);
+                if (toRight < 4) {
+                    resultLo |= group << (toRight * 16);
+                } else {
+                    resultHi |= group << ((toRight - 4) * 16);
+                }
+            }
+            hi = resultHi;
+            lo = resultLo;
         }
-        return ints;
+        this.high = hi;
+        this.low = lo;
     }
 
     public InetAddress toInetAddress() throws UnknownHostException {
@@ -246,71 +251,116 @@ public class Ipv6Address implements Comparable<Ipv6Address> {
 
     @Override
     public String toString() {
-        int count = 8;
-        StringBuilder sb = new StringBuilder(39);
+        return appendTo(new StringBuilder(39)).toString();
+    }
 
-        for (int i = 0; i < count; i++) {
-            sb.append(String.format("%04x", valueAtIntegerPosition(i)));
-            if (i != count - 1) {
-                sb.append(":");
-            }
-        }
-        return sb.toString();
+    /**
+     * Append the full, zero-padded form of this address to a StringBuilder.
+     *
+     * @param sb A StringBuilder
+     * @return The same StringBuilder
+     */
+    public StringBuilder appendTo(StringBuilder sb) {
+        write(checkNotNull(sb, "sb"), null, false);
+        return sb;
+    }
+
+    /**
+     * Write the full, zero-padded form of this address into a buffer as ASCII.
+     *
+     * @param buf A buffer
+     * @return The same buffer
+     */
+    public ByteBuf appendTo(ByteBuf buf) {
+        write(null, checkNotNull(buf, "buf"), false);
+        return buf;
     }
 
     public String toStringShorthand() {
-        int count = 8;
-        StringBuilder sb = new StringBuilder(39);
+        return appendShorthandTo(new StringBuilder(39)).toString();
+    }
+
+    /**
+     * Append the shorthand form of this address, with leading zeros omitted and the longest run of zero groups
+     * replaced by <code>::</code>, to a StringBuilder.
+     *
+     * @param sb A StringBuilder
+     * @return The same StringBuilder
+     */
+    public StringBuilder appendShorthandTo(StringBuilder sb) {
+        write(checkNotNull(sb, "sb"), null, true);
+        return sb;
+    }
+
+    /**
+     * Write the shorthand form of this address into a buffer as ASCII.
+     *
+     * @param buf A buffer
+     * @return The same buffer
+     */
+    public ByteBuf appendShorthandTo(ByteBuf buf) {
+        write(null, checkNotNull(buf, "buf"), true);
+        return buf;
+    }
 
-        int zeroCount = -1;
+    private void write(StringBuilder sb, ByteBuf buf, boolean shorthand) {
         int zerosAt = -1;
-        int currZeroCount = 0;
-        int currZerosAt = -1;
-        for (int i = 0; i < count; i++) {
-            int s = valueAtIntegerPosition(i);
-            if (s == 0) {
-                if (currZerosAt == -1) {
-                    currZerosAt = i;
-                    currZeroCount = 1;
-                } else {
-                    currZeroCount++;
-                }
-            } else {
-                if (currZerosAt != -1) {
-                    if (zerosAt == -1 || (zeroCount != -1 && currZeroCount > zeroCount)) {
+        int zeroCount = 0;
+        if (shorthand) {
+            // Find the first longest run of zero groups
+            int currZerosAt = -1;
+            for (int i = 0; i <= GROUPS; i++) {
+                if (i < GROUPS && valueAtIntegerPosition(i) == 0) {
+                    if (currZerosAt == -1) {
+                        currZerosAt = i;
+                    }
+                } else if (currZerosAt != -1) {
+                    if (i - currZerosAt > zeroCount) {
                         zerosAt = currZerosAt;
-                        zeroCount = currZeroCount;
+                        zeroCount = i - currZerosAt;
                     }
+                    currZerosAt = -1;
                 }
-                currZerosAt = -1;
-                currZeroCount = 0;
             }
         }
-        if (currZerosAt != -1) {
-            if (currZeroCount > zeroCount) {
-                zerosAt = currZerosAt;
-                zeroCount = currZeroCount;
+        for (int i = 0; i < GROUPS; i++) {
+            if (zerosAt != -1 && i >= zerosAt && i < zerosAt + zeroCount) {
+                if (i == zerosAt) {
+                    put(sb, buf, ':');
+                    put(sb, buf, ':');
+                }
+                continue;
             }
-        }
-        for (int i = 0; i < count; i++) {
-            if (zerosAt != -1) {
-                if (i >= zerosAt && i < zerosAt + zeroCount) {
-                    if (zerosAt == i) {
-                        sb.append("::");
-                    }
-                    continue;
-                } else {
-                    if (i != 0 && i != zerosAt + zeroCount) {
-                        sb.append(':');
-                    }
+            if (i != 0 && i != zerosAt + zeroCount) {
+                put(sb, buf, ':');
+            }
+            int group = valueAtIntegerPosition(i);
+            int shift = 12;
+            if (shorthand) {
+                while (shift > 0 && (group >>> shift) == 0) {
+                    shift -= 4;
                 }
-            } else if (i != 0 && i != zerosAt + zeroCount) {
-                sb.append(":");
             }
-            int s = valueAtIntegerPosition(i);
-            sb.append(Integer.toHexString(s));
+            for (; shift >= 0; shift -= 4) {
+                put(sb, buf, HEX[(group >>> shift) & 0xF]);
+            }
         }
-        return sb.toString();
+    }
+
+    private static int hexValue(char c) {
+        if (c >= '0' && c <= '9') {
+            return c - '0';
+        } else if (c >= 'a' && c <= 'f') {
+            return c - 'a' + 10;
+        } else if (c >= 'A' && c <= 'F') {
+            return c - 'A' + 10;
+        }
+        return -1;
+    }
+
+    private static IllegalArgumentException tooManyComponents(CharSequence address, int at) {
+        return new IllegalArgumentException("Too many address components at character " + at + " in '"
+                + address + "'");
     }
 
     @Override
@@ -325,9 +375,108 @@ public class Ipv6Address implements Comparable<Ipv6Address> {
                 + (int) (this.high ^ (this.high >>> 32));
     }
 
+    /**
+     * Get the high 64 bits of a mask with the leading <code>prefixLength</code> bits set.
+     *
+     * @param prefixLength A prefix length from 0 to 128
+     * @return The high half of the mask
+     */
+    public static long prefixMaskHigh(int prefixLength) {
+        checkPrefixLength(prefixLength);
+        return prefixLength >= 64 ? -1L : prefixLength == 0 ? 0 : -1L << (64 - prefixLength);
+    }
+
+    /**
+     * Get the low 64 bits of a mask with the leading <code>prefixLength</code> bits set.
+     *
+     * @param prefixLength A prefix length from 0 to 128
+     * @return The low half of the mask
+     */
+    public static long prefixMaskLow(int prefixLength) {
+        checkPrefixLength(prefixLength);
+        return prefixLength <= 64 ? 0 : -1L << (128 - prefixLength);
+    }
+
+    private static void checkPrefixLength(int prefixLength) {
+        if (prefixLength < 0 || prefixLength > 128) {
+            throw new IllegalArgumentException("Prefix length must be between 0 and 128 but is " + prefixLength);
+        }
+    }
+
+    /**
+     * Get the first address of the subnet of the given prefix length containing this address - that is, this
+     * address with all but the leading <code>prefixLength</code> bits cleared.
+     *
+     * @param prefixLength A prefix length from 0 to 128
+     * @return An address, which is this one if no bits were cleared
+     */
+    public Ipv6Address network(int prefixLength) {
+        long hi = high & prefixMaskHigh(prefixLength);
+        long lo = low & prefixMaskLow(prefixLength);
+        return hi == high && lo == low ? this : new Ipv6Address(hi, lo);
+    }
+
+    /**
+     * Get the last address of the subnet of the given prefix length containing this address - that is, this
+     * address with all but the leading <code>prefixLength</code> bits set. Ipv6 has no broadcast, but this is the
+     * equivalent of Ipv4Address.broadcast().
+     *
+     * @param prefixLength A prefix length from 0 to 128
+     * @return An address, which is this one if no bits were set
+     */
+    public Ipv6Address broadcast(int prefixLength) {
+        long hi = high | ~prefixMaskHigh(prefixLength);
+        long lo = low | ~prefixMaskLow(prefixLength);
+        return hi == high && lo == low ? this : new Ipv6Address(hi, lo);
+    }
+
+    /**
+     * Determine if the passed address is in the subnet of the given prefix length containing this address.
+     *
+     * @param other Another address
+     * @param prefixLength A prefix length from 0 to 128
+     * @return true if the leading <code>prefixLength</code> bits of both addresses are the same
+     */
+    public boolean contains(Ipv6Address other, int prefixLength) {
+        return ((high ^ other.high) & prefixMaskHigh(prefixLength)) == 0
+                && ((low ^ other.low) & prefixMaskLow(prefixLength)) == 0;
+    }
+
+    /**
+     * Get the number of leading bits this address has in common with another.
+     *
+     * @param other Another address
+     * @return A number from 0 to 128
+     */
+    public int commonPrefixLength(Ipv6Address other) {
+        long hi = high ^ other.high;
+        return hi != 0 ? Long.numberOfLeadingZeros(hi) : 64 + Long.numberOfLeadingZeros(low ^ other.low);
+    }
+
+    /**
+     * Get the address numerically following this one, wrapping around to :: after the last address.
+     *
+     * @return An address
+     */
+    public Ipv6Address next() {
+        return new Ipv6Address(low == -1L ? high + 1 : high, low + 1);
+    }
+
+    /**
+     * Get the address numerically preceding this one, wrapping around to the last address before ::.
+     *
+     * @return An address
+     */
+    public Ipv6Address previous() {
+        return new Ipv6Address(low == 0 ? high - 1 : high, low - 1);
+    }
+
     @Override
     public int compareTo(Ipv6Address o) {
-        return o.low == low && o.high == high?0
-                :toBigInteger().compareTo(o.toBigInteger());
+        // Flipping the sign bit makes signed comparison order the values as unsigned
+        if (high != o.high) {
+            return (high ^ Long.MIN_VALUE) < (o.high ^ Long.MIN_VALUE) ? -1 : 1;
+        }
+        return low == o.low ? 0 : (low ^ Long.MIN_VALUE) < (o.low ^ Long.MIN_VALUE) ? -1 : 1;
     }
 }
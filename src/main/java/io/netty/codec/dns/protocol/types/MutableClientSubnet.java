@@ -0,0 +1,142 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.types;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.dns.DnsDecoderException;
+
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * A reusable, mutable counterpart to {@link ClientSubnet}, for servers which inspect the ECS option of every query
+ * they receive: reading one into an existing instance allocates nothing. Not thread-safe - keep one per event loop
+ * or channel.
+ */
+public final class MutableClientSubnet {
+
+    private boolean ipv4 = true;
+    private int sourcePrefixLength;
+    private int scopePrefixLength;
+    private long high;
+    private long low;
+
+    /**
+     * Replace the contents of this instance with the payload of an ECS option. If the option is malformed, this
+     * instance is left unchanged.
+     *
+     * @param from A buffer
+     * @param length The option length
+     * @return this
+     * @throws DnsDecoderException if the option is malformed
+     */
+    public MutableClientSubnet read(ByteBuf from, int length) throws DnsDecoderException {
+        return ClientSubnet.read(from, length, this);
+    }
+
+    /**
+     * Replace the contents of this instance with those of a ClientSubnet.
+     *
+     * @param subnet A subnet
+     * @return this
+     */
+    public MutableClientSubnet set(ClientSubnet<?> subnet) {
+        checkNotNull(subnet, "subnet");
+        return set(subnet.isIpv4(), subnet.high(), subnet.low(), subnet.sourcePrefixLength(),
+                subnet.scopePrefixLength());
+    }
+
+    MutableClientSubnet set(boolean ipv4, long high, long low, int sourcePrefixLength, int scopePrefixLength) {
+        this.ipv4 = ipv4;
+        this.sourcePrefixLength = sourcePrefixLength;
+        this.scopePrefixLength = scopePrefixLength;
+        this.high = high;
+        this.low = low;
+        return this;
+    }
+
+    /**
+     * Set the scope prefix length, as a server does before echoing the option back in a response.
+     *
+     * @param scopePrefixLength A prefix length no longer than the address
+     * @return this
+     */
+    public MutableClientSubnet scopePrefixLength(int scopePrefixLength) {
+        if (scopePrefixLength < 0 || scopePrefixLength > ClientSubnet.bits(ipv4)) {
+            throw new IllegalArgumentException("scopePrefixLength must be between 0 and " + ClientSubnet.bits(ipv4)
+                    + " but is " + scopePrefixLength);
+        }
+        this.scopePrefixLength = scopePrefixLength;
+        return this;
+    }
+
+    public boolean isIpv4() {
+        return ipv4;
+    }
+
+    public int sourcePrefixLength() {
+        return sourcePrefixLength;
+    }
+
+    public int scopePrefixLength() {
+        return scopePrefixLength;
+    }
+
+    /**
+     * The high 64 bits of the address; an IPv4 address occupies the upper 32 bits.
+     *
+     * @return The bits
+     */
+    public long high() {
+        return high;
+    }
+
+    /**
+     * The low 64 bits of the address, which are always zero for IPv4.
+     *
+     * @return The bits
+     */
+    public long low() {
+        return low;
+    }
+
+    /**
+     * Write the current contents as the payload of an ECS option.
+     *
+     * @param into A buffer
+     */
+    public void writeTo(ByteBuf into) {
+        ClientSubnet.write(into, ipv4, high, low, sourcePrefixLength, scopePrefixLength);
+    }
+
+    public int encodedLength() {
+        return 4 + ClientSubnet.addressLength(sourcePrefixLength);
+    }
+
+    /**
+     * Create an immutable copy of the current contents.
+     *
+     * @return A ClientSubnet
+     */
+    public ClientSubnet<?> toClientSubnet() {
+        return ipv4 ? ClientSubnet.ipv4((int) (high >>> 32), sourcePrefixLength, scopePrefixLength)
+                : ClientSubnet.ipv6(high, low, sourcePrefixLength, scopePrefixLength);
+    }
+
+    @Override
+    public String toString() {
+        return toClientSubnet().toString();
+    }
+}
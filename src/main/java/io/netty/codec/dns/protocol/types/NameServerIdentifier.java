@@ -0,0 +1,124 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.types;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.dns.DnsDecoderException;
+import io.netty.util.CharsetUtil;
+import java.util.Arrays;
+
+import static io.netty.handler.codec.dns.DnsResponseCode.FORMERR;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * Represents the payload of an OPT NSID subrecord (RFC 5001). Clients send it empty to ask which server answered;
+ * servers reply with an opaque identifier. The identifier is encoded once, when this is created, and written with a
+ * single copy - so a server should create its instance once and reuse it.
+ */
+public final class NameServerIdentifier {
+
+    /**
+     * An empty identifier, as sent by clients.
+     */
+    public static final NameServerIdentifier EMPTY = new NameServerIdentifier(new byte[0]);
+
+    private static final int MAX_LENGTH = 0xFFFF;
+
+    private final byte[] bytes;
+
+    private NameServerIdentifier(byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    public static NameServerIdentifier of(byte[] bytes) {
+        if (checkNotNull(bytes, "bytes").length > MAX_LENGTH) {
+            throw new IllegalArgumentException("NSID of " + bytes.length + " bytes is longer than " + MAX_LENGTH);
+        }
+        return bytes.length == 0 ? EMPTY : new NameServerIdentifier(bytes.clone());
+    }
+
+    /**
+     * Create an identifier from a string, encoded as UTF-8.
+     *
+     * @param id A string
+     * @return An identifier
+     */
+    public static NameServerIdentifier of(CharSequence id) {
+        return of(checkNotNull(id, "id").toString().getBytes(CharsetUtil.UTF_8));
+    }
+
+    /**
+     * Read the payload of an NSID option.
+     *
+     * @param from A buffer
+     * @param length The option length
+     * @return An identifier
+     * @throws DnsDecoderException if the length exceeds the bytes available
+     */
+    public static NameServerIdentifier read(ByteBuf from, int length) throws DnsDecoderException {
+        if (length > from.readableBytes()) {
+            throw new DnsDecoderException(FORMERR, "NSID option length " + length + " with "
+                    + from.readableBytes() + " bytes available");
+        }
+        if (length == 0) {
+            return EMPTY;
+        }
+        byte[] bytes = new byte[length];
+        from.readBytes(bytes);
+        return new NameServerIdentifier(bytes);
+    }
+
+    public void writeTo(ByteBuf into) {
+        into.writeBytes(bytes);
+    }
+
+    public int encodedLength() {
+        return bytes.length;
+    }
+
+    public boolean isEmpty() {
+        return bytes.length == 0;
+    }
+
+    public byte[] bytes() {
+        return bytes.clone();
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(bytes);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj == this || obj instanceof NameServerIdentifier
+                && Arrays.equals(((NameServerIdentifier) obj).bytes, bytes);
+    }
+
+    @Override
+    public String toString() {
+        // Identifiers are opaque, but are usually printable
+        StringBuilder sb = new StringBuilder(bytes.length + 6).append("NSID{");
+        for (byte b : bytes) {
+            if (b >= 0x20 && b < 0x7F) {
+                sb.append((char) b);
+            } else {
+                sb.append("\\x").append(Character.forDigit(b >> 4 & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+            }
+        }
+        return sb.append('}').toString();
+    }
+}
@@ -17,12 +17,10 @@ package io.netty.codec.dns.protocol.types;
 
 import io.netty.handler.codec.dns.DnsRecordType;
 import io.netty.util.internal.StringUtil;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
 
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
 import static io.netty.util.internal.StringUtil.charSequencesEqual;
 
 /**
@@ -33,17 +31,47 @@ import static io.netty.util.internal.StringUtil.charSequencesEqual;
 public class NextSecureRecord implements Iterable<DnsRecordType> {
 
     public final CharSequence nextRecord;
+    /**
+     * The types present at the owner name, in ascending order - a {@link TypeBitmap}, which
+     * {@link #typeBitmap()} returns as such.
+     */
     public final List<DnsRecordType> types;
 
     public NextSecureRecord(CharSequence nextRecord, DnsRecordType... types) {
-        this(nextRecord, Arrays.asList(types));
+        this(nextRecord, TypeBitmap.of(types));
     }
 
     public NextSecureRecord(CharSequence nextRecord, List<DnsRecordType> types) {
+        this(nextRecord, TypeBitmap.of(types));
+    }
+
+    public NextSecureRecord(CharSequence nextRecord, TypeBitmap types) {
         this.nextRecord = nextRecord;
-        List<DnsRecordType> realTypes = new ArrayList<>(types);
-        Collections.sort(realTypes);
-        this.types = Collections.unmodifiableList(realTypes);
+        this.types = checkNotNull(types, "types");
+    }
+
+    /**
+     * Get the types present at the owner name in wire format, for membership tests and encoding without
+     * allocating.
+     *
+     * @return The type bitmap
+     */
+    public TypeBitmap typeBitmap() {
+        return (TypeBitmap) types;
+    }
+
+    /**
+     * Determine if this record lists the passed type.
+     *
+     * @param type A record type as an int
+     * @return true if it is present
+     */
+    public boolean hasType(int type) {
+        return typeBitmap().contains(type);
+    }
+
+    public boolean hasType(DnsRecordType type) {
+        return typeBitmap().contains(type.intValue());
     }
 
     @Override
@@ -21,19 +21,31 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.Iterator;
 import java.util.List;
+import java.util.NoSuchElementException;
 
 import static io.netty.util.internal.ObjectUtil.checkNotNull;
 
 /**
  * Provides a way to query a list of OPT records by subtype or payload type.
+ * <p>
+ * The first record for each option code below 32 - which covers every option in common use - is indexed as records
+ * are added, so looking those up by type is a constant-time array read rather than a scan.
  */
 public final class OptRecords implements Iterable<OptSubrecord<?>> {
 
+    private static final int INDEXED_CODES = 32;
+
     private final List<OptSubrecord<?>> records;
+    private OptSubrecord<?>[] byCode;
+    // bit n set if some record has option code n, for codes below INDEXED_CODES
+    private int present;
 
     public OptRecords(List<OptSubrecord<?>> records) {
         checkNotNull(records, "records");
-        this.records = new ArrayList<>(records);
+        this.records = new ArrayList<>(records.size());
+        for (OptSubrecord<?> record : records) {
+            add(record);
+        }
     }
 
     public OptRecords() {
@@ -54,7 +66,16 @@ public final class OptRecords implements Iterable<OptSubrecord<?>> {
     }
 
     public OptRecords add(OptSubrecord<?> record) {
+        checkNotNull(record, "record");
         records.add(record);
+        int code = record.type().intValue();
+        if (code < INDEXED_CODES && (present & (1 << code)) == 0) {
+            if (byCode == null) {
+                byCode = new OptSubrecord<?>[INDEXED_CODES];
+            }
+            byCode[code] = record;
+            present |= 1 << code;
+        }
         return this;
     }
 
@@ -64,7 +85,7 @@ public final class OptRecords implements Iterable<OptSubrecord<?>> {
 
     @SuppressWarnings("unchecked")
     public <T> OptSubrecord<T> find(Class<T> payloadType) {
-        for (OptSubrecord<?> r : this) {
+        for (OptSubrecord<?> r : records) {
             if (payloadType.isInstance(r.content())) {
                 return (OptSubrecord<T>) r;
             }
@@ -75,7 +96,7 @@ public final class OptRecords implements Iterable<OptSubrecord<?>> {
     @SuppressWarnings("unchecked")
     public <T> List<OptSubrecord<T>> findAll(Class<T> payloadType) {
         List<OptSubrecord<T>> result = new ArrayList<>();
-        for (OptSubrecord<?> r : this) {
+        for (OptSubrecord<?> r : records) {
             if (payloadType.isInstance(r.content())) {
                 result.add((OptSubrecord<T>) r);
             }
@@ -84,18 +105,45 @@ public final class OptRecords implements Iterable<OptSubrecord<?>> {
     }
 
     public OptSubrecord<?> find(OptSubrecordType type) {
-        for (OptSubrecord<?> r : this) {
-            if (type.equals(r.type())) {
+        return find(type.intValue());
+    }
+
+    /**
+     * Find the first subrecord with the passed option code.
+     *
+     * @param code An option code
+     * @return A subrecord or null
+     */
+    public OptSubrecord<?> find(int code) {
+        if (code >= 0 && code < INDEXED_CODES) {
+            return (present & (1 << code)) == 0 ? null : byCode[code];
+        }
+        for (OptSubrecord<?> r : records) {
+            if (r.type().intValue() == code) {
                 return r;
             }
         }
         return null;
     }
 
+    /**
+     * Determine if a subrecord of the passed type is present.
+     *
+     * @param type A type
+     * @return true if one is present
+     */
+    public boolean contains(OptSubrecordType type) {
+        return find(type.intValue()) != null;
+    }
+
     public List<OptSubrecord<?>> findAll(OptSubrecordType type) {
+        int code = type.intValue();
+        if (code < INDEXED_CODES && (present & (1 << code)) == 0) {
+            return Collections.emptyList();
+        }
         List<OptSubrecord<?>> result = new ArrayList<>();
-        for (OptSubrecord<?> r : this) {
-            if (type.equals(r.type())) {
+        for (OptSubrecord<?> r : records) {
+            if (r.type().intValue() == code) {
                 result.add(r);
             }
         }
@@ -106,9 +154,38 @@ public final class OptRecords implements Iterable<OptSubrecord<?>> {
         return records.size();
     }
 
+    /**
+     * Iterate the subrecords in order. The iterator reads the backing list directly, and does not support removal,
+     * which would leave the index stale.
+     *
+     * @return An iterator
+     */
     @Override
     public Iterator<OptSubrecord<?>> iterator() {
-        return records.iterator();
+        return new Iter();
+    }
+
+    private final class Iter implements Iterator<OptSubrecord<?>> {
+
+        private int index;
+
+        @Override
+        public boolean hasNext() {
+            return index < records.size();
+        }
+
+        @Override
+        public OptSubrecord<?> next() {
+            if (index >= records.size()) {
+                throw new NoSuchElementException();
+            }
+            return records.get(index++);
+        }
+
+        @Override
+        public void remove() {
+            throw new UnsupportedOperationException("OptRecords is read-only");
+        }
     }
 
     @Override
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.types;
+
+import io.netty.buffer.ByteBuf;
+
+import static io.netty.util.internal.ObjectUtil.checkPositiveOrZero;
+
+/**
+ * Represents the payload of an OPT PADDING subrecord (RFC 7830) - some number of zero bytes, whose only purpose is to
+ * round the size of an encrypted message up so its length reveals less about its contents. Only the length is kept;
+ * padding is written as zeros regardless of what was read.
+ */
+public final class Padding {
+
+    /**
+     * The block length RFC 8467 recommends clients pad queries to.
+     */
+    public static final int QUERY_BLOCK_LENGTH = 128;
+
+    /**
+     * The block length RFC 8467 recommends servers pad responses to.
+     */
+    public static final int RESPONSE_BLOCK_LENGTH = 468;
+
+    private static final Padding EMPTY = new Padding(0);
+
+    private final int length;
+
+    private Padding(int length) {
+        this.length = length;
+    }
+
+    public static Padding of(int length) {
+        return checkPositiveOrZero(length, "length") == 0 ? EMPTY : new Padding(length);
+    }
+
+    /**
+     * Get the number of padding bytes needed to bring a message to a multiple of a block length.
+     *
+     * @param messageLength The length of the message, including the header of the padding option
+     * @param blockLength The block length
+     * @return The number of bytes to pad with
+     */
+    public static int padLength(int messageLength, int blockLength) {
+        int remainder = messageLength % blockLength;
+        return remainder == 0 ? 0 : blockLength - remainder;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public void writeTo(ByteBuf into) {
+        into.writeZero(length);
+    }
+
+    @Override
+    public int hashCode() {
+        return length;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj == this || obj instanceof Padding && ((Padding) obj).length == length;
+    }
+
+    @Override
+    public String toString() {
+        return "Padding{" + length + '}';
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.types;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.dns.DnsDecoderException;
+
+import static io.netty.handler.codec.dns.DnsResponseCode.FORMERR;
+
+/**
+ * Represents the payload of an OPT edns-tcp-keepalive subrecord (RFC 7828). Clients send it empty, to ask for a
+ * timeout; servers reply with the idle timeout for the connection, in units of 100 milliseconds. Immutable - a server
+ * can create the instance it replies with once, and an empty query option decodes to a shared instance.
+ */
+public final class TcpKeepalive {
+
+    /**
+     * A keepalive option with no timeout, as sent by clients.
+     */
+    public static final TcpKeepalive EMPTY = new TcpKeepalive(-1);
+
+    private static final int MAX_TIMEOUT = 0xFFFF;
+
+    private final int timeout;
+
+    private TcpKeepalive(int timeout) {
+        this.timeout = timeout;
+    }
+
+    /**
+     * Create a keepalive option with a timeout.
+     *
+     * @param timeout The idle timeout in units of 100 milliseconds, from 0 to 65535
+     * @return A keepalive option
+     */
+    public static TcpKeepalive of(int timeout) {
+        if (timeout < 0 || timeout > MAX_TIMEOUT) {
+            throw new IllegalArgumentException("timeout: " + timeout + " (expected: 0-" + MAX_TIMEOUT + ")");
+        }
+        return new TcpKeepalive(timeout);
+    }
+
+    /**
+     * Read the payload of an edns-tcp-keepalive option.
+     *
+     * @param from A buffer
+     * @param length The option length
+     * @return A keepalive option
+     * @throws DnsDecoderException if the length is neither 0 nor 2
+     */
+    public static TcpKeepalive read(ByteBuf from, int length) throws DnsDecoderException {
+        if (length == 0) {
+            return EMPTY;
+        }
+        if (length != 2 || from.readableBytes() < 2) {
+            throw new DnsDecoderException(FORMERR, "Invalid edns-tcp-keepalive option length " + length);
+        }
+        return new TcpKeepalive(from.readUnsignedShort());
+    }
+
+    public void writeTo(ByteBuf into) {
+        if (timeout >= 0) {
+            into.writeShort(timeout);
+        }
+    }
+
+    public int encodedLength() {
+        return timeout < 0 ? 0 : 2;
+    }
+
+    public boolean hasTimeout() {
+        return timeout >= 0;
+    }
+
+    /**
+     * The idle timeout in units of 100 milliseconds.
+     *
+     * @return The timeout, or -1 if there is none
+     */
+    public int timeout() {
+        return timeout;
+    }
+
+    /**
+     * The idle timeout in milliseconds.
+     *
+     * @return The timeout, or -1 if there is none
+     */
+    public long timeoutMillis() {
+        return timeout < 0 ? -1 : timeout * 100L;
+    }
+
+    @Override
+    public int hashCode() {
+        return timeout;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj == this || obj instanceof TcpKeepalive && ((TcpKeepalive) obj).timeout == timeout;
+    }
+
+    @Override
+    public String toString() {
+        return timeout < 0 ? "TcpKeepalive{}" : "TcpKeepalive{" + timeoutMillis() + "ms}";
+    }
+}
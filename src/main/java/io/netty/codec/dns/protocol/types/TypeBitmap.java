@@ -0,0 +1,299 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.types;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.dns.DnsDecoderException;
+import io.netty.handler.codec.dns.DnsRecordType;
+import io.netty.util.internal.EmptyArrays;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import static io.netty.handler.codec.dns.DnsResponseCode.FORMERR;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * The set of record types in an NSEC record, stored in its RFC 4034 wire format: for each 256-type window containing
+ * at least one type, the window number, the number of bitmap bytes up to the last non-zero one (at most 32), and
+ * those bytes, with the bit for the lowest type in each byte as its high bit. It can be read and written by copying
+ * bytes, and {@link #contains(int)} tests membership without creating any DnsRecordType instances. As a List it is
+ * immutable and sorted by type.
+ */
+public final class TypeBitmap extends AbstractList<DnsRecordType> {
+
+    public static final TypeBitmap EMPTY = new TypeBitmap(EmptyArrays.EMPTY_BYTES, 0);
+    private static final int MAX_WINDOW_LENGTH = 32;
+
+    private final byte[] bitmap;
+    private final int size;
+    private int hash;
+
+    private TypeBitmap(byte[] bitmap, int size) {
+        this.bitmap = bitmap;
+        this.size = size;
+    }
+
+    public static TypeBitmap of(DnsRecordType... types) {
+        return of(Arrays.asList(checkNotNull(types, "types")));
+    }
+
+    /**
+     * Create a bitmap containing the passed types, in any order. Meta-types and query types have no bits and are
+     * omitted, per RFC 2929.
+     *
+     * @param types Some types
+     * @return A bitmap
+     */
+    public static TypeBitmap of(Collection<? extends DnsRecordType> types) {
+        checkNotNull(types, "types");
+        if (types instanceof TypeBitmap) {
+            return (TypeBitmap) types;
+        }
+        byte[][] windows = null;
+        int[] windowLengths = null;
+        int totalLength = 0;
+        int size = 0;
+        for (DnsRecordType type : types) {
+            if (type.isMetaTypeOrQType()) {
+                continue;
+            }
+            if (windows == null) {
+                windows = new byte[256][];
+                windowLengths = new int[256];
+            }
+            int value = type.intValue();
+            int window = value >>> 8;
+            int byteIndex = (value & 0xFF) >>> 3;
+            if (windows[window] == null) {
+                windows[window] = new byte[MAX_WINDOW_LENGTH];
+                totalLength += 2;
+            }
+            int bit = 0x80 >>> (value & 7);
+            if ((windows[window][byteIndex] & bit) == 0) {
+                windows[window][byteIndex] |= bit;
+                size++;
+            }
+            if (byteIndex + 1 > windowLengths[window]) {
+                totalLength += byteIndex + 1 - windowLengths[window];
+                windowLengths[window] = byteIndex + 1;
+            }
+        }
+        if (windows == null) {
+            return EMPTY;
+        }
+        byte[] result = new byte[totalLength];
+        int pos = 0;
+        for (int window = 0; window < windows.length; window++) {
+            if (windows[window] != null) {
+                result[pos++] = (byte) window;
+                result[pos++] = (byte) windowLengths[window];
+                System.arraycopy(windows[window], 0, result, pos, windowLengths[window]);
+                pos += windowLengths[window];
+            }
+        }
+        return new TypeBitmap(result, size);
+    }
+
+    /**
+     * Read a bitmap from the wire, copying its bytes after validating them.
+     *
+     * @param from The buffer, positioned at the start of the bitmap
+     * @param length The number of bytes in the bitmap
+     * @return A bitmap
+     * @throws DnsDecoderException if the bitmap is malformed
+     */
+    public static TypeBitmap read(ByteBuf from, int length) throws DnsDecoderException {
+        if (length > from.readableBytes()) {
+            throw new DnsDecoderException(FORMERR, "NSEC bitmap is " + length + " bytes long but only "
+                    + from.readableBytes() + " bytes remain.");
+        }
+        if (length == 0) {
+            return EMPTY;
+        }
+        byte[] bytes = new byte[length];
+        from.readBytes(bytes);
+        int size = 0;
+        boolean canonical = true;
+        int lastWindow = -1;
+        for (int pos = 0; pos < length;) {
+            if (pos + 2 > length) {
+                throw new DnsDecoderException(FORMERR, "Truncated NSEC bitmap window header at " + pos);
+            }
+            int window = bytes[pos] & 0xFF;
+            int windowLength = bytes[pos + 1] & 0xFF;
+            if (window <= lastWindow) {
+                throw new DnsDecoderException(FORMERR, "NSEC bitmap window " + window + " follows window "
+                        + lastWindow + " but windows must be in increasing order.");
+            } else if (windowLength < 1) {
+                throw new DnsDecoderException(FORMERR, "NSEC bitmap window is " + windowLength
+                        + " bytes long but must be 1 or greater.");
+            } else if (windowLength > MAX_WINDOW_LENGTH) {
+                throw new DnsDecoderException(FORMERR, "NSEC bitmap window is " + windowLength
+                        + " but may not be > " + MAX_WINDOW_LENGTH + ".");
+            } else if (pos + 2 + windowLength > length) {
+                throw new DnsDecoderException(FORMERR, "NSEC bitmap window is " + windowLength
+                        + " bytes long but only " + (length - pos - 2) + " bytes remain.");
+            }
+            // There is no RR type 0, so bit 0 must always be false
+            if (window == 0 && (bytes[pos + 2] & 0x80) != 0) {
+                throw new DnsDecoderException(FORMERR, "Zeroth bit in zeroth frame of NSEC bitmask MUST be false");
+            }
+            for (int i = 0; i < windowLength; i++) {
+                size += Integer.bitCount(bytes[pos + 2 + i] & 0xFF);
+            }
+            // Senders must omit trailing zero bytes, but tolerate ones that do not
+            canonical &= bytes[pos + 1 + windowLength] != 0;
+            lastWindow = window;
+            pos += 2 + windowLength;
+        }
+        TypeBitmap result = new TypeBitmap(bytes, size);
+        return canonical ? result : of(new ArrayList<>(result));
+    }
+
+    /**
+     * Determine if a type is present without creating a DnsRecordType.
+     *
+     * @param type A record type as an int
+     * @return true if it is present
+     */
+    public boolean contains(int type) {
+        if (type < 0 || type > 0xFFFF) {
+            return false;
+        }
+        int window = type >>> 8;
+        int byteIndex = (type & 0xFF) >>> 3;
+        for (int pos = 0; pos < bitmap.length;) {
+            int w = bitmap[pos] & 0xFF;
+            int windowLength = bitmap[pos + 1] & 0xFF;
+            if (w == window) {
+                return byteIndex < windowLength && (bitmap[pos + 2 + byteIndex] & (0x80 >>> (type & 7))) != 0;
+            } else if (w > window) {
+                return false;
+            }
+            pos += 2 + windowLength;
+        }
+        return false;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return o instanceof DnsRecordType && contains(((DnsRecordType) o).intValue());
+    }
+
+    /**
+     * Find the lowest type present which is greater than or equal to the passed one.
+     *
+     * @param from A record type as an int
+     * @return A record type as an int, or -1 if there is none
+     */
+    public int nextType(int from) {
+        for (int pos = 0; pos < bitmap.length;) {
+            int base = (bitmap[pos] & 0xFF) << 8;
+            int windowLength = bitmap[pos + 1] & 0xFF;
+            for (int bit = Math.max(0, from - base); bit < windowLength * 8; bit++) {
+                if ((bitmap[pos + 2 + (bit >>> 3)] & (0x80 >>> (bit & 7))) != 0) {
+                    return base + bit;
+                }
+            }
+            pos += 2 + windowLength;
+        }
+        return -1;
+    }
+
+    @Override
+    public DnsRecordType get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException(index + " of " + size);
+        }
+        int type = nextType(0);
+        for (int i = 0; i < index; i++) {
+            type = nextType(type + 1);
+        }
+        return DnsRecordType.valueOf(type);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Iterator<DnsRecordType> iterator() {
+        return new Iterator<DnsRecordType>() {
+            private int next = nextType(0);
+
+            @Override
+            public boolean hasNext() {
+                return next >= 0;
+            }
+
+            @Override
+            public DnsRecordType next() {
+                if (next < 0) {
+                    throw new NoSuchElementException();
+                }
+                int result = next;
+                next = nextType(result + 1);
+                return DnsRecordType.valueOf(result);
+            }
+
+            @Override
+            public void remove() {
+                throw new UnsupportedOperationException("Read-only");
+            }
+        };
+    }
+
+    /**
+     * The number of bytes {@link #writeTo(ByteBuf)} will write.
+     *
+     * @return A byte count
+     */
+    public int encodedLength() {
+        return bitmap.length;
+    }
+
+    /**
+     * Write the wire format of this bitmap.
+     *
+     * @param into The buffer
+     */
+    public void writeTo(ByteBuf into) {
+        into.writeBytes(bitmap);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o instanceof TypeBitmap) {
+            return Arrays.equals(bitmap, ((TypeBitmap) o).bitmap);
+        }
+        return super.equals(o);
+    }
+
+    @Override
+    public int hashCode() {
+        // Must match List.hashCode() since this is equal to any List of the same types
+        int result = hash;
+        if (result == 0) {
+            result = hash = super.hashCode();
+        }
+        return result;
+    }
+}
@@ -0,0 +1,235 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.types;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.handler.codec.dns.DnsDecoderException;
+import io.netty.util.CharsetUtil;
+
+import static io.netty.handler.codec.dns.DnsResponseCode.FORMERR;
+import static io.netty.util.internal.ObjectUtil.checkNotNull;
+
+/**
+ * A DNS name kept in uncompressed wire format - the length-prefixed labels exactly as they arrived, with any
+ * compression pointers followed - which is only converted to dotted text the first time it is used as a
+ * CharSequence. Forwarders and caches which pass names through without looking at them can read and write them
+ * without building strings.
+ * <p>
+ * Equality and hash codes ignore ASCII case, as DNS does, and are computed from the wire bytes.
+ */
+public final class WireName implements CharSequence {
+
+    private static final int MAX_WIRE_LENGTH = 255;
+    private static final int MAX_LABEL_LENGTH = 63;
+
+    private final byte[] wire;
+    private final boolean ascii;
+    private final int hash;
+    private String text;
+
+    private WireName(byte[] wire) {
+        this.wire = wire;
+        boolean ascii = true;
+        int hash = 0;
+        for (byte b : wire) {
+            ascii &= b >= 0;
+            hash = 31 * hash + toLowerCase(b);
+        }
+        this.ascii = ascii;
+        this.hash = hash;
+    }
+
+    /**
+     * Read a possibly compressed name, advancing the reader index past it. Compression pointers are resolved as
+     * offsets from index 0 of the buffer, which must therefore contain the whole message.
+     *
+     * @param buf A buffer
+     * @return A name
+     * @throws DnsDecoderException if the name is truncated, too long, uses an unknown label type, or contains a
+     * compression pointer which does not point to an earlier position
+     */
+    public static WireName read(ByteBuf buf) throws DnsDecoderException {
+        checkNotNull(buf, "buf");
+        int start = buf.readerIndex();
+        byte[] wire = new byte[skip(buf)];
+        copy(buf, start, wire);
+        return new WireName(wire);
+    }
+
+    /**
+     * Validate the name at the reader index and move past it, returning its uncompressed length.
+     */
+    private static int skip(ByteBuf buf) throws DnsDecoderException {
+        int index = buf.readerIndex();
+        int limit = buf.writerIndex();
+        // Each pointer must point before the target of the previous one, so pointer loops are impossible
+        int lowest = index;
+        int end = -1;
+        int length = 0;
+        for (;;) {
+            if (index >= limit) {
+                throw new DnsDecoderException(FORMERR, "Name starting at " + buf.readerIndex() + " is truncated");
+            }
+            int labelLength = buf.getUnsignedByte(index);
+            if ((labelLength & 0xC0) == 0xC0) {
+                if (index + 1 >= limit) {
+                    throw new DnsDecoderException(FORMERR, "Compression pointer at " + index + " is truncated");
+                }
+                int pointer = (labelLength & 0x3F) << 8 | buf.getUnsignedByte(index + 1);
+                if (pointer >= lowest) {
+                    throw new DnsDecoderException(FORMERR, "Compression pointer at " + index + " to " + pointer
+                            + " does not point before " + lowest);
+                }
+                if (end < 0) {
+                    end = index + 2;
+                }
+                index = lowest = pointer;
+            } else if (labelLength > MAX_LABEL_LENGTH) {
+                throw new DnsDecoderException(FORMERR, "Unsupported label type " + (labelLength >> 6) + " at "
+                        + index);
+            } else {
+                length += labelLength + 1;
+                if (length > MAX_WIRE_LENGTH) {
+                    throw new DnsDecoderException(FORMERR, "Name starting at " + buf.readerIndex()
+                            + " is longer than " + MAX_WIRE_LENGTH + " bytes");
+                }
+                if (labelLength == 0) {
+                    buf.readerIndex(end < 0 ? index + 1 : end);
+                    return length;
+                }
+                index += labelLength + 1;
+            }
+        }
+    }
+
+    private static void copy(ByteBuf buf, int index, byte[] into) {
+        int pos = 0;
+        while (pos < into.length) {
+            int labelLength = buf.getUnsignedByte(index);
+            if ((labelLength & 0xC0) == 0xC0) {
+                index = (labelLength & 0x3F) << 8 | buf.getUnsignedByte(index + 1);
+            } else {
+                buf.getBytes(index, into, pos, labelLength + 1);
+                pos += labelLength + 1;
+                index += labelLength + 1;
+            }
+        }
+    }
+
+    /**
+     * The length of this name in uncompressed wire format.
+     *
+     * @return A byte count
+     */
+    public int wireLength() {
+        return wire.length;
+    }
+
+    /**
+     * Write this name in uncompressed wire format.
+     *
+     * @param into A buffer
+     */
+    public void writeTo(ByteBuf into) {
+        into.writeBytes(wire);
+    }
+
+    /**
+     * Determine whether every label in this name is ASCII - if not, it was presumably read from an mDNS message and
+     * contains UTF-8.
+     *
+     * @return true if the name is ASCII
+     */
+    public boolean isAscii() {
+        return ascii;
+    }
+
+    public int labelCount() {
+        int result = 0;
+        for (int i = 0; wire[i] != 0; i += (wire[i] & 0xFF) + 1) {
+            result++;
+        }
+        return result;
+    }
+
+    @Override
+    public int length() {
+        return toString().length();
+    }
+
+    @Override
+    public char charAt(int index) {
+        return toString().charAt(index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return toString().subSequence(start, end);
+    }
+
+    /**
+     * Get the dotted form of this name, with a trailing dot, computing it on first use.
+     *
+     * @return The name as a string
+     */
+    @Override
+    public String toString() {
+        String result = text;
+        if (result == null) {
+            if (wire.length == 1) {
+                result = ".";
+            } else {
+                byte[] dotted = new byte[wire.length - 1];
+                for (int i = 0; wire[i] != 0; i += (wire[i] & 0xFF) + 1) {
+                    System.arraycopy(wire, i + 1, dotted, i, wire[i] & 0xFF);
+                    dotted[i + (wire[i] & 0xFF)] = '.';
+                }
+                result = new String(dotted, ascii ? CharsetUtil.US_ASCII : CharsetUtil.UTF_8);
+            }
+            text = result;
+        }
+        return result;
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (o == this) {
+            return true;
+        }
+        if (!(o instanceof WireName)) {
+            return false;
+        }
+        WireName other = (WireName) o;
+        if (other.hash != hash || other.wire.length != wire.length) {
+            return false;
+        }
+        for (int i = 0; i < wire.length; i++) {
+            if (toLowerCase(wire[i]) != toLowerCase(other.wire[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int toLowerCase(byte b) {
+        return b >= 'A' && b <= 'Z' ? b + ('a' - 'A') : b;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol;
+
+import io.netty.codec.dns.protocol.recordcodecs.DnsRecordCodecs;
+import io.netty.codec.dns.protocol.types.Ipv4Address;
+import io.netty.codec.dns.protocol.types.MailExchanger;
+import io.netty.handler.codec.dns.DnsRecordType;
+import org.junit.Test;
+
+import static io.netty.handler.codec.dns.DnsRecordType.A;
+import static io.netty.handler.codec.dns.DnsRecordType.AAAA;
+import static io.netty.handler.codec.dns.DnsRecordType.MX;
+import static org.junit.Assert.*;
+
+public class CodecRegistryTest {
+
+    @Test
+    public void testLookupByIntMatchesLookupByType() {
+        DnsRecordCodec<Ipv4Address> ipv4 = DnsRecordCodecs.ipv4Address();
+        DnsRecordCodec<MailExchanger> mx = DnsRecordCodecs.mailExchanger();
+        DnsRecordCodec<?> custom = DnsRecordCodecs.name();
+        CodecRegistry<DnsRecordType> registry = DnsRecordCodecRegistry.builder()
+                .add(ipv4, A)
+                .add(mx, MX)
+                .add(custom, DnsRecordType.valueOf(0xFF01))
+                .build();
+
+        assertSame(ipv4, registry.get(A));
+        assertSame(ipv4, registry.get(A.intValue()));
+        assertSame(mx, registry.get(MX));
+        assertSame(mx, registry.get(MX.intValue()));
+        assertSame(custom, registry.get(0xFF01));
+        assertSame(custom, registry.get(DnsRecordType.valueOf(0xFF01)));
+
+        assertSame(DnsRecordCodecs.fallback(), registry.get(AAAA));
+        assertSame(DnsRecordCodecs.fallback(), registry.get(0));
+        assertSame(DnsRecordCodecs.fallback(), registry.get(0xFF00));
+        assertSame(DnsRecordCodecs.fallback(), registry.get(0xFF02));
+        assertSame(DnsRecordCodecs.fallback(), registry.get(0xFFFF));
+    }
+
+    @Test
+    public void testOutOfRangeTypesGetFallback() {
+        CodecRegistry<DnsRecordType> registry = DnsRecordCodecRegistry.DEFAULT;
+        assertSame(DnsRecordCodecs.fallback(), registry.get(-1));
+        assertSame(DnsRecordCodecs.fallback(), registry.get(0x10000));
+        assertSame(DnsRecordCodecs.fallback(), registry.get(Integer.MAX_VALUE));
+    }
+
+    @Test
+    public void testEveryDefaultTypeIsInTable() {
+        CodecRegistry<DnsRecordType> registry = DnsRecordCodecRegistry.DEFAULT;
+        for (DnsRecordType type : registry.supportedTypes()) {
+            DnsRecordCodec<?> codec = registry.get(type.intValue());
+            assertNotSame(type.toString(), DnsRecordCodecs.fallback(), codec);
+            assertSame(type.toString(), codec, registry.get(type));
+        }
+    }
+}
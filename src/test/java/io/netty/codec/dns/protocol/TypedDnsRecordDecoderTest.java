@@ -0,0 +1,93 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.codec.dns.protocol.types.Ipv4Address;
+import io.netty.codec.dns.protocol.types.MailExchanger;
+import io.netty.handler.codec.dns.DefaultDnsResponse;
+import io.netty.handler.codec.dns.DnsRecord;
+import io.netty.handler.codec.dns.DnsResponse;
+import io.netty.handler.codec.dns.names.NameCodec;
+import io.netty.handler.codec.dns.wire.DnsMessageDecoder;
+import io.netty.handler.codec.dns.wire.DnsMessageEncoder;
+import java.net.InetSocketAddress;
+import org.junit.Test;
+
+import static io.netty.handler.codec.dns.DnsOpCode.QUERY;
+import static io.netty.handler.codec.dns.DnsRecordType.A;
+import static io.netty.handler.codec.dns.DnsRecordType.CNAME;
+import static io.netty.handler.codec.dns.DnsRecordType.MX;
+import static io.netty.handler.codec.dns.DnsSection.ANSWER;
+import static io.netty.handler.codec.dns.names.NameCodecFeature.COMPRESSION;
+import static io.netty.handler.codec.dns.names.NameCodecFeature.WRITE_TRAILING_DOT;
+import static org.junit.Assert.*;
+
+public class TypedDnsRecordDecoderTest {
+
+    private static final InetSocketAddress ADDR = InetSocketAddress.createUnresolved("localhost", 53);
+
+    @Test
+    public void testLazyDecoding() throws Exception {
+        DnsResponse resp = new DefaultDnsResponse(42, QUERY);
+        resp.addRecord(ANSWER, new DefaultTypedDnsRecord<>(new Ipv4Address("192.168.2.1"), "example.com", A, 300));
+        resp.addRecord(ANSWER, new DefaultTypedDnsRecord<>(new MailExchanger(10, "mail.example.com"),
+                "example.com", MX, 300));
+        resp.addRecord(ANSWER, new DefaultTypedDnsRecord<CharSequence>("mail.example.com", "www.example.com",
+                CNAME, 300));
+
+        DnsMessageEncoder enc = DnsMessageEncoder.builder().withRecordEncoder(new TypedDnsRecordEncoder())
+                .withNameFeatures(COMPRESSION, WRITE_TRAILING_DOT).build();
+        ByteBuf buf = Unpooled.buffer();
+        NameCodec names = NameCodec.get(COMPRESSION, WRITE_TRAILING_DOT);
+        enc.encode(resp, buf, names, 4096);
+        names.close();
+
+        DnsMessageDecoder<? extends DnsResponse> eagerDecoder = DnsMessageDecoder.builder()
+                .withRecordDecoder(new TypedDnsRecordDecoder(DnsRecordCodecRegistry.DEFAULT, false, false))
+                .withNameFeatures(WRITE_TRAILING_DOT).buildResponseDecoder();
+        DnsMessageDecoder<? extends DnsResponse> lazyDecoder = DnsMessageDecoder.builder()
+                .withRecordDecoder(new TypedDnsRecordDecoder(DnsRecordCodecRegistry.DEFAULT, false, true))
+                .withNameFeatures(WRITE_TRAILING_DOT).buildResponseDecoder();
+
+        DnsResponse eager = eagerDecoder.decode(buf.duplicate(), ADDR, ADDR);
+        assertEquals(1, buf.refCnt());
+        DnsResponse lazy = lazyDecoder.decode(buf.duplicate(), ADDR, ADDR);
+        assertEquals(1 + resp.count(ANSWER), buf.refCnt());
+
+        assertEquals(eager.count(ANSWER), lazy.count(ANSWER));
+        for (int i = 0; i < eager.count(ANSWER); i++) {
+            DnsRecord lazyRecord = lazy.recordAt(ANSWER, i);
+            assertTrue(lazyRecord instanceof LazyTypedDnsRecord);
+            LazyTypedDnsRecord<?> rec = (LazyTypedDnsRecord<?>) lazyRecord;
+            assertFalse(rec.isDecoded());
+            assertEquals(eager.recordAt(ANSWER, i).name().toString(), rec.name().toString());
+            assertEquals(eager.recordAt(ANSWER, i).type(), rec.type());
+            assertFalse(rec.isDecoded());
+
+            assertEquals(((TypedDnsRecord<?>) eager.recordAt(ANSWER, i)).content(), rec.content());
+            assertTrue(rec.isDecoded());
+        }
+        // The compressed MX target must resolve against the whole message, not just the record data
+        MailExchanger mx = (MailExchanger) ((TypedDnsRecord<?>) lazy.recordAt(ANSWER, 1)).content();
+        assertEquals("mail.example.com", mx.mx().toString().replaceAll("\\.$", ""));
+
+        lazy.release();
+        eager.release();
+        assertEquals(1, buf.refCnt());
+    }
+}
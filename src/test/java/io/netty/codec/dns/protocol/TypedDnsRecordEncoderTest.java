@@ -0,0 +1,412 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.codec.dns.protocol.types.Ipv4Address;
+import io.netty.codec.dns.protocol.types.MailExchanger;
+import io.netty.codec.dns.protocol.types.NextSecureRecord;
+import io.netty.codec.dns.protocol.recordcodecs.DnsRecordCodecs;
+import io.netty.codec.dns.protocol.types.OptRecords;
+import io.netty.codec.dns.protocol.types.OptSubrecord;
+import io.netty.codec.dns.protocol.types.Padding;
+import io.netty.codec.dns.protocol.types.StartOfAuthority;
+import io.netty.handler.codec.dns.DefaultDnsQuery;
+import io.netty.handler.codec.dns.DefaultDnsQuestion;
+import io.netty.handler.codec.dns.DefaultDnsResponse;
+import io.netty.handler.codec.dns.DnsQuery;
+import io.netty.handler.codec.dns.DnsQuestion;
+import io.netty.handler.codec.dns.DnsRecord;
+import io.netty.handler.codec.dns.DnsResponse;
+import io.netty.handler.codec.dns.DnsSection;
+import io.netty.handler.codec.dns.names.NameCodec;
+import io.netty.handler.codec.dns.names.NameCodecFeature;
+import io.netty.handler.codec.dns.wire.DnsMessageDecoder;
+import io.netty.handler.codec.dns.wire.DnsMessageEncoder;
+import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+
+import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.PADDING;
+import static io.netty.handler.codec.dns.DnsOpCode.QUERY;
+import static io.netty.handler.codec.dns.DnsRecordType.A;
+import static io.netty.handler.codec.dns.DnsRecordType.AAAA;
+import static io.netty.handler.codec.dns.DnsRecordType.MX;
+import static io.netty.handler.codec.dns.DnsRecordType.NSEC;
+import static io.netty.handler.codec.dns.DnsRecordType.OPT;
+import static io.netty.handler.codec.dns.DnsRecordType.SOA;
+import static io.netty.handler.codec.dns.DnsSection.ADDITIONAL;
+import static io.netty.handler.codec.dns.DnsSection.ANSWER;
+import static io.netty.handler.codec.dns.DnsSection.AUTHORITY;
+import static io.netty.handler.codec.dns.DnsSection.QUESTION;
+import static io.netty.handler.codec.dns.names.NameCodecFeature.COMPRESSION;
+import static io.netty.handler.codec.dns.names.NameCodecFeature.WRITE_TRAILING_DOT;
+import static org.junit.Assert.*;
+
+public class TypedDnsRecordEncoderTest {
+
+    private static final InetSocketAddress ADDR = InetSocketAddress.createUnresolved("localhost", 53);
+
+    private static List<TypedDnsRecord<?>> records() {
+        List<TypedDnsRecord<?>> result = new ArrayList<>();
+        result.add(new DefaultTypedDnsRecord<>(new Ipv4Address("192.168.2.1"), "example.com", A, 300));
+        result.add(new DefaultTypedDnsRecord<>(new MailExchanger(10, "mail.example.com"), "example.com", MX, 300));
+        result.add(new DefaultTypedDnsRecord<>(new MailExchanger(20, "backup.example.com"), "example.com", MX, 300));
+        result.add(new DefaultTypedDnsRecord<>(new NextSecureRecord("www.example.com", A, AAAA), "mail.example.com",
+                NSEC, 300));
+        result.add(new DefaultTypedDnsRecord<>(new StartOfAuthority("ns1.example.com", "hostmaster.example.com",
+                2017010101, 7200, 3600, 1209600, 3600), "example.com", SOA, 3600));
+        return result;
+    }
+
+    private static ByteBuf encode(List<? extends DnsRecord> records, NameCodecFeature... features)
+            throws Exception {
+        DnsResponse resp = new DefaultDnsResponse(7, QUERY);
+        for (int i = 0; i < records.size(); i++) {
+            resp.addRecord(i == records.size() - 1 ? AUTHORITY : ANSWER, records.get(i));
+        }
+        DnsMessageEncoder enc = DnsMessageEncoder.builder().withRecordEncoder(new TypedDnsRecordEncoder())
+                .withNameFeatures(features).build();
+        ByteBuf into = Unpooled.buffer();
+        NameCodec names = NameCodec.get(features);
+        try {
+            enc.encode(resp, into, names, 4096);
+        } finally {
+            names.close();
+        }
+        return into;
+    }
+
+    @Test
+    public void testPreEncodedRecordsEncodeIdentically() throws Exception {
+        List<TypedDnsRecord<?>> plain = records();
+        List<PreEncodedTypedDnsRecord<?>> preEncoded = new ArrayList<>();
+        for (TypedDnsRecord<?> rec : plain) {
+            PreEncodedTypedDnsRecord<?> pre = PreEncodedTypedDnsRecord.of(rec);
+            assertEquals(rec, pre);
+            assertEquals(rec.hashCode(), pre.hashCode());
+            preEncoded.add(pre);
+        }
+        assertFalse(preEncoded.get(0).hasCompressibleNames());
+        assertTrue(preEncoded.get(1).hasCompressibleNames());
+        assertFalse("NSEC next names are never compressed", preEncoded.get(3).hasCompressibleNames());
+        assertTrue(preEncoded.get(4).hasCompressibleNames());
+
+        assertEquals(encode(plain, WRITE_TRAILING_DOT), encode(preEncoded, WRITE_TRAILING_DOT));
+        ByteBuf compressed = encode(plain, COMPRESSION, WRITE_TRAILING_DOT);
+        assertEquals(compressed, encode(preEncoded, COMPRESSION, WRITE_TRAILING_DOT));
+        assertTrue(compressed.readableBytes() < encode(plain, WRITE_TRAILING_DOT).readableBytes());
+    }
+
+    @Test
+    public void testCanCopyRdata() throws Exception {
+        PreEncodedTypedDnsRecord<?> a = PreEncodedTypedDnsRecord.of(records().get(0));
+        PreEncodedTypedDnsRecord<?> mx = PreEncodedTypedDnsRecord.of(records().get(1));
+        NameCodec compressing = NameCodec.compressingNameCodec();
+        try {
+            assertTrue(a.canCopyRdata(compressing));
+            assertFalse(mx.canCopyRdata(compressing));
+        } finally {
+            compressing.close();
+        }
+        assertTrue(a.canCopyRdata(NameCodec.nonCompressingNameCodec()));
+        assertTrue(mx.canCopyRdata(NameCodec.nonCompressingNameCodec()));
+        assertEquals(4, a.encodedRdata().readableBytes());
+    }
+
+    @Test
+    public void testMaxEncodedSize() throws Exception {
+        List<TypedDnsRecord<?>> records = records();
+        DnsResponse resp = new DefaultDnsResponse(7, QUERY);
+        for (TypedDnsRecord<?> rec : records) {
+            resp.addRecord(ANSWER, rec);
+        }
+        int max = new TypedDnsRecordEncoder().maxEncodedSize(resp);
+        int actual = encode(records, WRITE_TRAILING_DOT).readableBytes();
+        assertTrue(max + " < " + actual, max >= actual);
+        // Headers plus A and SOA records and names are bounded tightly, not with a guess
+        assertTrue(max + " vs " + actual, max < actual * 2);
+    }
+
+    private static DnsResponse decode(ByteBuf buf) throws Exception {
+        DnsMessageDecoder<? extends DnsResponse> decoder = DnsMessageDecoder.builder()
+                .withRecordDecoder(new TypedDnsRecordDecoder())
+                .withNameFeatures(WRITE_TRAILING_DOT).buildResponseDecoder();
+        return decoder.decode(buf.duplicate(), ADDR, ADDR);
+    }
+
+    @Test
+    public void testEncodeMessageSizesBufferOnce() throws Exception {
+        List<TypedDnsRecord<?>> records = records();
+        DnsResponse resp = new DefaultDnsResponse(7, QUERY);
+        resp.setAuthoritativeAnswer(true);
+        resp.addRecord(QUESTION, new DefaultDnsQuestion("example.com", MX));
+        for (int i = 0; i < records.size(); i++) {
+            resp.addRecord(i == records.size() - 1 ? AUTHORITY : ANSWER, records.get(i));
+        }
+        TypedDnsRecordEncoder enc = new TypedDnsRecordEncoder();
+        int max = enc.maxEncodedSize(resp);
+        // Growing the buffer more than once, or past the bound, would fail
+        ByteBuf into = Unpooled.buffer(0, max);
+        assertFalse(enc.encodeMessage(resp, into, 4096, COMPRESSION, WRITE_TRAILING_DOT));
+        assertEquals(max, into.capacity());
+
+        DnsResponse decoded = decode(into);
+        assertEquals(7, decoded.id());
+        assertTrue(decoded.isAuthoritativeAnswer());
+        assertFalse(decoded.isTruncated());
+        assertEquals(MX, decoded.recordAt(QUESTION).type());
+        for (DnsSection section : DnsSection.values()) {
+            assertEquals(section + "", resp.count(section), decoded.count(section));
+        }
+        for (int i = 0; i < records.size() - 1; i++) {
+            assertEquals(records.get(i).content(), ((TypedDnsRecord<?>) decoded.recordAt(ANSWER, i)).content());
+        }
+        decoded.release();
+    }
+
+    private static DnsResponse oversizeResponse() {
+        DnsResponse resp = new DefaultDnsResponse(9, QUERY);
+        resp.addRecord(QUESTION, new DefaultDnsQuestion("example.com", A));
+        for (int i = 0; i < 20; i++) {
+            resp.addRecord(ANSWER, new DefaultTypedDnsRecord<>(new Ipv4Address("10.0.0." + i), "example.com", A,
+                    300));
+        }
+        resp.addRecord(ADDITIONAL, new DefaultTypedDnsRecord<>(new OptRecords(),
+                OptRecordHeaderFields.newInstance()));
+        return resp;
+    }
+
+    private static void assertTruncated(ByteBuf into, int answers, int length) throws Exception {
+        assertEquals(length, into.readableBytes());
+        assertEquals(9, into.getUnsignedShort(0));
+        int flags = into.getUnsignedShort(2);
+        assertTrue("QR", (flags & 0x8000) != 0);
+        assertTrue("TC", (flags & 0x200) != 0);
+        assertEquals(1, into.getUnsignedShort(4));
+        assertEquals(answers, into.getUnsignedShort(6));
+        assertEquals(0, into.getUnsignedShort(8));
+        assertEquals("The OPT record is kept", 1, into.getUnsignedShort(10));
+
+        DnsResponse decoded = decode(into);
+        assertTrue(decoded.isTruncated());
+        assertEquals(answers, decoded.count(ANSWER));
+        assertEquals(OPT, decoded.recordAt(ADDITIONAL).type());
+        for (int i = 0; i < answers; i++) {
+            assertEquals(new Ipv4Address("10.0.0." + i),
+                    ((TypedDnsRecord<?>) decoded.recordAt(ANSWER, i)).content());
+        }
+        decoded.release();
+    }
+
+    @Test
+    public void testEncodeMessageTruncates() throws Exception {
+        TypedDnsRecordEncoder enc = new TypedDnsRecordEncoder();
+        ByteBuf into = Unpooled.buffer();
+        // 12 byte header, 17 byte question, 27 bytes per answer and 11 for the OPT record: four answers fit but
+        // leave no room for the OPT record, so one is dropped for it
+        assertTrue(enc.encodeMessage(oversizeResponse(), into, 140, WRITE_TRAILING_DOT));
+        assertTruncated(into, 3, 12 + 17 + 3 * 27 + 11);
+
+        // With compression, answer names are 2 byte pointers; six answers fit the first time through, and are
+        // written again with a fresh name codec
+        into = Unpooled.buffer();
+        assertTrue(enc.encodeMessage(oversizeResponse(), into, 140, COMPRESSION, WRITE_TRAILING_DOT));
+        assertTruncated(into, 6, 12 + 17 + 6 * 16 + 11);
+    }
+
+    @Test
+    public void testEncodeMessageAfterUnreadBytes() throws Exception {
+        // a TCP length prefix and the tail of a previous message are still unread in the buffer
+        ByteBuf into = Unpooled.buffer().writeZero(7);
+        assertTrue(new TypedDnsRecordEncoder().encodeMessage(oversizeResponse(), into, 140, WRITE_TRAILING_DOT));
+        assertTruncated(into.slice(7, into.writerIndex() - 7), 3, 12 + 17 + 3 * 27 + 11);
+
+        TypedDnsRecordEncoder padding = new TypedDnsRecordEncoder(DnsRecordCodecRegistry.DEFAULT, false,
+                Padding.RESPONSE_BLOCK_LENGTH);
+        into = Unpooled.buffer().writeZero(7);
+        assertFalse(padding.encodeMessage(oversizeResponse(), into, 0, WRITE_TRAILING_DOT));
+        // 12 + 17 + 20 * 27 + 11 + 4 bytes, padded to two blocks
+        assertEquals(7 + 2 * Padding.RESPONSE_BLOCK_LENGTH, into.writerIndex());
+        DnsResponse decoded = decode(into.slice(7, into.writerIndex() - 7));
+        assertEquals(20, decoded.count(ANSWER));
+        decoded.release();
+    }
+
+    @Test
+    public void testEncodeMessageWithNoRoomForOptRecord() throws Exception {
+        ByteBuf into = Unpooled.buffer();
+        try {
+            new TypedDnsRecordEncoder().encodeMessage(oversizeResponse(), into, 12 + 17 + 10, WRITE_TRAILING_DOT);
+            fail("Message should not fit");
+        } catch (TruncatedRecordException ex) {
+            assertEquals(OPT, ex.record().type());
+        }
+        assertEquals(0, into.writerIndex());
+    }
+
+    @Test
+    public void testQuestionsAreNeverTruncated() throws Exception {
+        ByteBuf into = Unpooled.buffer();
+        try {
+            new TypedDnsRecordEncoder().encodeMessage(oversizeResponse(), into, 12 + 10, WRITE_TRAILING_DOT);
+            fail("Question should not fit");
+        } catch (TruncatedRecordException ex) {
+            assertTrue(ex.record() instanceof DnsQuestion);
+        }
+        assertEquals(0, into.writerIndex());
+    }
+
+    @Test
+    public void testQueriesAreNeverTruncated() throws Exception {
+        DnsQuery query = new DefaultDnsQuery(9, QUERY);
+        query.addRecord(QUESTION, new DefaultDnsQuestion("example.com", A));
+        for (int i = 0; i < 20; i++) {
+            query.addRecord(ADDITIONAL, new DefaultTypedDnsRecord<>(new Ipv4Address("10.0.0." + i), "example.com",
+                    A, 300));
+        }
+        ByteBuf into = Unpooled.buffer();
+        try {
+            new TypedDnsRecordEncoder().encodeMessage(query, into, 140, WRITE_TRAILING_DOT);
+            fail("Query should not fit");
+        } catch (TruncatedRecordException ex) {
+            assertEquals(A, ex.record().type());
+        }
+        assertEquals(0, into.writerIndex());
+    }
+
+    @Test
+    public void testRecordsWrittenOneAtATimeAreNotLimited() throws Exception {
+        ByteBuf into = Unpooled.buffer().writeZero(20);
+        new TypedDnsRecordEncoder().encodeRecord(NameCodec.nonCompressingNameCodec(), records().get(0), into, 30);
+        assertEquals(47, into.writerIndex());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testPaddingEncoderRefusesOptRecordsOneAtATime() throws Exception {
+        new TypedDnsRecordEncoder(DnsRecordCodecRegistry.DEFAULT, false, Padding.RESPONSE_BLOCK_LENGTH)
+                .encodeRecord(NameCodec.nonCompressingNameCodec(), new DefaultTypedDnsRecord<>(new OptRecords(),
+                        OptRecordHeaderFields.newInstance()), Unpooled.buffer(), 0);
+    }
+
+    @Test
+    public void testRecordsExceedingMaxPacketSizeAreRolledBack() throws Exception {
+        TypedDnsRecordEncoder enc = new TypedDnsRecordEncoder();
+        NameCodec names = NameCodec.nonCompressingNameCodec();
+        TypedDnsRecord<?> a = records().get(0);
+        TypedDnsRecord<?> mx = records().get(1);
+        ByteBuf into = Unpooled.buffer().writeZero(20);
+        // 13 byte name, 10 byte header, 4 bytes of rdata
+        enc.encodeRecord(names, a, into, 0, 47, true);
+        assertEquals(47, into.writerIndex());
+        try {
+            enc.encodeRecord(names, a, into, 0, 60, true);
+            fail("Record should not fit");
+        } catch (TruncatedRecordException ex) {
+            assertSame(a, ex.record());
+            assertEquals(13, ex.remaining());
+        }
+        assertEquals(47, into.writerIndex());
+        try {
+            // MX sizes are not known in advance, so this is only detected after writing
+            enc.encodeRecord(names, mx, into, 0, 80, true);
+            fail("Record should not fit");
+        } catch (TruncatedRecordException ex) {
+            assertSame(mx, ex.record());
+        }
+        assertEquals(47, into.writerIndex());
+        enc.encodeRecord(names, mx, into, 0, 0, true);
+        assertEquals(47 + 45, into.writerIndex());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOptRecordsCannotBePreEncoded() throws Exception {
+        PreEncodedTypedDnsRecord.of(new DefaultTypedDnsRecord<>(new OptRecords(),
+                OptRecordHeaderFields.newInstance()));
+    }
+
+    private static OptRecords encodePadded(ByteBuf into, OptRecords opt, int maxPacketSize) throws Exception {
+        return encodePadded(into, opt, maxPacketSize, 0);
+    }
+
+    private static OptRecords encodePadded(ByteBuf into, OptRecords opt, int maxPacketSize, int messageStart)
+            throws Exception {
+        TypedDnsRecordEncoder enc = new TypedDnsRecordEncoder(DnsRecordCodecRegistry.DEFAULT, false,
+                Padding.RESPONSE_BLOCK_LENGTH);
+        NameCodec names = NameCodec.nonCompressingNameCodec();
+        enc.encodeRecord(names, records().get(0), into, messageStart, maxPacketSize, true);
+        int optStart = into.writerIndex();
+        enc.encodeRecord(names, new DefaultTypedDnsRecord<>(opt, OptRecordHeaderFields.newInstance()), into,
+                messageStart, maxPacketSize, true);
+        // root name, type, class and ttl precede the rdata length
+        int rdataLength = into.getUnsignedShort(optStart + 9);
+        assertEquals(into.writerIndex(), optStart + 11 + rdataLength);
+        return DnsRecordCodecs.opt().read(into.slice(optStart + 11, rdataLength), names, rdataLength);
+    }
+
+    @Test
+    public void testPaddingToBlockLength() throws Exception {
+        // message header
+        ByteBuf into = Unpooled.buffer().writeZero(12);
+        OptRecords decoded = encodePadded(into, new OptRecords(), 0);
+        assertEquals(Padding.RESPONSE_BLOCK_LENGTH, into.readableBytes());
+        assertEquals(1, decoded.size());
+        OptSubrecord<?> padding = decoded.find(PADDING);
+        // 12 + 27 for the A record + 11 for the OPT record + 4 for the option header
+        assertEquals(Padding.of(Padding.RESPONSE_BLOCK_LENGTH - 54), padding.content());
+    }
+
+    @Test
+    public void testPaddingAfterTcpLengthPrefix() throws Exception {
+        // length prefix reserved ahead of the message header, as TCP encoders do
+        ByteBuf into = Unpooled.buffer().writeZero(2 + 12);
+        OptRecords decoded = encodePadded(into, new OptRecords(), 0, 2);
+        assertEquals(2 + Padding.RESPONSE_BLOCK_LENGTH, into.readableBytes());
+        assertEquals(Padding.of(Padding.RESPONSE_BLOCK_LENGTH - 54), decoded.find(PADDING).content());
+
+        into = Unpooled.buffer().writeZero(2 + 12);
+        decoded = encodePadded(into, new OptRecords(), 100, 2);
+        assertEquals(2 + 100, into.readableBytes());
+        assertEquals(Padding.of(46), decoded.find(PADDING).content());
+    }
+
+    @Test
+    public void testPaddingIsCutShortAtMaxPacketSize() throws Exception {
+        ByteBuf into = Unpooled.buffer().writeZero(12);
+        OptRecords decoded = encodePadded(into, new OptRecords(), 100);
+        assertEquals(100, into.readableBytes());
+        assertEquals(Padding.of(46), decoded.find(PADDING).content());
+    }
+
+    @Test
+    public void testExistingPaddingIsLeftAlone() throws Exception {
+        ByteBuf into = Unpooled.buffer().writeZero(12);
+        OptSubrecord<Padding> own = new OptSubrecord<>(PADDING, Padding.of(5));
+        OptRecords decoded = encodePadded(into, OptRecords.of(own), 0);
+        assertEquals(1, decoded.size());
+        assertEquals(own, decoded.find(PADDING));
+        assertEquals(12 + 27 + 11 + 4 + 5, into.readableBytes());
+    }
+
+    @Test
+    public void testPadLength() {
+        assertEquals(0, Padding.padLength(468, 468));
+        assertEquals(467, Padding.padLength(469, 468));
+        assertEquals(28, Padding.padLength(100, 128));
+    }
+}
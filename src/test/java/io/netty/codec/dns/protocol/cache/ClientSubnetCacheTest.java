@@ -0,0 +1,164 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.cache;
+
+import io.netty.codec.dns.protocol.types.ClientSubnet;
+import io.netty.codec.dns.protocol.types.DnsName;
+import io.netty.codec.dns.protocol.types.Ipv4Address;
+import io.netty.codec.dns.protocol.types.Ipv6Address;
+import io.netty.codec.dns.protocol.types.MutableClientSubnet;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static io.netty.handler.codec.dns.DnsRecordType.A;
+import static io.netty.handler.codec.dns.DnsRecordType.AAAA;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class ClientSubnetCacheTest {
+
+    private static final int IN = 1;
+    private static final long SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private static ClientSubnet<Ipv4Address> v4(String address, int source, int scope) {
+        return ClientSubnet.ipv4(new Ipv4Address(address), source, scope);
+    }
+
+    @Test
+    public void testMostSpecificAnswerWins() {
+        ClientSubnetCache<String> cache = new ClientSubnetCache<>();
+        assertTrue(cache.put("cdn.example.com", A, IN, v4("0.0.0.0", 24, 0), "global", 60, 0));
+        assertTrue(cache.put("cdn.example.com", A, IN, v4("192.168.0.0", 24, 16), "sixteen", 60, 0));
+        assertTrue(cache.put("cdn.example.com", A, IN, v4("192.168.5.0", 24, 24), "twentyfour", 60, 0));
+        assertEquals(3, cache.size());
+
+        assertEquals("twentyfour", cache.get("CDN.example.com.", A, IN, v4("192.168.5.0", 24, 0), 0).answer());
+        assertEquals("sixteen", cache.get("cdn.example.com", A, IN, v4("192.168.6.0", 24, 0), 0).answer());
+        assertEquals(16, cache.get("cdn.example.com", A, IN, v4("192.168.6.0", 24, 0), 0).scopePrefixLength());
+        assertEquals("global", cache.get("cdn.example.com", A, IN, v4("10.0.0.0", 24, 0), 0).answer());
+        // A client which only revealed 20 bits cannot use an answer scoped to 24
+        assertEquals("sixteen", cache.get("cdn.example.com", A, IN, v4("192.168.5.0", 20, 0), 0).answer());
+
+        assertNull(cache.get("cdn.example.com", AAAA, IN, v4("192.168.5.0", 24, 0), 0));
+        // A scope of 0 applies to every client, whatever its address family
+        assertEquals("global", cache.get("cdn.example.com", A, IN,
+                ClientSubnet.ipv6forQuery(new Ipv6Address("2001:db8::"), 56), 0).answer());
+        assertNull(cache.get("www.example.com", A, IN, v4("192.168.5.0", 24, 0), 0));
+    }
+
+    @Test
+    public void testScopeZeroAppliesToBothFamilies() {
+        ClientSubnetCache<String> cache = new ClientSubnetCache<>();
+        ClientSubnet<Ipv6Address> v6 = ClientSubnet.ipv6forQuery(new Ipv6Address("2001:db8::"), 56);
+        assertTrue(cache.put("cdn.example.com", A, IN, v6, "from six", 60, 0));
+        assertEquals("from six", cache.get("cdn.example.com", A, IN, v4("10.1.2.0", 24, 0), 0).answer());
+        assertEquals(0, cache.get("cdn.example.com", A, IN, v4("10.1.2.0", 24, 0), 0).scopePrefixLength());
+        assertEquals("from six", cache.get("cdn.example.com", A, IN, v6, 0).answer());
+
+        // A scope 0 answer from an IPv4 client replaces it
+        assertTrue(cache.put("cdn.example.com", A, IN, v4("10.1.2.0", 24, 0), "from four", 60, 0));
+        assertEquals(1, cache.size());
+        assertEquals("from four", cache.get("cdn.example.com", A, IN, v6, 0).answer());
+
+        assertTrue(cache.put("cdn.example.com", A, IN, v4("10.1.2.0", 24, 24), "near", 60, 0));
+        assertEquals("near", cache.get("cdn.example.com", A, IN, v4("10.1.2.0", 24, 0), 0).answer());
+        assertEquals("from four", cache.get("cdn.example.com", A, IN, v6, 0).answer());
+
+        assertEquals(2, cache.expire(61 * SECOND));
+        assertEquals(0, cache.size());
+        assertNull(cache.get("cdn.example.com", A, IN, v6, 0));
+    }
+
+    @Test
+    public void testGetWithMutableClientSubnet() {
+        ClientSubnetCache<String> cache = new ClientSubnetCache<>();
+        cache.put(DnsName.of("cdn.example.com"), A, IN, v4("192.168.0.0", 24, 16), "sixteen", 60, 0);
+        cache.put("Caf\u00c9.example.com.", A, IN, v4("192.168.5.0", 24, 24), "cafe", 60, 0);
+        MutableClientSubnet subnet = new MutableClientSubnet().set(v4("192.168.5.0", 24, 0));
+        assertEquals("sixteen", cache.get("CDN.Example.com.", A, IN, subnet, 0).answer());
+        assertEquals("cafe", cache.get("caf\u00e9.example.com", A, IN, subnet, 0).answer());
+        assertNull(cache.get("cdn.example.com", AAAA, IN, subnet, 0));
+        assertNull(cache.get("cdn.example.com", A, 3, subnet, 0));
+        assertNull(cache.get("cdn.example.com", A, IN, subnet.set(v4("10.0.0.0", 24, 0)), 0));
+    }
+
+    @Test
+    public void testScopeIsCappedAtSource() {
+        ClientSubnetCache<String> cache = new ClientSubnetCache<>();
+        cache.put("cdn.example.com", A, IN, v4("192.168.5.0", 24, 32), "capped", 60, 0);
+        assertEquals(24, cache.get("cdn.example.com", A, IN, v4("192.168.5.0", 24, 0), 0).scopePrefixLength());
+    }
+
+    @Test
+    public void testIpv6() {
+        ClientSubnetCache<String> cache = new ClientSubnetCache<>();
+        cache.put("cdn.example.com", AAAA, IN, ClientSubnet.ipv6(new Ipv6Address("2001:db8:0:1::"), 64, 64),
+                "sixty-four", 60, 0);
+        cache.put("cdn.example.com", AAAA, IN, ClientSubnet.ipv6(new Ipv6Address("2001:db8::"), 56, 32),
+                "thirty-two", 60, 0);
+        assertEquals("thirty-two", cache.get("cdn.example.com", AAAA, IN,
+                ClientSubnet.ipv6forQuery(new Ipv6Address("2001:db8:0:100::"), 56), 0).answer());
+        assertEquals("sixty-four", cache.get("cdn.example.com", AAAA, IN,
+                ClientSubnet.ipv6forQuery(new Ipv6Address("2001:db8:0:1::"), 64), 0).answer());
+        assertNull(cache.get("cdn.example.com", AAAA, IN, v4("32.1.13.184", 32, 0), 0));
+    }
+
+    @Test
+    public void testExpiry() {
+        ClientSubnetCache<String> cache = new ClientSubnetCache<>();
+        cache.put("cdn.example.com", A, IN, v4("0.0.0.0", 24, 0), "global", 60, 0);
+        cache.put("cdn.example.com", A, IN, v4("192.168.5.0", 24, 24), "short", 10, 0);
+        assertEquals("short", cache.get("cdn.example.com", A, IN, v4("192.168.5.0", 24, 0), 0).answer());
+        assertEquals("global", cache.get("cdn.example.com", A, IN, v4("192.168.5.0", 24, 0), 10 * SECOND)
+                .answer());
+        assertEquals(1, cache.expire(10 * SECOND));
+        assertEquals(1, cache.size());
+        assertEquals(1, cache.expire(60 * SECOND));
+        assertEquals(0, cache.size());
+        assertFalse(cache.put("cdn.example.com", A, IN, v4("0.0.0.0", 24, 0), "global", 0, 0));
+    }
+
+    @Test
+    public void testMaxEntries() {
+        ClientSubnetCache<String> cache = new ClientSubnetCache<>(2);
+        assertTrue(cache.put("a.example.com", A, IN, v4("10.0.0.0", 24, 8), "a", 10, 0));
+        assertTrue(cache.put("b.example.com", A, IN, v4("10.0.0.0", 24, 8), "b", 60, 0));
+        assertFalse(cache.put("c.example.com", A, IN, v4("10.0.0.0", 24, 8), "c", 60, 0));
+        // Replacing an existing answer is allowed when full
+        assertTrue(cache.put("b.example.com", A, IN, v4("10.1.0.0", 24, 8), "b2", 60, 0));
+        // Expired answers make room
+        assertTrue(cache.put("c.example.com", A, IN, v4("10.0.0.0", 24, 8), "c", 60, 10 * SECOND));
+        assertEquals(2, cache.size());
+        assertEquals(1, cache.remove("b.example.com", A, IN));
+        assertEquals(1, cache.size());
+        cache.clear();
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testFullCachePurgesAtMostOnceASecond() {
+        ClientSubnetCache<String> cache = new ClientSubnetCache<>(1);
+        long ms = SECOND / 1000;
+        assertTrue(cache.put("a.example.com", A, IN, v4("10.0.0.0", 24, 8), "a", 1, 0));
+        assertFalse(cache.put("b.example.com", A, IN, v4("10.0.0.0", 24, 8), "b", 60, 900 * ms));
+        assertFalse("No purge within a second of the last",
+                cache.put("b.example.com", A, IN, v4("10.0.0.0", 24, 8), "b", 60, 1500 * ms));
+        assertTrue(cache.put("b.example.com", A, IN, v4("10.0.0.0", 24, 8), "b", 60, 1900 * ms));
+        assertEquals(1, cache.size());
+    }
+}
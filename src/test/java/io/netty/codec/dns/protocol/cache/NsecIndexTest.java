@@ -0,0 +1,158 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.cache;
+
+import io.netty.codec.dns.protocol.DefaultTypedDnsRecord;
+import io.netty.codec.dns.protocol.types.NextSecureRecord;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+
+import static io.netty.handler.codec.dns.DnsRecordType.A;
+import static io.netty.handler.codec.dns.DnsRecordType.AAAA;
+import static io.netty.handler.codec.dns.DnsRecordType.DS;
+import static io.netty.handler.codec.dns.DnsRecordType.MX;
+import static io.netty.handler.codec.dns.DnsRecordType.NS;
+import static io.netty.handler.codec.dns.DnsRecordType.NSEC;
+import static io.netty.handler.codec.dns.DnsRecordType.RRSIG;
+import static io.netty.handler.codec.dns.DnsRecordType.SOA;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class NsecIndexTest {
+
+    private static NsecIndex zone(long now) {
+        // The NSEC chain of a small zone with a delegation at sub.example.com
+        NsecIndex index = new NsecIndex();
+        index.add("example.com", new NextSecureRecord("a.example.com", SOA, NS, NSEC, RRSIG), 300, now);
+        index.add("a.example.com", new NextSecureRecord("mail.example.com", A, NSEC, RRSIG), 300, now);
+        index.add("mail.example.com", new NextSecureRecord("sub.example.com", A, AAAA, NSEC, RRSIG), 300, now);
+        index.add("sub.example.com", new NextSecureRecord("www.example.com", NS, NSEC, RRSIG), 300, now);
+        index.add("www.example.com", new NextSecureRecord("example.com", A, NSEC, RRSIG), 30, now);
+        return index;
+    }
+
+    @Test
+    public void testCovering() {
+        NsecIndex index = zone(0);
+        assertEquals(5, index.size());
+        assertEquals("a.example.com", index.covering("b.example.com", 0).owner().toString());
+        assertEquals("a.example.com", index.covering("x.a.example.com", 0).owner().toString());
+        assertEquals("mail.example.com", index.covering("Random123.example.com", 0).owner().toString());
+        assertNull("Existing names are not covered", index.covering("mail.example.com", 0));
+        assertNull("Names before the apex are not in the zone", index.covering("com", 0));
+        assertNull("Names below a delegation are not covered", index.covering("x.sub.example.com", 0));
+        assertEquals("sub.example.com", index.covering("t.example.com", 0).owner().toString());
+        // The last record wraps around to the apex
+        assertEquals("www.example.com", index.covering("zzz.example.com", 0).owner().toString());
+        assertEquals("www.example.com", index.covering("x.www.example.com", 0).owner().toString());
+        assertNull(index.covering("example.net", 0));
+
+        // y.example.com exists as an empty non-terminal above the next name
+        NsecIndex ent = new NsecIndex();
+        ent.add("a.example.com", new NextSecureRecord("x.y.example.com", A, NSEC, RRSIG), 300, 0);
+        assertNull(ent.covering("y.example.com", 0));
+        assertEquals("a.example.com", ent.covering("b.example.com", 0).owner().toString());
+        assertEquals("a.example.com", ent.covering("w.y.example.com", 0).owner().toString());
+    }
+
+    @Test
+    public void testNxDomainNeedsWildcardDenial() {
+        NsecIndex index = zone(0);
+        // *.example.com sorts before a.example.com, so the apex record covers it
+        assertTrue(index.provesNxDomain("b.example.com", 0));
+        assertTrue(index.provesNxDomain("x.a.example.com", 0));
+        assertFalse(index.provesNxDomain("mail.example.com", 0));
+        assertFalse(index.provesNxDomain("x.sub.example.com", 0));
+
+        NsecIndex wildcard = new NsecIndex();
+        wildcard.add("example.com", new NextSecureRecord("*.example.com", SOA, NS, NSEC, RRSIG), 300, 0);
+        wildcard.add("*.example.com", new NextSecureRecord("a.example.com", A, NSEC, RRSIG), 300, 0);
+        wildcard.add("a.example.com", new NextSecureRecord("example.com", A, NSEC, RRSIG), 300, 0);
+        assertEquals("a.example.com", wildcard.covering("b.example.com", 0).owner().toString());
+        assertFalse("The wildcard answers for b.example.com", wildcard.provesNxDomain("b.example.com", 0));
+        // x.a.example.com's closest encloser is a.example.com, which has no wildcard child
+        assertTrue(wildcard.provesNxDomain("x.a.example.com", 0));
+    }
+
+    @Test
+    public void testNoData() {
+        NsecIndex index = zone(0);
+        NsecIndex.Entry mail = index.matching("MAIL.example.com.", 0);
+        assertEquals("mail.example.com", mail.owner().toString());
+        assertTrue(mail.record().hasType(AAAA));
+        assertFalse(mail.record().hasType(MX));
+        assertTrue(index.provesNoData("mail.example.com", MX, 0));
+        assertFalse(index.provesNoData("mail.example.com", A, 0));
+        assertFalse(index.provesNoData("b.example.com", A, 0));
+        assertTrue(index.provesNoData("mail.example.com", DS, 0));
+    }
+
+    @Test
+    public void testNoDataAtZoneCuts() {
+        NsecIndex index = zone(0);
+        assertFalse("Records at a delegation belong to the child zone", index.provesNoData("sub.example.com", A, 0));
+        assertFalse(index.provesNoData("sub.example.com", MX, 0));
+        assertTrue("The parent side of a delegation proves DS is absent", index.provesNoData("sub.example.com", DS, 0));
+        assertFalse("DS for an apex lives in the parent zone", index.provesNoData("example.com", DS, 0));
+        assertTrue(index.provesNoData("example.com", MX, 0));
+    }
+
+    @Test
+    public void testExpiry() {
+        NsecIndex index = zone(0);
+        long later = TimeUnit.SECONDS.toNanos(60);
+        assertNull(index.covering("zzz.example.com", later));
+        assertEquals(4, index.size());
+        assertEquals(4, index.expire(TimeUnit.SECONDS.toNanos(301)));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void testBounded() {
+        NsecIndex index = new NsecIndex(1);
+        assertTrue(index.add("a.example.com", new NextSecureRecord("c.example.com", A), 10, 0));
+        assertFalse(index.add("c.example.com", new NextSecureRecord("e.example.com", A), 10, 0));
+        assertTrue("Replacing an existing owner is allowed",
+                index.add("a.example.com", new NextSecureRecord("b.example.com", A), 10, 0));
+        assertTrue("Expired records make room",
+                index.add("c.example.com", new NextSecureRecord("e.example.com", A), 10,
+                        TimeUnit.SECONDS.toNanos(11)));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testFullIndexPurgesAtMostOnceASecond() {
+        NsecIndex index = new NsecIndex(1);
+        long ms = TimeUnit.MILLISECONDS.toNanos(1);
+        assertTrue(index.add("a.example.com", new NextSecureRecord("c.example.com", A), 1, 0));
+        assertFalse(index.add("c.example.com", new NextSecureRecord("e.example.com", A), 10, 900 * ms));
+        assertFalse("No purge within a second of the last",
+                index.add("c.example.com", new NextSecureRecord("e.example.com", A), 10, 1500 * ms));
+        assertTrue(index.add("c.example.com", new NextSecureRecord("e.example.com", A), 10, 1900 * ms));
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testAddTypedRecord() {
+        NsecIndex index = new NsecIndex();
+        NextSecureRecord nsec = new NextSecureRecord("c.example.com", A);
+        assertTrue(index.add(new DefaultTypedDnsRecord<>(nsec, "a.example.com", NSEC, 300)));
+        assertSame(nsec, index.covering("b.example.com").record());
+    }
+}
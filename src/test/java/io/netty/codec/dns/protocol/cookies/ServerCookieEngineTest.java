@@ -0,0 +1,131 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.cookies;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.codec.dns.protocol.cookies.ServerCookieEngine.Status;
+import java.net.InetAddress;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ServerCookieEngineTest {
+
+    private static final byte[] SECRET = ByteBufUtil.decodeHexDump("e5e973e5a6b2a43f48e7dc849e37bfcf");
+    private static final byte[] CLIENT_COOKIE = ByteBufUtil.decodeHexDump("2464c4abcf10c957");
+    private static final int TIMESTAMP = 1559731985;
+    // 198.51.100.100 in the upper 32 bits
+    private static final long CLIENT_IPV4 = 0xC6336464L << 32;
+
+    private static ByteBuf respond(ServerCookieEngine engine, boolean ipv4, long high, long low, int now) {
+        ByteBuf query = Unpooled.wrappedBuffer(CLIENT_COOKIE);
+        ByteBuf result = Unpooled.buffer();
+        engine.writeCookies(query, 0, result, ipv4, high, low, now);
+        return result;
+    }
+
+    private static Status validate(ServerCookieEngine engine, ByteBuf option, boolean ipv4, long high, long low,
+            int now) {
+        return engine.validate(option, option.readerIndex(), option.readableBytes(), ipv4, high, low, now);
+    }
+
+    @Test
+    public void testRfc9018Vector() throws Exception {
+        // RFC 9018 appendix A.2
+        ServerCookieEngine engine = new ServerCookieEngine(SECRET);
+        ByteBuf option = respond(engine, true, CLIENT_IPV4, 0, TIMESTAMP);
+        assertEquals("2464c4abcf10c957" + "010000005cf79f111f8130c3eee29480", ByteBufUtil.hexDump(option));
+        assertEquals(Status.VALID, validate(engine, option, true, CLIENT_IPV4, 0, TIMESTAMP));
+
+        ByteBuf viaInetAddress = Unpooled.buffer();
+        engine.writeCookies(Unpooled.wrappedBuffer(CLIENT_COOKIE), 0, viaInetAddress,
+                InetAddress.getByName("198.51.100.100"));
+        assertTrue(engine.validate(viaInetAddress, 0, viaInetAddress.readableBytes(),
+                InetAddress.getByName("198.51.100.100")).isValid());
+    }
+
+    @Test
+    public void testIpv6() {
+        ServerCookieEngine engine = new ServerCookieEngine(SECRET);
+        long high = 0x20010db802200001L;
+        long low = 0x59ded0f4876982b8L;
+        ByteBuf option = respond(engine, false, high, low, TIMESTAMP);
+        assertEquals(24, option.readableBytes());
+        assertEquals(Status.VALID, validate(engine, option, false, high, low, TIMESTAMP));
+        assertEquals(Status.INVALID, validate(engine, option, false, high, low + 1, TIMESTAMP));
+        assertEquals(Status.INVALID, validate(engine, option, true, high, low, TIMESTAMP));
+    }
+
+    @Test
+    public void testTimestampWindow() {
+        ServerCookieEngine engine = new ServerCookieEngine(SECRET);
+        ByteBuf option = respond(engine, true, CLIENT_IPV4, 0, TIMESTAMP);
+        assertEquals(Status.VALID, validate(engine, option, true, CLIENT_IPV4, 0, TIMESTAMP + 1800));
+        assertEquals(Status.STALE, validate(engine, option, true, CLIENT_IPV4, 0, TIMESTAMP + 1801));
+        assertEquals(Status.STALE, validate(engine, option, true, CLIENT_IPV4, 0, TIMESTAMP + 3600));
+        assertEquals(Status.INVALID, validate(engine, option, true, CLIENT_IPV4, 0, TIMESTAMP + 3601));
+        assertEquals(Status.VALID, validate(engine, option, true, CLIENT_IPV4, 0, TIMESTAMP - 300));
+        assertEquals(Status.INVALID, validate(engine, option, true, CLIENT_IPV4, 0, TIMESTAMP - 301));
+    }
+
+    @Test
+    public void testTamperedCookie() {
+        ServerCookieEngine engine = new ServerCookieEngine(SECRET);
+        ByteBuf option = respond(engine, true, CLIENT_IPV4, 0, TIMESTAMP);
+        assertEquals(Status.INVALID, validate(engine, option, true, CLIENT_IPV4 + (1L << 32), 0, TIMESTAMP));
+        option.setByte(0, option.getByte(0) ^ 1);
+        assertEquals(Status.INVALID, validate(engine, option, true, CLIENT_IPV4, 0, TIMESTAMP));
+        option.setByte(0, option.getByte(0) ^ 1);
+        option.setByte(8, 2);
+        assertEquals(Status.INVALID, validate(engine, option, true, CLIENT_IPV4, 0, TIMESTAMP));
+    }
+
+    @Test
+    public void testRotation() {
+        ServerCookieEngine engine = new ServerCookieEngine(SECRET);
+        ByteBuf old = respond(engine, true, CLIENT_IPV4, 0, TIMESTAMP);
+        engine.rotate(ServerCookieEngine.newSecret());
+        assertEquals(Status.STALE, validate(engine, old, true, CLIENT_IPV4, 0, TIMESTAMP));
+        ByteBuf fresh = respond(engine, true, CLIENT_IPV4, 0, TIMESTAMP);
+        assertEquals(Status.VALID, validate(engine, fresh, true, CLIENT_IPV4, 0, TIMESTAMP));
+        engine.retirePreviousSecret();
+        assertEquals(Status.INVALID, validate(engine, old, true, CLIENT_IPV4, 0, TIMESTAMP));
+        assertEquals(Status.VALID, validate(engine, fresh, true, CLIENT_IPV4, 0, TIMESTAMP));
+    }
+
+    @Test
+    public void testLengths() {
+        ServerCookieEngine engine = new ServerCookieEngine(SECRET);
+        ByteBuf option = Unpooled.buffer().writeBytes(CLIENT_COOKIE);
+        assertEquals(Status.MISSING, validate(engine, option, true, CLIENT_IPV4, 0, TIMESTAMP));
+        assertFalse(Status.MISSING.isValid());
+        option.writeZero(4);
+        assertEquals(Status.MALFORMED, validate(engine, option, true, CLIENT_IPV4, 0, TIMESTAMP));
+        option.writeZero(4);
+        assertEquals(Status.INVALID, validate(engine, option, true, CLIENT_IPV4, 0, TIMESTAMP));
+        option.writeZero(25);
+        assertEquals(Status.MALFORMED, validate(engine, option, true, CLIENT_IPV4, 0, TIMESTAMP));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSecretLength() {
+        new ServerCookieEngine(new byte[8]);
+    }
+}
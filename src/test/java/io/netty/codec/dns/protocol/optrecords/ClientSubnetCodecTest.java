@@ -0,0 +1,125 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.optrecords;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.codec.dns.protocol.DnsRecordCodec;
+import io.netty.codec.dns.protocol.types.ClientSubnet;
+import io.netty.codec.dns.protocol.types.Ipv4Address;
+import io.netty.codec.dns.protocol.types.Ipv6Address;
+import io.netty.codec.dns.protocol.types.MutableClientSubnet;
+import io.netty.handler.codec.dns.DnsDecoderException;
+import io.netty.handler.codec.dns.names.NameCodec;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class ClientSubnetCodecTest {
+
+    private static byte[] encode(ClientSubnet<?> subnet) throws Exception {
+        DnsRecordCodec<ClientSubnet<?>> codec = OptSubrecordCodecs.ecs();
+        ByteBuf buf = Unpooled.buffer();
+        codec.write(subnet, NameCodec.nonCompressingNameCodec(), buf);
+        assertEquals(codec.encodedSize(subnet), buf.readableBytes());
+        byte[] result = new byte[buf.readableBytes()];
+        buf.readBytes(result);
+        return result;
+    }
+
+    private static ClientSubnet<?> decode(byte... bytes) throws Exception {
+        ByteBuf buf = Unpooled.wrappedBuffer(bytes);
+        ClientSubnet<?> result = OptSubrecordCodecs.ecs().read(buf, NameCodec.nonCompressingNameCodec(), bytes.length);
+        assertEquals(0, buf.readableBytes());
+        return result;
+    }
+
+    @Test
+    public void testOnlyPrefixBytesAreWritten() throws Exception {
+        assertArrayEquals(new byte[]{0, 1, 24, 0, (byte) 192, (byte) 168, 2},
+                encode(ClientSubnet.ipv4(new Ipv4Address("192.168.2.1"), 24, 0)));
+        assertArrayEquals(new byte[]{0, 1, 25, 0, (byte) 192, (byte) 168, 2, (byte) 0x80},
+                encode(ClientSubnet.ipv4(new Ipv4Address("192.168.2.255"), 25, 0)));
+        assertArrayEquals(new byte[]{0, 1, 0, 0}, encode(ClientSubnet.ipv4(new Ipv4Address("127.0.0.1"), 0, 0)));
+        assertArrayEquals(new byte[]{0, 2, 56, 0, 0x20, 0x01, 0x0d, (byte) 0xb8, 0, 0, 1},
+                encode(ClientSubnet.ipv6(new Ipv6Address("2001:db8:0:1ff::1"), 56, 0)));
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        ClientSubnet<Ipv4Address> v4 = ClientSubnet.ipv4(new Ipv4Address("192.168.2.77"), 23, 16);
+        ClientSubnet<?> decoded = decode(encode(v4));
+        assertEquals(v4, decoded);
+        assertTrue(decoded.isIpv4());
+        assertEquals(new Ipv4Address("192.168.2.0"), decoded.address());
+        assertEquals(new Ipv4Address("192.168.2.0"), v4.address());
+
+        ClientSubnet<Ipv6Address> v6 = ClientSubnet.ipv6(new Ipv6Address("2001:db8:85a3::8a2e:370:7334"), 72, 0);
+        decoded = decode(encode(v6));
+        assertEquals(v6, decoded);
+        assertFalse(decoded.isIpv4());
+        assertEquals(new Ipv6Address("2001:db8:85a3::"), decoded.address());
+    }
+
+    @Test
+    public void testHostBitsAreCleared() throws Exception {
+        ClientSubnet<?> decoded = decode(0, 1, 20, 0, 10, 1, (byte) 0xFF);
+        assertEquals(new Ipv4Address("10.1.240.0"), decoded.address());
+    }
+
+    @Test
+    public void testMutableClientSubnet() throws Exception {
+        MutableClientSubnet view = new MutableClientSubnet();
+        byte[] bytes = encode(ClientSubnet.ipv6(new Ipv6Address("2001:db8:0:1ff::1"), 56, 0));
+        assertSame(view.read(Unpooled.wrappedBuffer(bytes), bytes.length), view);
+        assertFalse(view.isIpv4());
+        assertEquals(56, view.sourcePrefixLength());
+        assertEquals(0x20010db800000100L, view.high());
+
+        ByteBuf buf = Unpooled.buffer();
+        view.scopePrefixLength(48).writeTo(buf);
+        assertEquals(view.encodedLength(), buf.readableBytes());
+        assertEquals(ClientSubnet.ipv6(new Ipv6Address("2001:db8:0:100::"), 56, 48),
+                OptSubrecordCodecs.ecs().read(buf, NameCodec.nonCompressingNameCodec(), view.encodedLength()));
+
+        view.set(ClientSubnet.ipv4(new Ipv4Address("10.0.0.1"), 8, 0));
+        assertEquals(ClientSubnet.ipv4(new Ipv4Address("10.0.0.0"), 8, 0), view.toClientSubnet());
+    }
+
+    @Test(expected = DnsDecoderException.class)
+    public void testLengthMustMatchPrefix() throws Exception {
+        decode(0, 1, 24, 0, (byte) 192, (byte) 168, 2, 1);
+    }
+
+    @Test(expected = DnsDecoderException.class)
+    public void testPrefixTooLong() throws Exception {
+        decode(0, 1, 33, 0, 1, 2, 3, 4, 5);
+    }
+
+    @Test(expected = DnsDecoderException.class)
+    public void testUnknownFamily() throws Exception {
+        decode(0, 3, 0, 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPrefixLength() {
+        ClientSubnet.ipv4(new Ipv4Address("10.0.0.0"), 33, 0);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.optrecords;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class OptSubrecordTypeTest {
+
+    @Test
+    public void testKnownTypesAreInterned() {
+        for (OptSubrecordType type : OptSubrecordType.values()) {
+            assertSame(type, OptSubrecordType.valueOf(type.intValue()));
+            assertSame(type, OptSubrecordType.valueOf(type.name()));
+            assertFalse(type.isUnknown());
+        }
+        assertSame(OptSubrecordType.PADDING, OptSubrecordType.valueOf(12));
+        assertSame(OptSubrecordType.TCP_KEEPALIVE, OptSubrecordType.valueOf("TCP_KEEPALIVE"));
+    }
+
+    @Test
+    public void testUnknownTypesAreInterned() {
+        OptSubrecordType a = OptSubrecordType.valueOf(65000);
+        assertTrue(a.isUnknown());
+        assertEquals("65000", a.toString());
+        assertSame(a, OptSubrecordType.valueOf(65000));
+        assertSame(a, OptSubrecordType.valueOf("65000"));
+        assertSame(OptSubrecordType.valueOf(0), OptSubrecordType.valueOf(0));
+    }
+
+    @Test
+    public void testEqualityIsByCode() {
+        OptSubrecordType custom = new OptSubrecordType("MINE", 8);
+        assertEquals(OptSubrecordType.ECS, custom);
+        assertEquals(OptSubrecordType.ECS.hashCode(), custom.hashCode());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutOfRange() {
+        OptSubrecordType.valueOf(65536);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testUnknownName() {
+        OptSubrecordType.valueOf("NOT_AN_OPTION");
+    }
+}
@@ -18,13 +18,40 @@ package io.netty.codec.dns.protocol.recordcodecs;
 import io.netty.buffer.ByteBuf;
 import io.netty.buffer.Unpooled;
 import io.netty.codec.dns.protocol.DnsRecordCodec;
+import io.netty.codec.dns.protocol.RdataTemplate;
+import io.netty.codec.dns.protocol.types.AddressInterner;
+import io.netty.codec.dns.protocol.types.ClientSubnet;
+import io.netty.codec.dns.protocol.types.Cookies;
+import io.netty.codec.dns.protocol.types.Ipv4Address;
+import io.netty.codec.dns.protocol.types.Ipv6Address;
+import io.netty.codec.dns.protocol.types.Location;
+import io.netty.codec.dns.protocol.types.MailExchanger;
+import io.netty.codec.dns.protocol.types.NextSecureRecord;
+import io.netty.codec.dns.protocol.types.OptRecords;
+import io.netty.codec.dns.protocol.types.OptSubrecord;
+import io.netty.codec.dns.protocol.types.ServiceDetails;
+import io.netty.codec.dns.protocol.types.StartOfAuthority;
+import io.netty.codec.dns.protocol.types.UriInfo;
+import io.netty.codec.dns.protocol.types.WireName;
 import io.netty.handler.codec.TooLongFrameException;
+import io.netty.handler.codec.dns.DnsDecoderException;
 import io.netty.handler.codec.dns.names.NameCodec;
+import io.netty.util.AsciiString;
 import java.io.IOException;
+import java.util.Arrays;
 import org.junit.Test;
 
+import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.COOKIE;
+import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.ECS;
+import static io.netty.handler.codec.dns.DnsRecordType.A;
+import static io.netty.handler.codec.dns.DnsRecordType.AAAA;
+import static io.netty.handler.codec.dns.DnsRecordType.RRSIG;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class DnsRecordCodecTest {
 
@@ -68,6 +95,170 @@ public class DnsRecordCodecTest {
         codec.write(notSoGood, NameCodec.nonCompressingNameCodec(), buf);
     }
 
+    @Test
+    public void testCharacterStrings() throws Exception {
+        char[] longest = new char[255];
+        Arrays.fill(longest, 'x');
+        DnsRecordCodec<CharSequence[]> codec = DnsRecordCodecs.characterStrings();
+        CharSequence[] in = {"v=spf1 include:_spf.example.com ~all", "", "has \"quotes\" in it",
+            new AsciiString("ascii"), new String(longest)};
+        ByteBuf buf = Unpooled.directBuffer();
+        codec.write(in, NameCodec.nonCompressingNameCodec(), buf);
+        int length = buf.readableBytes();
+        assertEquals(in[0].length() + in[2].length() + 5 + 255 + 5, length);
+        // Bytes past the record length belong to the next record and must not be read
+        buf.writeBytes(new byte[]{3, 'a', 'b', 'c'});
+
+        CharSequence[] out = codec.read(buf, NameCodec.nonCompressingNameCodec(), length);
+        assertEquals(a2s(out), in.length, out.length);
+        for (int i = 0; i < out.length; i++) {
+            assertTrue(out[i] instanceof AsciiString);
+            assertStringsEqual(in[i], out[i]);
+        }
+        assertEquals(4, buf.readableBytes());
+        buf.release();
+    }
+
+    @Test
+    public void testEmptyCharacterStrings() throws Exception {
+        DnsRecordCodec<CharSequence[]> codec = DnsRecordCodecs.characterStrings();
+        ByteBuf buf = Unpooled.buffer();
+        codec.write(new CharSequence[0], NameCodec.nonCompressingNameCodec(), buf);
+        assertEquals(1, buf.readableBytes());
+        CharSequence[] out = codec.read(buf, NameCodec.nonCompressingNameCodec(), 1);
+        assertEquals(1, out.length);
+        assertEquals(0, out[0].length());
+    }
+
+    @Test(expected = DnsDecoderException.class)
+    public void testCharacterStringOverrunsRecord() throws Exception {
+        ByteBuf buf = Unpooled.wrappedBuffer(new byte[]{2, 'o', 'k', 5, 'a', 'b', 'c', 'd', 'e'});
+        DnsRecordCodecs.characterStrings().read(buf, NameCodec.nonCompressingNameCodec(), 6);
+    }
+
+    @Test(expected = TooLongFrameException.class)
+    public void testCharacterStringTooLong() throws Exception {
+        char[] tooLong = new char[256];
+        Arrays.fill(tooLong, 'x');
+        DnsRecordCodecs.characterStrings().write(new CharSequence[]{new String(tooLong)},
+                NameCodec.nonCompressingNameCodec(), Unpooled.buffer());
+    }
+
+    @Test
+    public void testInternedAddresses() throws Exception {
+        AddressInterner interner = new AddressInterner(16);
+        DnsRecordCodec<Ipv4Address> ipv4 = DnsRecordCodecs.ipv4Address(interner);
+        DnsRecordCodec<Ipv6Address> ipv6 = DnsRecordCodecs.ipv6Address(interner);
+        NameCodec names = NameCodec.nonCompressingNameCodec();
+        ByteBuf buf = Unpooled.buffer();
+        ipv4.write(new Ipv4Address("192.168.2.1"), names, buf);
+        ipv4.write(new Ipv4Address("192.168.2.1"), names, buf);
+        ipv6.write(new Ipv6Address("2001:db8::1"), names, buf);
+        ipv6.write(new Ipv6Address("2001:db8::1"), names, buf);
+        Ipv4Address a1 = ipv4.read(buf, names, 4);
+        assertEquals(new Ipv4Address("192.168.2.1"), a1);
+        assertSame(a1, ipv4.read(buf, names, 4));
+        Ipv6Address aaaa1 = ipv6.read(buf, names, 16);
+        assertEquals(new Ipv6Address("2001:db8::1"), aaaa1);
+        assertSame(aaaa1, ipv6.read(buf, names, 16));
+
+        buf.clear();
+        ipv4.write(a1, names, buf);
+        assertNotSame(a1, DnsRecordCodecs.ipv4Address().read(buf, names, 4));
+    }
+
+    @Test
+    public void testWireNameCodecs() throws Exception {
+        ByteBuf buf = Unpooled.buffer();
+        NameCodec names = NameCodec.compressingNameCodec();
+        try {
+            names.writeName("example.com", buf);
+            DnsRecordCodecs.mailExchanger().write(new MailExchanger(10, "mail.example.com"), names, buf);
+        } finally {
+            names.close();
+        }
+        buf.skipBytes(13);
+        MailExchanger mx = DnsRecordCodecs.mailExchangerWithWireNames().read(buf, names, buf.readableBytes());
+        assertTrue(mx.mx() instanceof WireName);
+        assertEquals(0, buf.readableBytes());
+        assertEquals(18, ((WireName) mx.mx()).wireLength());
+        assertEquals("mail.example.com.", mx.mx().toString());
+
+        ByteBuf copied = Unpooled.buffer();
+        DnsRecordCodecs.mailExchangerWithWireNames().write(mx, NameCodec.nonCompressingNameCodec(), copied);
+        ByteBuf expected = Unpooled.buffer();
+        DnsRecordCodecs.mailExchanger().write(new MailExchanger(10, "mail.example.com"),
+                NameCodec.nonCompressingNameCodec(), expected);
+        assertEquals(expected, copied);
+    }
+
+    @Test
+    public void testTemplatesMatchCodecOutput() throws Exception {
+        assertTemplateMatches(DnsRecordCodecs.mailExchanger(), new MailExchanger(10, "mail.example.com"));
+        assertTemplateMatches(DnsRecordCodecs.name(), "www.example.com");
+        assertTemplateMatches(DnsRecordCodecs.service(), new ServiceDetails(10, 5, 22, "host.example.com"));
+        assertTemplateMatches(DnsRecordCodecs.startOfAuthority(), new StartOfAuthority("ns1.example.com",
+                "hostmaster.example.com", 4000000000L, 7200, 3600, 1209600, 3600));
+        assertNull(DnsRecordCodecs.ipv4Address().template(new Ipv4Address("192.168.2.1")));
+    }
+
+    private static <T> void assertTemplateMatches(DnsRecordCodec<T> codec, T value) throws Exception {
+        RdataTemplate template = codec.template(value);
+        assertNotNull(codec + " has no template", template);
+        // Write a name first so both sides have something to point back to
+        ByteBuf expected = Unpooled.buffer();
+        ByteBuf got = Unpooled.buffer();
+        NameCodec expectedNames = NameCodec.compressingNameCodec();
+        NameCodec gotNames = NameCodec.compressingNameCodec();
+        try {
+            expectedNames.writeName("example.com", expected);
+            gotNames.writeName("example.com", got);
+            codec.write(value, expectedNames, expected);
+            template.write(gotNames, got);
+        } finally {
+            expectedNames.close();
+            gotNames.close();
+        }
+        assertEquals(codec.toString(), expected, got);
+    }
+
+    @Test
+    public void testEncodedSizes() throws Exception {
+        assertExactSize(DnsRecordCodecs.ipv4Address(), new Ipv4Address("192.168.2.1"));
+        assertExactSize(DnsRecordCodecs.ipv6Address(), new Ipv6Address("2001:0db8:85a3:0000:0000:8a2e:0370:7334"));
+        assertExactSize(DnsRecordCodecs.location(), new Location((byte) 1, (byte) 0, (byte) 1, (byte) 2, 352, -80,
+                55));
+        assertExactSize(DnsRecordCodecs.uri(), new UriInfo(10, 1, "http://netty.io"));
+        assertExactSize(DnsRecordCodecs.text(), new CharSequence[]{"foo=\"Oh My\"", "boo=baz", "my word=whee"});
+        assertExactSize(DnsRecordCodecs.characterStrings(), new CharSequence[]{"v=spf1 ~all", ""});
+        assertExactSize(DnsRecordCodecs.opt(), OptRecords.of(
+                new OptSubrecord<>(ECS, ClientSubnet.ipv4(new Ipv4Address("192.168.2.0"), 24, 0)),
+                new OptSubrecord<>(COOKIE, new Cookies(new byte[]{1, 2, 3, 4, 5, 6, 7, 8},
+                        new byte[]{9, 10, 11, 12, 13, 14, 15, 16}))));
+
+        assertMaxSize(DnsRecordCodecs.mailExchanger(), new MailExchanger(10, "mail.example.com"));
+        assertMaxSize(DnsRecordCodecs.name(), "www.example.com.");
+        assertMaxSize(DnsRecordCodecs.service(), new ServiceDetails(10, 5, 22, "host.example.com"));
+        assertMaxSize(DnsRecordCodecs.startOfAuthority(), new StartOfAuthority("ns1.example.com",
+                "hostmaster.example.com", 2017010101, 7200, 3600, 1209600, 3600));
+        assertMaxSize(DnsRecordCodecs.nsec(), new NextSecureRecord("host.example.com", A, AAAA, RRSIG));
+    }
+
+    private static <T> void assertExactSize(DnsRecordCodec<T> codec, T value) throws Exception {
+        ByteBuf buf = Unpooled.buffer();
+        codec.write(value, NameCodec.nonCompressingNameCodec(), buf);
+        assertEquals(codec.toString(), buf.readableBytes(), codec.encodedSize(value));
+        assertEquals(codec.toString(), buf.readableBytes(), codec.maxEncodedSize(value));
+    }
+
+    private static <T> void assertMaxSize(DnsRecordCodec<T> codec, T value) throws Exception {
+        ByteBuf buf = Unpooled.buffer();
+        codec.write(value, NameCodec.nonCompressingNameCodec(), buf);
+        assertEquals(codec.toString(), -1, codec.encodedSize(value));
+        assertTrue(codec + ": " + codec.maxEncodedSize(value) + " < " + buf.readableBytes(),
+                codec.maxEncodedSize(value) >= buf.readableBytes());
+    }
+
     private void testOne(CharSequence... in) throws Exception {
         DnsRecordCodec<CharSequence[]> codec = DnsRecordCodecs.text();
         ByteBuf buf = Unpooled.buffer();
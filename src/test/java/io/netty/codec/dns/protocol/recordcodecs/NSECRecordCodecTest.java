@@ -29,6 +29,7 @@ import static io.netty.handler.codec.dns.names.NameCodecFeature.READ_TRAILING_DO
 import static io.netty.handler.codec.dns.names.NameCodecFeature.WRITE_TRAILING_DOT;
 import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertTrue;
 
 public class NSECRecordCodecTest {
@@ -161,6 +162,8 @@ public class NSECRecordCodecTest {
         assertTrue(decoded.types.contains(DnsRecordType.valueOf(1234)));
 
         assertEquals(STRING_DATA, decoded.toString());
+        assertTrue(decoded.hasType(1234));
+        assertFalse(decoded.hasType(AAAA));
     }
 
     private static CharSequence bs(int val) {
@@ -16,19 +16,28 @@
 package io.netty.codec.dns.protocol.recordcodecs;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.Unpooled;
 import io.netty.codec.dns.protocol.DefaultTypedDnsRecord;
+import io.netty.codec.dns.protocol.DnsRecordCodec;
 import io.netty.codec.dns.protocol.OptRecordHeaderFields;
+import io.netty.codec.dns.protocol.OptSubrecordCodecRegistry;
 import io.netty.codec.dns.protocol.TypedDnsRecord;
 import io.netty.codec.dns.protocol.TypedDnsRecordDecoder;
 import io.netty.codec.dns.protocol.TypedDnsRecordEncoder;
+import io.netty.codec.dns.protocol.optrecords.OptRecordVisitor;
 import io.netty.codec.dns.protocol.optrecords.OptSubrecordType;
 import io.netty.codec.dns.protocol.types.ClientSubnet;
 import io.netty.codec.dns.protocol.types.Cookies;
+import io.netty.codec.dns.protocol.types.ExtendedDnsError;
 import io.netty.codec.dns.protocol.types.Ipv4Address;
+import io.netty.codec.dns.protocol.types.NameServerIdentifier;
 import io.netty.codec.dns.protocol.types.OptRecords;
 import io.netty.codec.dns.protocol.types.OptSubrecord;
+import io.netty.codec.dns.protocol.types.Padding;
+import io.netty.codec.dns.protocol.types.TcpKeepalive;
 import io.netty.handler.codec.dns.DefaultDnsResponse;
+import io.netty.handler.codec.dns.DnsDecoderException;
 import io.netty.handler.codec.dns.DnsOpCode;
 import io.netty.handler.codec.dns.DnsResponse;
 import io.netty.handler.codec.dns.DnsSection;
@@ -37,15 +46,23 @@ import io.netty.handler.codec.dns.names.NameCodecFeature;
 import io.netty.handler.codec.dns.wire.DnsMessageDecoder;
 import io.netty.handler.codec.dns.wire.DnsMessageEncoder;
 import java.net.InetSocketAddress;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.Test;
 
 import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.COOKIE;
 import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.ECS;
+import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.EDE;
+import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.NSID;
+import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.PADDING;
+import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.TCP_KEEPALIVE;
 import static io.netty.handler.codec.dns.DnsOpCode.QUERY;
 import static io.netty.handler.codec.dns.DnsOpCode.UPDATE;
 import static io.netty.handler.codec.dns.DnsSection.ADDITIONAL;
 import static io.netty.handler.codec.dns.names.NameCodecFeature.WRITE_TRAILING_DOT;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 
 public class OptRecordCodecTest {
 
@@ -107,4 +124,129 @@ public class OptRecordCodecTest {
         DnsResponse got = decodr.decode(into, addr, addr);
         assertEquals(resp, got);
     }
+
+    // ECS 192.168.2.0/24, PADDING of 3 bytes, then a bare client COOKIE
+    static ByteBuf rdata() {
+        ByteBuf buf = Unpooled.buffer();
+        buf.writeShort(8).writeShort(7).writeShort(1).writeByte(24).writeByte(0)
+                .writeByte(192).writeByte(168).writeByte(2);
+        buf.writeShort(12).writeShort(3).writeZero(3);
+        buf.writeShort(10).writeShort(8).writeLong(0x0102030405060708L);
+        return buf;
+    }
+
+    @Test
+    public void testVisit() throws Exception {
+        ByteBuf buf = rdata();
+        final List<Integer> seen = new ArrayList<>();
+        int count = OptRecordCodec.visit(buf, 0, buf.readableBytes(), new OptRecordVisitor() {
+            @Override
+            public boolean visitOption(ByteBuf rdata, int code, int index, int length) {
+                seen.add(code);
+                seen.add(index);
+                seen.add(length);
+                rdata.skipBytes(1);
+                return true;
+            }
+        });
+        assertEquals(3, count);
+        assertEquals(0, buf.readerIndex());
+        assertEquals(listOf(8, 4, 7, 12, 15, 3, 10, 22, 8), seen);
+
+        seen.clear();
+        count = OptRecordCodec.visit(buf, 0, buf.readableBytes(), new OptRecordVisitor() {
+            @Override
+            public boolean visitOption(ByteBuf rdata, int code, int index, int length) {
+                seen.add(code);
+                return code != 12;
+            }
+        });
+        assertEquals(2, count);
+        assertEquals(listOf(8, 12), seen);
+    }
+
+    @Test(expected = DnsDecoderException.class)
+    public void testVisitRejectsOverlongOption() throws Exception {
+        ByteBuf buf = rdata();
+        buf.setShort(2, 200);
+        OptRecordCodec.visit(buf, 0, buf.readableBytes(), new OptRecordVisitor() {
+            @Override
+            public boolean visitOption(ByteBuf rdata, int code, int index, int length) {
+                return true;
+            }
+        });
+    }
+
+    @Test
+    public void testSelectiveDecode() throws Exception {
+        ByteBuf buf = rdata();
+        int length = buf.readableBytes();
+        OptRecords all = DnsRecordCodecs.opt().read(buf.duplicate(), NameCodec.nonCompressingNameCodec(), length);
+        assertEquals(3, all.size());
+        assertEquals(Padding.of(3), all.find(PADDING).content());
+
+        OptRecords some = DnsRecordCodecs.opt(OptSubrecordCodecRegistry.DEFAULT, ECS)
+                .read(buf, NameCodec.nonCompressingNameCodec(), length);
+        assertEquals(length, buf.readerIndex());
+        assertEquals(1, some.size());
+        assertEquals(ClientSubnet.ipv4(0xC0A80200, 24, 0), some.find(ECS).content());
+        assertNull(some.find(PADDING));
+        assertNull(some.find(COOKIE));
+    }
+
+    @Test
+    public void testKeepaliveAndNsid() throws Exception {
+        NameServerIdentifier id = NameServerIdentifier.of("ns1.example");
+        OptRecords response = OptRecords.of(new OptSubrecord<>(TCP_KEEPALIVE, TcpKeepalive.of(1200)),
+                new OptSubrecord<>(NSID, id));
+        DnsRecordCodec<OptRecords> codec = DnsRecordCodecs.opt();
+        assertEquals(4 + 2 + 4 + 11, codec.encodedSize(response));
+        ByteBuf buf = Unpooled.buffer();
+        codec.write(response, NameCodec.nonCompressingNameCodec(), buf);
+        assertEquals("000b000204b0" + "0003000b" + "6e73312e6578616d706c65", ByteBufUtil.hexDump(buf));
+
+        OptRecords got = codec.read(buf, NameCodec.nonCompressingNameCodec(), buf.readableBytes());
+        assertEquals(response, got);
+        TcpKeepalive keepalive = (TcpKeepalive) got.find(TCP_KEEPALIVE).content();
+        assertEquals(120000, keepalive.timeoutMillis());
+        assertEquals(id, got.find(NSID).content());
+
+        // Clients send both empty
+        ByteBuf query = Unpooled.buffer().writeInt(0x000b0000).writeInt(0x00030000);
+        got = codec.read(query, NameCodec.nonCompressingNameCodec(), 8);
+        assertSame(TcpKeepalive.EMPTY, got.find(TCP_KEEPALIVE).content());
+        assertSame(NameServerIdentifier.EMPTY, got.find(NSID).content());
+    }
+
+    @Test
+    public void testExtendedDnsError() throws Exception {
+        ExtendedDnsError error = ExtendedDnsError.of(18, "no recursion");
+        OptRecords response = OptRecords.of(new OptSubrecord<>(EDE, error),
+                new OptSubrecord<>(EDE, ExtendedDnsError.BLOCKED));
+        DnsRecordCodec<OptRecords> codec = DnsRecordCodecs.opt(
+                OptSubrecordCodecRegistry.builderWithDefaultCodecs().build());
+        assertEquals(4 + 2 + 12 + 4 + 2, codec.encodedSize(response));
+        ByteBuf buf = Unpooled.buffer();
+        codec.write(response, NameCodec.nonCompressingNameCodec(), buf);
+        assertEquals("000f000e0012" + "6e6f20726563757273696f6e" + "000f0002" + "000f", ByteBufUtil.hexDump(buf));
+
+        OptRecords got = DnsRecordCodecs.opt().read(buf, NameCodec.nonCompressingNameCodec(), buf.readableBytes());
+        assertEquals(response, got);
+        assertEquals(error, got.find(EDE).content());
+        assertSame(ExtendedDnsError.BLOCKED, got.findAll(EDE).get(1).content());
+    }
+
+    @Test(expected = DnsDecoderException.class)
+    public void testKeepaliveWithBadLength() throws Exception {
+        ByteBuf buf = Unpooled.buffer().writeInt(0x000b0001).writeByte(1);
+        DnsRecordCodecs.opt().read(buf, NameCodec.nonCompressingNameCodec(), 5);
+    }
+
+    private static List<Integer> listOf(int... values) {
+        List<Integer> result = new ArrayList<>();
+        for (int v : values) {
+            result.add(v);
+        }
+        return result;
+    }
 }
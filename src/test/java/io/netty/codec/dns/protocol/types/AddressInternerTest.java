@@ -0,0 +1,56 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.types;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class AddressInternerTest {
+
+    @Test
+    public void testInterning() {
+        AddressInterner interner = new AddressInterner(4);
+        Ipv4Address a = interner.ipv4(new Ipv4Address("10.0.0.1").intValue());
+        assertEquals(new Ipv4Address("10.0.0.1"), a);
+        assertSame(a, interner.ipv4(a.intValue()));
+
+        Ipv6Address aaaa = new Ipv6Address("2001:db8::1");
+        Ipv6Address interned = interner.ipv6(aaaa.high(), aaaa.low());
+        assertEquals(aaaa, interned);
+        assertSame(interned, interner.ipv6(aaaa.high(), aaaa.low()));
+    }
+
+    @Test
+    public void testPoolIsBounded() {
+        AddressInterner interner = new AddressInterner(4);
+        Ipv4Address first = new Ipv4Address("10.0.0.0");
+        for (int i = 0; i < 1000; i++) {
+            Ipv4Address addr = interner.ipv4(first.intValue() + i);
+            assertEquals(first.intValue() + i, addr.intValue());
+        }
+        // Whatever was evicted, lookups still return equal addresses
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(first.intValue() + i, interner.ipv4(first.intValue() + i).intValue());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidCapacity() {
+        new AddressInterner(0);
+    }
+}
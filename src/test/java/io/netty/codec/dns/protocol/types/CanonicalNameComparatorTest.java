@@ -0,0 +1,71 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.types;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CanonicalNameComparatorTest {
+
+    @Test
+    public void testRfc4034Order() {
+        // From RFC 4034 section 6.1, less the names needing escapes
+        List<String> expected = Arrays.asList("example", "a.example", "yljkjljk.a.example", "Z.a.example",
+                "zABC.a.EXAMPLE", "z.example", "*.z.example");
+        List<String> names = new ArrayList<>(expected);
+        Collections.reverse(names);
+        Collections.sort(names, CanonicalNameComparator.INSTANCE);
+        assertEquals(expected, names);
+    }
+
+    @Test
+    public void testCaseAndTrailingDots() {
+        CanonicalNameComparator order = CanonicalNameComparator.INSTANCE;
+        assertEquals(0, order.compare("WWW.Example.COM.", "www.example.com"));
+        assertEquals(0, order.compare("", "."));
+        assertTrue(order.compare(".", "com") < 0);
+        assertTrue(order.compare("b.com", "a.org") < 0);
+        assertTrue(order.compare("ab.com", "b.com") < 0);
+        assertTrue(order.compare("a.com", "ab.com") < 0);
+    }
+
+    @Test
+    public void testNonAsciiLabelsCompareAsUtf8Octets() {
+        CanonicalNameComparator order = CanonicalNameComparator.INSTANCE;
+        // U+1F600 is f0 9f 98 80 in UTF-8 and sorts after U+FF21 (ef bc a1), though its high surrogate is smaller
+        assertTrue(order.compare("\uff21.com", "\ud83d\ude00.com") < 0);
+        assertTrue(order.compare("z.com", "\u00e9.com") < 0);
+        // Only ASCII letters are case-folded
+        assertTrue(order.compare("\u00e9.com", "\u00c9.com") > 0);
+        assertEquals(0, order.compare("Caf\u00e9.com", "caf\u00e9.COM"));
+    }
+
+    @Test
+    public void testIsAtOrBelow() {
+        assertTrue(CanonicalNameComparator.isAtOrBelow("www.example.com", "example.com."));
+        assertTrue(CanonicalNameComparator.isAtOrBelow("Example.com", "example.com"));
+        assertTrue(CanonicalNameComparator.isAtOrBelow("example.com", "."));
+        assertFalse(CanonicalNameComparator.isAtOrBelow("wwwexample.com", "example.com"));
+        assertFalse(CanonicalNameComparator.isAtOrBelow("com", "example.com"));
+    }
+}
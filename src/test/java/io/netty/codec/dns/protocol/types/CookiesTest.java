@@ -0,0 +1,101 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.types;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.dns.DnsDecoderException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class CookiesTest {
+
+    private static final byte[] CLIENT = {1, 2, 3, 4, 5, 6, 7, (byte) 0xF8};
+
+    private static byte[] bytes(int length, int first) {
+        byte[] result = new byte[length];
+        for (int i = 0; i < length; i++) {
+            result[i] = (byte) (first + i);
+        }
+        return result;
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        for (int length : new int[]{0, 8, 13, 16, 24, 31, 32}) {
+            Cookies cookies = length == 0 ? new Cookies(CLIENT) : new Cookies(CLIENT, bytes(length, 0x90));
+            assertEquals(8 + length, cookies.encodedLength());
+            ByteBuf buf = Unpooled.buffer();
+            cookies.writeTo(buf);
+            assertEquals(cookies.encodedLength(), buf.readableBytes());
+            Cookies read = Cookies.read(buf, cookies.encodedLength());
+            assertEquals(0, buf.readableBytes());
+            assertEquals(cookies, read);
+            assertEquals(cookies.hashCode(), read.hashCode());
+            assertArrayEquals(CLIENT, read.clientCookie());
+            if (length == 0) {
+                assertFalse(read.hasServerCookie());
+                assertNull(read.serverCookie());
+            } else {
+                assertArrayEquals(bytes(length, 0x90), read.serverCookie());
+            }
+        }
+    }
+
+    @Test
+    public void testPrimitiveAccess() {
+        Cookies cookies = new Cookies(0x01020304050607F8L);
+        assertEquals(new Cookies(CLIENT), cookies);
+        assertEquals(0x01020304050607F8L, cookies.clientCookieValue());
+        Cookies withServer = cookies.withServerCookie(bytes(8, 0));
+        assertTrue(withServer.hasServerCookie());
+        assertNotEquals(cookies, withServer);
+        ByteBuf buf = Unpooled.buffer();
+        withServer.writeServerCookie(buf);
+        assertEquals(Unpooled.wrappedBuffer(bytes(8, 0)), buf);
+    }
+
+    @Test
+    public void testToString() {
+        assertEquals("01020304050607f8", new Cookies(CLIENT).toString());
+        assertEquals("01020304050607f8" + "0a0b0c0d0e0f101112",
+                new Cookies(CLIENT, bytes(9, 10)).toString());
+    }
+
+    @Test(expected = DnsDecoderException.class)
+    public void testServerCookieTooShort() throws Exception {
+        ByteBuf buf = Unpooled.buffer().writeBytes(CLIENT).writeZero(4);
+        Cookies.read(buf, buf.readableBytes());
+    }
+
+    @Test(expected = DnsDecoderException.class)
+    public void testServerCookieTooLong() throws Exception {
+        ByteBuf buf = Unpooled.buffer().writeBytes(CLIENT).writeZero(33);
+        Cookies.read(buf, buf.readableBytes());
+    }
+
+    @Test(expected = DnsDecoderException.class)
+    public void testTruncated() throws Exception {
+        ByteBuf buf = Unpooled.buffer().writeBytes(CLIENT).writeZero(8);
+        Cookies.read(buf, 24);
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.types;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class DnsNameTest {
+
+    @Test
+    public void testNormalization() {
+        DnsName name = DnsName.of("WWW.Example.COM.");
+        assertEquals("www.example.com", name.toString());
+        assertEquals(DnsName.of("www.example.com"), name);
+        assertEquals(DnsName.of("www.example.com").hashCode(), name.hashCode());
+        assertNotEquals(DnsName.of("www.example.org"), name);
+        assertSame(name, DnsName.of(name));
+        assertEquals(3, name.labelCount());
+        assertEquals("example", name.label(1).toString());
+        assertEquals(DnsName.of("example.com"), name.parent());
+        assertEquals(DnsName.of("com"), name.parent().parent());
+        assertSame(DnsName.ROOT, name.parent().parent().parent());
+        assertSame(DnsName.ROOT, DnsName.of("."));
+        assertEquals(0, DnsName.ROOT.labelCount());
+    }
+
+    @Test
+    public void testCanonicalOrder() {
+        List<DnsName> expected = new ArrayList<>();
+        for (String s : Arrays.asList("example", "a.example", "yljkjljk.a.example", "Z.a.example", "zABC.a.EXAMPLE",
+                "z.example", "*.z.example")) {
+            expected.add(DnsName.of(s));
+        }
+        List<DnsName> names = new ArrayList<>(expected);
+        Collections.reverse(names);
+        Collections.sort(names);
+        assertEquals(expected, names);
+        assertTrue(DnsName.ROOT.compareTo(DnsName.of("com")) < 0);
+        assertEquals(0, CanonicalNameComparator.INSTANCE.compare(DnsName.of("A.example"), "a.EXAMPLE."));
+    }
+
+    @Test
+    public void testIsAtOrBelow() {
+        DnsName name = DnsName.of("www.example.com");
+        assertTrue(name.isAtOrBelow(DnsName.of("example.com")));
+        assertTrue(name.isAtOrBelow(name));
+        assertTrue(name.isAtOrBelow(DnsName.ROOT));
+        assertFalse(name.isAtOrBelow(DnsName.of("ample.com")));
+        assertFalse(DnsName.of("example.com").isAtOrBelow(name));
+    }
+
+    @Test
+    public void testWireFormat() {
+        DnsName name = DnsName.of("www.example.com");
+        ByteBuf buf = Unpooled.buffer();
+        name.writeTo(buf);
+        assertEquals(name.wireLength(), buf.readableBytes());
+        byte[] bytes = new byte[buf.readableBytes()];
+        buf.readBytes(bytes);
+        assertArrayEquals(new byte[]{3, 'w', 'w', 'w', 7, 'e', 'x', 'a', 'm', 'p', 'l', 'e', 3, 'c', 'o', 'm', 0},
+                bytes);
+        buf.clear();
+        DnsName.ROOT.writeTo(buf);
+        assertEquals(1, buf.readableBytes());
+    }
+
+    @Test
+    public void testNormalizeLeavesUnrepresentableNamesAlone() {
+        String unicode = "caf\u00e9.local";
+        assertSame(unicode, DnsName.normalize(unicode));
+        String emptyLabel = "a..b";
+        assertSame(emptyLabel, DnsName.normalize(emptyLabel));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testLabelTooLong() {
+        char[] label = new char[64];
+        Arrays.fill(label, 'a');
+        DnsName.of(new String(label) + ".com");
+    }
+}
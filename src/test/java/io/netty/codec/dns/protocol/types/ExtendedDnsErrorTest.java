@@ -0,0 +1,86 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.types;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.dns.DnsDecoderException;
+import java.util.Arrays;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+public class ExtendedDnsErrorTest {
+
+    @Test
+    public void testCommonErrorsAreShared() throws Exception {
+        assertSame(ExtendedDnsError.BLOCKED, ExtendedDnsError.of(15));
+        assertSame(ExtendedDnsError.BLOCKED, ExtendedDnsError.of(15, ""));
+        assertEquals("Blocked", ExtendedDnsError.BLOCKED.description());
+        assertEquals("Invalid Query Type", ExtendedDnsError.INVALID_QUERY_TYPE.description());
+
+        ByteBuf buf = Unpooled.buffer();
+        ExtendedDnsError.BLOCKED.writeTo(buf);
+        assertEquals("000f", ByteBufUtil.hexDump(buf));
+        assertSame(ExtendedDnsError.BLOCKED, ExtendedDnsError.read(buf, 2));
+        assertEquals(0, buf.readableBytes());
+    }
+
+    @Test
+    public void testExtraText() throws Exception {
+        ExtendedDnsError error = ExtendedDnsError.FILTERED.withExtraText("caf\u00e9");
+        assertEquals(17, error.infoCode());
+        assertEquals(2 + 5, error.encodedLength());
+        ByteBuf buf = Unpooled.buffer();
+        error.writeTo(buf);
+        assertEquals("0011636166c3a9", ByteBufUtil.hexDump(buf));
+
+        ExtendedDnsError got = ExtendedDnsError.read(buf, 7);
+        assertEquals(error, got);
+        assertEquals("caf\u00e9", got.extraText());
+        assertEquals("ExtendedDnsError{17 Filtered: caf\u00e9}", got.toString());
+    }
+
+    @Test
+    public void testUnknownInfoCode() throws Exception {
+        ExtendedDnsError error = ExtendedDnsError.of(49152);
+        assertEquals(null, error.description());
+        ByteBuf buf = Unpooled.buffer();
+        error.writeTo(buf);
+        assertEquals(error, ExtendedDnsError.read(buf, 2));
+    }
+
+    @Test
+    public void testLongestExtraText() throws Exception {
+        char[] text = new char[0xFFFF - 2];
+        Arrays.fill(text, 'x');
+        assertEquals(0xFFFF, ExtendedDnsError.of(3, new String(text)).encodedLength());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testExtraTextTooLong() throws Exception {
+        char[] text = new char[0xFFFF / 2];
+        Arrays.fill(text, '\u00e9');
+        ExtendedDnsError.of(3, new String(text));
+    }
+
+    @Test(expected = DnsDecoderException.class)
+    public void testTooShort() throws Exception {
+        ExtendedDnsError.read(Unpooled.buffer().writeByte(0), 1);
+    }
+}
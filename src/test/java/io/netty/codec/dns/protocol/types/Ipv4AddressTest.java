@@ -15,9 +15,16 @@
  */
 package io.netty.codec.dns.protocol.types;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
 
 /**
  * Test of ipv4address.
@@ -63,4 +70,68 @@ public class Ipv4AddressTest {
         Ipv4Address addr3 = new Ipv4Address(addr.toString());
         assertEquals(addr, addr3);
     }
+
+    @Test
+    public void testAppendTo() {
+        Ipv4Address addr = new Ipv4Address("10.0.255.1");
+        StringBuilder sb = new StringBuilder("addr=");
+        assertSame(sb, addr.appendTo(sb));
+        assertEquals("addr=10.0.255.1", sb.toString());
+        ByteBuf buf = Unpooled.buffer();
+        assertSame(buf, addr.appendTo(buf));
+        assertEquals("10.0.255.1", buf.toString(CharsetUtil.US_ASCII));
+        assertEquals(addr, new Ipv4Address("x 10.0.255.1 y", 2, 12));
+    }
+
+    @Test
+    public void testInvalid() {
+        for (String bad : new String[] {"", "1.2.3", "1.2.3.4.5", "256.1.1.1", "1..2.3", ".1.2.3", "1.2.3.",
+                "a.b.c.d"}) {
+            try {
+                new Ipv4Address(bad);
+                fail("Should not have parsed '" + bad + "'");
+            } catch (IllegalArgumentException ex) {
+                // expected
+            }
+        }
+    }
+
+    @Test
+    public void testCompareToIsUnsigned() {
+        Ipv4Address low = new Ipv4Address("10.0.0.1");
+        Ipv4Address high = new Ipv4Address("192.168.2.1");
+        assertTrue(low.compareTo(high) < 0);
+        assertTrue(high.compareTo(low) > 0);
+        assertEquals(0, high.compareTo(new Ipv4Address("192.168.2.1")));
+        assertTrue(new Ipv4Address("255.255.255.255").compareTo(new Ipv4Address("0.0.0.0")) > 0);
+    }
+
+    @Test
+    public void testPrefixOperations() {
+        Ipv4Address addr = new Ipv4Address("192.168.2.77");
+        assertEquals(new Ipv4Address("192.168.2.0"), addr.network(24));
+        assertEquals(new Ipv4Address("192.168.2.255"), addr.broadcast(24));
+        assertEquals(new Ipv4Address("192.168.0.0"), addr.network(20));
+        assertEquals(new Ipv4Address("192.168.15.255"), addr.broadcast(20));
+        assertEquals(new Ipv4Address("0.0.0.0"), addr.network(0));
+        assertSame(addr, addr.network(32));
+        assertSame(addr, addr.broadcast(32));
+        assertEquals(new Ipv4Address("255.255.255.0"), new Ipv4Address(Ipv4Address.prefixMask(24)));
+
+        assertTrue(addr.contains(new Ipv4Address("192.168.2.1"), 24));
+        assertFalse(addr.contains(new Ipv4Address("192.168.3.1"), 24));
+        assertTrue(addr.contains(new Ipv4Address("192.168.3.1"), 22));
+        assertTrue(addr.contains(new Ipv4Address("10.0.0.1"), 0));
+        assertEquals(23, addr.commonPrefixLength(new Ipv4Address("192.168.3.1")));
+        assertEquals(32, addr.commonPrefixLength(addr));
+
+        assertEquals(new Ipv4Address("192.168.3.0"), new Ipv4Address("192.168.2.255").next());
+        assertEquals(new Ipv4Address("192.168.2.255"), new Ipv4Address("192.168.3.0").previous());
+        assertEquals(new Ipv4Address("0.0.0.0"), new Ipv4Address("255.255.255.255").next());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidPrefixLength() {
+        new Ipv4Address("192.168.2.1").network(33);
+    }
 }
@@ -15,12 +15,17 @@
  */
 package io.netty.codec.dns.protocol.types;
 
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.util.CharsetUtil;
 import java.math.BigInteger;
 import org.junit.Test;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class Ipv6AddressTest {
 
@@ -54,6 +59,48 @@ public class Ipv6AddressTest {
         new Ipv6Address("0000:3000:0000:0000:0000:p00p:0000:0000:0001:0002:0003:0004");
     }
 
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidMultipleGaps() {
+        new Ipv6Address("1::2::3");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTrailingColon() {
+        new Ipv6Address("1:2:3:4:5:6:7:8:");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidTooFewComponents() {
+        new Ipv6Address("1:2:3:4:5:6:7");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidEmbeddedIpv4() {
+        new Ipv6Address("::ffff:192.168.300.1");
+    }
+
+    @Test
+    public void testEmbeddedIpv4() {
+        assertEquals(new Ipv6Address(0, 0xFFFFC0A80201L), new Ipv6Address("::ffff:192.168.2.1"));
+        assertEquals(new Ipv6Address("1:2:3:4:5:6:102:304"), new Ipv6Address("1:2:3:4:5:6:1.2.3.4"));
+    }
+
+    @Test
+    public void testAppendTo() {
+        Ipv6Address addr = new Ipv6Address("2001:db8:85a3::8a2e:370:7334");
+        assertEquals(addr, new Ipv6Address("[2001:db8:85a3::8a2e:370:7334]:53", 1, 29));
+        StringBuilder sb = new StringBuilder();
+        assertSame(sb, addr.appendShorthandTo(sb).append(' '));
+        addr.appendTo(sb);
+        assertEquals("2001:db8:85a3::8a2e:370:7334 2001:0db8:85a3:0000:0000:8a2e:0370:7334", sb.toString());
+        ByteBuf buf = Unpooled.buffer();
+        assertSame(buf, addr.appendShorthandTo(buf));
+        assertEquals(addr.toStringShorthand(), buf.toString(CharsetUtil.US_ASCII));
+        buf.clear();
+        addr.appendTo(buf);
+        assertEquals(addr.toString(), buf.toString(CharsetUtil.US_ASCII));
+    }
+
     @Test
     public void testToString() {
         Ipv6Address addr = new Ipv6Address(0, 1);
@@ -165,4 +212,40 @@ public class Ipv6AddressTest {
         assertEquals(addr, new Ipv6Address(addr.toStringShorthand()));
         assertEquals("fe80::184d:1cbc:f0dd:e656", addr.toStringShorthand());
     }
+
+    @Test
+    public void testCompareToIsUnsigned() {
+        Ipv6Address low = new Ipv6Address("2001:db8::1");
+        Ipv6Address high = new Ipv6Address("fe80::1");
+        assertTrue(low.compareTo(high) < 0);
+        assertTrue(high.compareTo(low) > 0);
+        assertEquals(0, high.compareTo(new Ipv6Address("fe80::1")));
+        assertTrue(new Ipv6Address("::ffff:0:0").compareTo(new Ipv6Address("::8000:0:0:0")) < 0);
+        assertTrue(new Ipv6Address("::8000:0:0:0").compareTo(new Ipv6Address("::1")) > 0);
+    }
+
+    @Test
+    public void testPrefixOperations() {
+        Ipv6Address addr = new Ipv6Address("2001:db8:85a3::8a2e:370:7334");
+        assertEquals(new Ipv6Address("2001:db8:85a3::"), addr.network(48));
+        assertEquals(new Ipv6Address("2001:db8:85a3:ffff:ffff:ffff:ffff:ffff"), addr.broadcast(48));
+        assertEquals(new Ipv6Address("2001:db8:85a3::8a2e:0:0"), addr.network(96));
+        assertEquals(new Ipv6Address("2001:db8:85a3::8a2e:ffff:ffff"), addr.broadcast(96));
+        assertEquals(new Ipv6Address("2001:db8:85a3::8a2e:370:7300"), addr.network(120));
+        assertEquals(new Ipv6Address("::"), addr.network(0));
+        assertSame(addr, addr.network(128));
+        assertSame(addr, addr.broadcast(128));
+
+        assertTrue(addr.contains(new Ipv6Address("2001:db8:85a3::1"), 64));
+        assertFalse(addr.contains(new Ipv6Address("2001:db8:85a4::1"), 48));
+        assertTrue(addr.contains(new Ipv6Address("2001:db8:85a4::1"), 45));
+        assertTrue(addr.contains(new Ipv6Address("2001:db8:85a3::8a2e:370:7335"), 127));
+        assertFalse(addr.contains(new Ipv6Address("2001:db8:85a3::8a2e:370:7335"), 128));
+        assertEquals(127, addr.commonPrefixLength(new Ipv6Address("2001:db8:85a3::8a2e:370:7335")));
+        assertEquals(45, addr.commonPrefixLength(new Ipv6Address("2001:db8:85a4::1")));
+
+        assertEquals(new Ipv6Address("::1:0:0:0:0"), new Ipv6Address("::ffff:ffff:ffff:ffff").next());
+        assertEquals(new Ipv6Address("::ffff:ffff:ffff:ffff"), new Ipv6Address("::1:0:0:0:0").previous());
+        assertEquals(new Ipv6Address("::"), new Ipv6Address("ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff").next());
+    }
 }
@@ -16,10 +16,17 @@
 package io.netty.codec.dns.protocol.types;
 
 import io.netty.codec.dns.protocol.optrecords.OptSubrecordType;
+import java.util.Iterator;
 import org.junit.Test;
 
+import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.COOKIE;
 import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.ECS;
+import static io.netty.codec.dns.protocol.optrecords.OptSubrecordType.PADDING;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
 
 public class OptRecordsTest {
 
@@ -39,4 +46,27 @@ public class OptRecordsTest {
         assertEquals(a, b);
     }
 
+    @Test
+    public void testFindByCode() {
+        OptSubrecord<String> unknown = new OptSubrecord<>(OptSubrecordType.valueOf(65001), "x");
+        OptSubrecord<String> cookie = new OptSubrecord<>(COOKIE, "c");
+        OptRecords records = OptRecords.of(optEcsRecord, cookie, unknown, optEcsRecord2);
+        assertSame(optEcsRecord, records.find(ECS));
+        assertSame(cookie, records.find(10));
+        assertSame(unknown, records.find(OptSubrecordType.valueOf(65001)));
+        assertNull(records.find(PADDING));
+        assertNull(records.find(65002));
+        assertTrue(records.contains(COOKIE));
+        assertFalse(records.contains(PADDING));
+        assertEquals(2, records.findAll(ECS).size());
+        assertTrue(records.findAll(PADDING).isEmpty());
+        assertEquals(4, records.size());
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testIteratorIsReadOnly() {
+        Iterator<OptSubrecord<?>> it = OptRecords.of(optEcsRecord).iterator();
+        it.next();
+        it.remove();
+    }
 }
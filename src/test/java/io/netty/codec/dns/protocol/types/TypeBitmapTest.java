@@ -0,0 +1,102 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.types;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.dns.DnsDecoderException;
+import io.netty.handler.codec.dns.DnsRecordType;
+import java.util.ArrayList;
+import java.util.Arrays;
+import org.junit.Test;
+
+import static io.netty.handler.codec.dns.DnsRecordType.A;
+import static io.netty.handler.codec.dns.DnsRecordType.ANY;
+import static io.netty.handler.codec.dns.DnsRecordType.MX;
+import static io.netty.handler.codec.dns.DnsRecordType.NSEC;
+import static io.netty.handler.codec.dns.DnsRecordType.RRSIG;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class TypeBitmapTest {
+
+    private static final DnsRecordType TYPE1234 = DnsRecordType.valueOf(1234);
+
+    @Test
+    public void testContainsAndOrder() {
+        TypeBitmap bitmap = TypeBitmap.of(TYPE1234, NSEC, A, RRSIG, MX, ANY, MX);
+        assertEquals(Arrays.asList(A, MX, RRSIG, NSEC, TYPE1234), bitmap);
+        assertEquals(new ArrayList<>(bitmap).hashCode(), bitmap.hashCode());
+        assertEquals(5, bitmap.size());
+        assertEquals(TYPE1234, bitmap.get(4));
+        assertTrue(bitmap.contains(A.intValue()));
+        assertTrue(bitmap.contains(1234));
+        assertTrue(bitmap.contains(NSEC));
+        assertFalse("Meta types have no bit", bitmap.contains(ANY));
+        assertFalse(bitmap.contains(1235));
+        assertFalse(bitmap.contains(-1));
+        assertEquals(RRSIG.intValue(), bitmap.nextType(MX.intValue() + 1));
+        assertEquals(1234, bitmap.nextType(NSEC.intValue() + 1));
+        assertEquals(-1, bitmap.nextType(1235));
+        assertSame(TypeBitmap.EMPTY, TypeBitmap.of());
+    }
+
+    @Test
+    public void testRoundTrip() throws Exception {
+        TypeBitmap bitmap = TypeBitmap.of(A, MX, RRSIG, NSEC, TYPE1234);
+        ByteBuf buf = Unpooled.buffer();
+        bitmap.writeTo(buf);
+        // Two windows: 0 with 6 bytes, 4 with 27 bytes
+        assertEquals(2 + 6 + 2 + 27, buf.readableBytes());
+        assertEquals(buf.readableBytes(), bitmap.encodedLength());
+        TypeBitmap read = TypeBitmap.read(buf, buf.readableBytes());
+        assertEquals(bitmap, read);
+        assertEquals(0, buf.readableBytes());
+    }
+
+    @Test
+    public void testTrailingZerosAreNormalized() throws Exception {
+        ByteBuf buf = Unpooled.wrappedBuffer(new byte[]{0, 3, 0x40, 0, 0});
+        TypeBitmap read = TypeBitmap.read(buf, 5);
+        assertEquals(TypeBitmap.of(A), read);
+        assertEquals(3, read.encodedLength());
+    }
+
+    @Test(expected = DnsDecoderException.class)
+    public void testWindowsOutOfOrder() throws Exception {
+        TypeBitmap.read(Unpooled.wrappedBuffer(new byte[]{4, 1, 1, 0, 1, 0x40}), 6);
+    }
+
+    @Test(expected = DnsDecoderException.class)
+    public void testWindowOverrun() throws Exception {
+        TypeBitmap.read(Unpooled.wrappedBuffer(new byte[]{0, 6, 0x40}), 3);
+    }
+
+    @Test
+    public void testNextSecureRecordExposesBitmap() {
+        NextSecureRecord nsec = new NextSecureRecord("b.example.com", MX, A);
+        assertSame(nsec.types, nsec.typeBitmap());
+        assertEquals(Arrays.asList(A, MX), nsec.types);
+        assertTrue(nsec.typeBitmap().contains(MX.intValue()));
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testNextSecureRecordRejectsNullBitmap() {
+        new NextSecureRecord("b.example.com", (TypeBitmap) null);
+    }
+}
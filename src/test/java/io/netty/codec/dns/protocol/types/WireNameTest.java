@@ -0,0 +1,112 @@
+/*
+ * Copyright 2017 The Netty Project
+ *
+ * The Netty Project licenses this file to you under the Apache License,
+ * version 2.0 (the "License"); you may not use this file except in compliance
+ * with the License. You may obtain a copy of the License at:
+ *
+ *   http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the
+ * License for the specific language governing permissions and limitations
+ * under the License.
+ */
+package io.netty.codec.dns.protocol.types;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import io.netty.handler.codec.dns.DnsDecoderException;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+
+public class WireNameTest {
+
+    private static ByteBuf buffer(int... bytes) {
+        ByteBuf buf = Unpooled.buffer(bytes.length);
+        for (int b : bytes) {
+            buf.writeByte(b);
+        }
+        return buf;
+    }
+
+    @Test
+    public void testReadCompressed() throws Exception {
+        // example.com at 0, www + pointer to 0 at 13
+        ByteBuf buf = buffer(7, 'e', 'x', 'a', 'm', 'p', 'l', 'e', 3, 'c', 'o', 'm', 0,
+                3, 'W', 'W', 'W', 0xC0, 0, 0x55);
+        buf.readerIndex(13);
+        WireName name = WireName.read(buf);
+        assertEquals(19, buf.readerIndex());
+        assertEquals(17, name.wireLength());
+        assertEquals(3, name.labelCount());
+        assertTrue(name.isAscii());
+        assertEquals("WWW.example.com.", name.toString());
+
+        buf.readerIndex(0);
+        WireName parent = WireName.read(buf);
+        assertEquals(13, buf.readerIndex());
+        assertEquals("example.com.", parent.toString());
+        assertNotEquals(parent, name);
+
+        ByteBuf out = Unpooled.buffer();
+        name.writeTo(out);
+        ByteBuf lower = buffer(3, 'w', 'w', 'w', 7, 'e', 'x', 'a', 'm', 'p', 'l', 'e', 3, 'c', 'o', 'm', 0);
+        assertEquals(17, out.readableBytes());
+        WireName uncompressed = WireName.read(lower);
+        assertEquals(name, uncompressed);
+        assertEquals(name.hashCode(), uncompressed.hashCode());
+    }
+
+    @Test
+    public void testRoot() throws Exception {
+        WireName root = WireName.read(buffer(0));
+        assertEquals(".", root.toString());
+        assertEquals(0, root.labelCount());
+        assertEquals(1, root.wireLength());
+    }
+
+    @Test
+    public void testUtf8Label() throws Exception {
+        WireName name = WireName.read(buffer(2, 0xC3, 0xA9, 0));
+        assertFalse(name.isAscii());
+        assertEquals("\u00e9.", name.toString());
+    }
+
+    @Test(expected = DnsDecoderException.class)
+    public void testPointerLoop() throws Exception {
+        ByteBuf buf = buffer(1, 'a', 0xC0, 0);
+        WireName.read(buf);
+    }
+
+    @Test(expected = DnsDecoderException.class)
+    public void testForwardPointer() throws Exception {
+        WireName.read(buffer(0xC0, 2, 0));
+    }
+
+    @Test(expected = DnsDecoderException.class)
+    public void testTruncated() throws Exception {
+        WireName.read(buffer(3, 'w', 'w'));
+    }
+
+    @Test(expected = DnsDecoderException.class)
+    public void testUnknownLabelType() throws Exception {
+        WireName.read(buffer(0x41, 0));
+    }
+
+    @Test(expected = DnsDecoderException.class)
+    public void testTooLong() throws Exception {
+        ByteBuf buf = Unpooled.buffer();
+        for (int i = 0; i < 5; i++) {
+            buf.writeByte(63);
+            buf.writeZero(63);
+        }
+        buf.writeByte(0);
+        WireName.read(buf);
+    }
+}